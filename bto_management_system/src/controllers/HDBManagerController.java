@@ -85,6 +85,8 @@ public class HDBManagerController extends UserController implements UserControll
                     case 12: generateReport(); break;
                     // Account
                     case 13: handleChangePassword(currentNric, this); break;
+                    // Data Maintenance
+                    case 14: archiveClosedProjects(currentNric); break;
                     // Exit
                     case 0: AuthController.logout(); break;
                     default: CommonView.displayInvalidChoice();
@@ -237,8 +239,8 @@ public class HDBManagerController extends UserController implements UserControll
             Project selectedProject = myProjects.stream().filter(p -> p.getProjectId() == projectId).findFirst().orElse(null);
             if (selectedProject == null) { CommonView.displayError("Invalid Project ID selected."); return; }
 
-         List<BTOApplication> pendingApps = DataStore.getApplications().values().stream()
-                  .filter(app -> app.getProjectId() == projectId && app.getStatus() == BTOApplicationStatus.PENDING)
+         List<BTOApplication> pendingApps = DataStore.getApplicationsByProject(projectId).stream()
+                  .filter(app -> app.getStatus() == BTOApplicationStatus.PENDING)
                   .sorted(Comparator.comparing(BTOApplication::getSubmissionDate))
                   .collect(Collectors.toList());
 
@@ -273,8 +275,8 @@ public class HDBManagerController extends UserController implements UserControll
              Project selectedProject = myProjects.stream().filter(p -> p.getProjectId() == projectId).findFirst().orElse(null);
              if (selectedProject == null) { CommonView.displayError("Invalid Project ID selected."); return; }
 
-         List<BTOApplication> withdrawalRequests = DataStore.getApplications().values().stream()
-                 .filter(app -> app.getProjectId() == projectId && app.isWithdrawalRequested())
+         List<BTOApplication> withdrawalRequests = DataStore.getApplicationsByProject(projectId).stream()
+                 .filter(BTOApplication::isWithdrawalRequested)
                   .sorted(Comparator.comparing(BTOApplication::getSubmissionDate))
                  .collect(Collectors.toList());
 
@@ -365,6 +367,15 @@ public class HDBManagerController extends UserController implements UserControll
          managerMenu.displayReport(report);
      }
 
+    // Archival
+    private void archiveClosedProjects(String managerNric) {
+         if (!managerMenu.confirmArchiveClosedProjects()) {
+             CommonView.displayMessage("Archival cancelled.");
+             return;
+         }
+         managerMenu.displayArchiveResult(managerService.archiveClosedProjects(managerNric));
+     }
+
     // Password Change
     @Override public void displayPasswordChangePrompt() { managerMenu.displayPasswordChangePrompt(); }
     @Override public String readOldPassword() { return managerMenu.readOldPassword(); }
@@ -0,0 +1,398 @@
+package data;
+
+import utils.PersistenceConfig;
+import utils.TextFormatUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Abstract base class for DataManagers that store a table as a binary snapshot instead of CSV.
+ * <p>
+ * File layout: magic, format version, table name, a string dictionary, the row count, and then one
+ * length-prefixed block per row. Repetitive strings (NRICs, enum names) are stored once in the
+ * dictionary and referenced by index; dates are stored as epoch days. Loading therefore needs no
+ * date or enum text parsing, and a damaged row can be skipped using its length prefix.
+ * @param <K> Key type for the data map
+ * @param <V> Value type (Model object) for the data map
+ */
+public abstract class AbstractBinaryDataManager<K, V> implements DataManager<K, V> {
+
+    private static final int MAGIC = 0x42544F53; // "BTOS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NULL_REFERENCE = -1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private volatile boolean compressed = false; // Whether save() writes the compressed variant (load detects either)
+
+    /** Selects whether snapshots are saved compressed (see {@link CompressedFiles}); loading accepts both variants. */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @Override
+    public Map<K, V> load(String filePath) throws IOException {
+        Map<K, V> dataMap = new ConcurrentHashMap<>();
+        File file = new File(filePath);
+        if (!file.exists()) {
+            System.out.println("Snapshot file not found, starting with an empty table: " + filePath);
+            return dataMap;
+        }
+        readSnapshot(file, dataMap, true);
+        System.out.println("Loaded " + dataMap.size() + " records from: " + filePath);
+        return dataMap;
+    }
+
+    /**
+     * Reads a snapshot that was already loaded, e.g. to patch it on save: without messages, and never
+     * mapped, so the file can be replaced right after.
+     * @return The rows; empty if the file does not exist.
+     */
+    public Map<K, V> read(String filePath) throws IOException {
+        Map<K, V> dataMap = new LinkedHashMap<>();
+        File file = new File(filePath);
+        if (file.isFile()) readSnapshot(file, dataMap, false);
+        return dataMap;
+    }
+
+    /** @param loading Whether this is the table's load, which may map the file and reports decompression. */
+    private void readSnapshot(File file, Map<K, V> dataMap, boolean loading) throws IOException {
+        String filePath = file.getPath();
+        if (CompressedFiles.isCompressed(file)) {
+            loadCompressed(file, dataMap, loading);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // A mapping would keep the file open on Windows until collected, and block replacing it on save
+            ByteBuffer buffer = (loading && PersistenceConfig.MAPPED_READ)
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    : ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a binary snapshot file: " + filePath);
+                }
+                checkHeader(buffer.getInt(), readUtf8(buffer), filePath);
+
+                String[] dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readUtf8(buffer);
+                }
+
+                RowReader reader = new RowReader(buffer, dictionary);
+                int rowCount = buffer.getInt();
+                for (int row = 0; row < rowCount; row++) {
+                    int length = buffer.getInt();
+                    int rowEnd = buffer.position() + length;
+                    try {
+                        V object = readRow(reader);
+                        if (object != null) {
+                            dataMap.put(getKey(object), object);
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.println(TextFormatUtil.error("Skipping unreadable row " + (row + 1) + " in snapshot " + filePath + ": " + e));
+                    }
+                    buffer.position(rowEnd);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Snapshot file is truncated or corrupt: " + filePath, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a compressed snapshot as a stream, one row at a time, so only the current row is buffered.
+     */
+    private void loadCompressed(File file, Map<K, V> dataMap, boolean report) throws IOException {
+        String filePath = file.getPath();
+        long startNanos = System.nanoTime();
+        try (CompressedFiles.InflatingInputStream inflating = CompressedFiles.open(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(inflating));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a binary snapshot file: " + filePath);
+                }
+                checkHeader(in.readInt(), readUtf8(in), filePath);
+
+                String[] dictionary = new String[in.readInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readUtf8(in);
+                }
+
+                RowReader reader = new RowReader(null, dictionary);
+                byte[] rowBytes = new byte[256];
+                int rowCount = in.readInt();
+                for (int row = 0; row < rowCount; row++) {
+                    int length = in.readInt();
+                    if (length > rowBytes.length) rowBytes = new byte[length];
+                    in.readFully(rowBytes, 0, length);
+                    reader.buffer = ByteBuffer.wrap(rowBytes, 0, length);
+                    try {
+                        V object = readRow(reader);
+                        if (object != null) {
+                            dataMap.put(getKey(object), object);
+                        }
+                    } catch (RuntimeException e) {
+                        System.err.println(TextFormatUtil.error("Skipping unreadable row " + (row + 1) + " in snapshot " + filePath + ": " + e));
+                    }
+                }
+            } catch (EOFException | NegativeArraySizeException e) {
+                throw new IOException("Snapshot file is truncated or corrupt: " + filePath, e);
+            }
+            if (report) {
+                System.out.println("Decompressed " + filePath + ": "
+                        + CompressedFiles.describe(inflating.uncompressedBytes(), inflating.fileBytes(), System.nanoTime() - startNanos));
+            }
+        }
+    }
+
+    private void checkHeader(int version, String tableName, String filePath) throws IOException {
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + filePath);
+        }
+        if (!tableName.equals(getTableName())) {
+            throw new IOException("Snapshot " + filePath + " holds table '" + tableName + "', expected '" + getTableName() + "'");
+        }
+    }
+
+    @Override
+    public void save(String filePath, Map<K, V> dataMap) throws IOException {
+        // Rows are encoded first so the dictionary is complete before it is written ahead of them
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        DataOutputStream rowsOut = new DataOutputStream(rows);
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(256);
+        RowWriter writer = new RowWriter(new DataOutputStream(rowBytes), dictionary);
+        int rowCount = 0;
+        if (dataMap != null) {
+            for (V object : dataMap.values()) {
+                if (object == null) continue;
+                rowBytes.reset();
+                writeRow(writer, object);
+                rowsOut.writeInt(rowBytes.size());
+                rowBytes.writeTo(rowsOut);
+                rowCount++;
+            }
+        }
+
+        int finalRowCount = rowCount;
+        AtomicFiles.StreamWriter content = stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeUtf8(out, getTableName());
+            out.writeInt(dictionary.size());
+            for (String entry : dictionary.keySet()) {
+                writeUtf8(out, entry);
+            }
+            out.writeInt(finalRowCount);
+            rows.writeTo(out);
+            out.flush();
+        };
+        try {
+            if (compressed) {
+                // Strings are already stored once in the snapshot's own dictionary, so the preset dictionary only needs the table name
+                CompressedFiles.write(Paths.get(filePath), CompressedFiles.buildDictionary(getTableName()), content);
+            } else {
+                AtomicFiles.writeStream(Paths.get(filePath), content);
+            }
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.error("Error writing to file " + filePath + ": " + e.getMessage()));
+            throw e;
+        }
+        System.out.println("Saving " + finalRowCount + " records to: " + filePath);
+    }
+
+    /** Name stored in the file header, so a snapshot cannot be loaded as the wrong table. */
+    protected abstract String getTableName();
+
+    /** Writes one model object. Must be implemented by subclasses. */
+    protected abstract void writeRow(RowWriter out, V object) throws IOException;
+
+    /** Reads one model object written by {@link #writeRow}. Must be implemented by subclasses. */
+    protected abstract V readRow(RowReader in);
+
+    /** Extracts the key from a model object for map storage. Must be implemented by subclasses. */
+    protected abstract K getKey(V object);
+
+    /** Encodes the fields of one row. */
+    protected static final class RowWriter {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary;
+
+        private RowWriter(DataOutputStream out, Map<String, Integer> dictionary) {
+            this.out = out;
+            this.dictionary = dictionary;
+        }
+
+        public void writeInt(int value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public void writeBoolean(boolean value) throws IOException {
+            out.writeBoolean(value);
+        }
+
+        /** Writes an optional integer. */
+        public void writeNullableInt(Integer value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) out.writeInt(value);
+        }
+
+        /** Writes free text (names, enquiry content) inline. */
+        public void writeString(String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) writeUtf8(out, value);
+        }
+
+        /** Writes a frequently repeated string (e.g. an NRIC) as a dictionary reference. */
+        public void writeReference(String value) throws IOException {
+            out.writeInt((value == null) ? NULL_REFERENCE : dictionary.computeIfAbsent(value, v -> dictionary.size()));
+        }
+
+        public void writeEnum(Enum<?> value) throws IOException {
+            writeReference((value == null) ? null : value.name());
+        }
+
+        /** Writes a date as days since the epoch (the CSV files also keep day precision only). */
+        public void writeDate(Date date) throws IOException {
+            out.writeInt((date == null) ? NULL_DATE
+                    : (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+        }
+
+        public void writeStringList(List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) writeString(value);
+        }
+
+        public void writeReferenceList(List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) writeReference(value);
+        }
+
+        public void writeEnumIntMap(Map<? extends Enum<?>, Integer> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<? extends Enum<?>, Integer> entry : map.entrySet()) {
+                writeEnum(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /** Decodes the fields of one row, resolving dictionary references. */
+    protected static final class RowReader {
+        private ByteBuffer buffer; // the whole mapped file, or one row of a compressed snapshot
+        private final String[] dictionary;
+        // Enum constant per dictionary entry, resolved on first use instead of once per row
+        private final Map<Class<?>, Enum<?>[]> enumCache = new HashMap<>();
+
+        private RowReader(ByteBuffer buffer, String[] dictionary) {
+            this.buffer = buffer;
+            this.dictionary = dictionary;
+        }
+
+        public int readInt() {
+            return buffer.getInt();
+        }
+
+        public boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        public Integer readNullableInt() {
+            return readBoolean() ? buffer.getInt() : null;
+        }
+
+        public String readString() {
+            return readBoolean() ? readUtf8(buffer) : null;
+        }
+
+        public String readReference() {
+            int index = buffer.getInt();
+            return (index == NULL_REFERENCE) ? null : dictionary[index];
+        }
+
+        public <E extends Enum<E>> E readEnum(Class<E> type) {
+            int index = buffer.getInt();
+            if (index == NULL_REFERENCE) return null;
+            Enum<?>[] constants = enumCache.computeIfAbsent(type, t -> new Enum<?>[dictionary.length]);
+            if (constants[index] == null) {
+                constants[index] = Enum.valueOf(type, dictionary[index]);
+            }
+            return type.cast(constants[index]);
+        }
+
+        public Date readDate() {
+            int epochDay = buffer.getInt();
+            return (epochDay == NULL_DATE) ? null
+                    : Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+
+        public List<String> readStringList() {
+            int size = buffer.getInt();
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) values.add(readString());
+            return values;
+        }
+
+        public List<String> readReferenceList() {
+            int size = buffer.getInt();
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) values.add(readReference());
+            return values;
+        }
+
+        public <E extends Enum<E>> Map<E, Integer> readEnumIntMap(Class<E> type) {
+            int size = buffer.getInt();
+            Map<E, Integer> map = new EnumMap<>(type);
+            for (int i = 0; i < size; i++) {
+                E key = readEnum(type);
+                map.put(key, buffer.getInt());
+            }
+            return map;
+        }
+    }
+
+    // Helper Methods
+
+    /** Strings are written as a byte length and UTF-8 bytes (no 64KB limit, unlike writeUTF). */
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf8(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readUtf8(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
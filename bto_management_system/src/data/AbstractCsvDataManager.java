@@ -1,17 +1,49 @@
 package data;
 
+import utils.PersistenceConfig;
 import utils.TextFormatUtil; // Assuming you have this for errors
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
 
 /**
  * Abstract base class for DataManagers that use CSV files.
  * Provides common CSV reading and writing functionalities.
+ * <p>
+ * With {@link PersistenceConfig#CSV_CHECKSUMS} on, files are saved with a trailing checksum column
+ * (CRC32 of the row) and a footer record holding the row count and a file hash; loading verifies both
+ * in the same pass. Rows that fail to verify or parse are skipped, copied to a quarantine file next to
+ * the data file, and reported in one summary line per file.
+ * <p>
+ * Files of schema version 2 and up carry the version as a suffix of the header's first column
+ * ({@code NRIC#v2}), so other programs still read the first line as the header; files without one are
+ * version 1 and look as they always did. Files with the schema line earlier versions wrote ahead of the
+ * header ({@code #schema,<version>}) are still read, and rewritten without it. Each file's header is matched to the current columns by name once, when the file is opened
+ * (see {@link CsvColumnMapping}), and rows of older versions are rearranged and upgraded
+ * ({@link #upgradeRow(int, String[])}) as they stream in. Files in the current layout keep the fast path.
+ * {@link #isOutdated(String)} tells the caller which loaded files should be rewritten in the current version.
  * @param <K> Key type for the data map
  * @param <V> Value type (Model object) for the data map
  */
@@ -20,12 +52,33 @@ public abstract class AbstractCsvDataManager<K, V> implements DataManager<K, V>
     // Ensure these delimiters are correctly defined and accessible
     protected static final String CSV_DELIMITER = ",";
     protected static final String LIST_DELIMITER = ";"; // Delimiter for lists within a cell
+    private static final long PARALLEL_CHUNK_MIN_BYTES = 256 * 1024; // Smaller chunks cost more in task overhead than they save
+    private static final String CHECKSUM_COLUMN = "RowChecksum"; // last header field of files saved with checksums
+    private static final String FOOTER_MARKER = "#EOF"; // first field of the footer record: #EOF,rowCount,fileHash
+    private static final String QUARANTINE_EXTENSION = ".quarantine";
+    private static final String SCHEMA_MARKER = "#schema"; // first field of the schema line older files start with: #schema,version
+    private static final String VERSION_SUFFIX = "#v"; // ends the header's first column of files in version 2 and up: NRIC#v2
+
+    private volatile boolean compressed = false; // Whether save() writes the compressed variant (load detects either)
+    // Files whose last load found an older schema version or another column layout
+    private final Set<String> outdatedFiles = ConcurrentHashMap.newKeySet();
+    // Files whose last load skipped rows that failed to verify or parse
+    private final Set<String> filesWithRejectedRows = ConcurrentHashMap.newKeySet();
+
+    /** Selects whether files are saved compressed (see {@link CompressedFiles}); loading accepts both variants. */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
 
     @Override
     public Map<K, V> load(String filePath) throws IOException {
         Map<K, V> dataMap = new ConcurrentHashMap<>();
         File file = new File(filePath);
 
+        if (!file.exists() && PersistenceConfig.READ_ONLY) {
+             System.out.println("Data file not found: " + filePath);
+             return dataMap; // read-only: the writer creates it
+        }
         if (!file.exists()) {
              System.out.println("Data file not found, creating new file: " + filePath);
              File parentDir = file.getParentFile();
@@ -35,8 +88,7 @@ public abstract class AbstractCsvDataManager<K, V> implements DataManager<K, V>
              if (file.createNewFile()) {
                  // Write header to the new file only if creation succeeded
                  try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-                     writer.write(getHeaderLine());
-                     writer.newLine();
+                     new TableWriter(writer).finish();
                  } catch (IOException writeEx) {
                      System.err.println(TextFormatUtil.error("Failed to write header to new file: " + filePath + " - " + writeEx.getMessage()));
                  }
@@ -46,93 +98,735 @@ public abstract class AbstractCsvDataManager<K, V> implements DataManager<K, V>
              return dataMap; // Return empty map for new or uncreatable file
         }
 
+        if (CompressedFiles.isCompressed(file)) {
+            loadCompressed(file, dataMap);
+        } else if (PersistenceConfig.MAPPED_READ && file.length() <= Integer.MAX_VALUE) {
+            loadMapped(file, dataMap);
+        } else {
+            loadBuffered(file, dataMap);
+        }
+        System.out.println("Loaded " + dataMap.size() + " records from: " + filePath);
+        return dataMap;
+    }
+
+    /** Streams a compressed file through the inflater and the tokenizer; the text is never held in memory as a whole. */
+    private void loadCompressed(File file, Map<K, V> dataMap) throws IOException {
+        long startNanos = System.nanoTime();
+        try (CompressedFiles.InflatingInputStream in = CompressedFiles.open(file)) {
+            loadRecords(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), file.getPath(), dataMap::put, true);
+            System.out.println("Decompressed " + file.getPath() + ": "
+                    + CompressedFiles.describe(in.uncompressedBytes(), in.fileBytes(), System.nanoTime() - startNanos));
+        }
+    }
+
+    private void loadBuffered(File file, Map<K, V> dataMap) throws IOException {
+        String filePath = file.getPath();
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            loadRecords(reader, filePath, dataMap::put, true);
+        } catch (FileNotFoundException e) {
+            // This case should be handled by the file.exists() check, but included for completeness
+            System.err.println(TextFormatUtil.error("Data file not found during load attempt (should have been created): " + filePath));
+            throw e; // Re-throw as it indicates a setup issue
+        }
+    }
+
+    /** Receives the rows of a file, in file order. */
+    private interface RowSink<K, V> {
+        void accept(K key, V object) throws IOException;
+    }
+
+    /**
+     * Streams the text through a {@link CsvTokenizer}, handing each record to {@link #parseCsvRow(String[])}.
+     * @param report Whether rejected rows are quarantined and reported, and the file's state recorded; off for
+     *               a file that was already loaded once.
+     */
+    private void loadRecords(Reader reader, String filePath, RowSink<K, V> sink, boolean report) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(reader);
+        LoadCheck check = null;
+        CsvColumnMapping mapping = null;
+        int fileVersion = 0; // from a schema line, 0 if the file has none
+        boolean schemaLine = false;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-            boolean isHeaderSkipped = false;
+        while (tokenizer.nextRecord()) {
+             int lineNumber = tokenizer.getLineNumber();
+             if (check == null && SCHEMA_MARKER.equals(tokenizer.getField(0).trim())) {
+                 fileVersion = parseVersion(tokenizer.getFieldCount() > 1 ? tokenizer.getField(1) : "", filePath);
+                 schemaLine = true;
+                 continue;
+             }
+             if (check == null) {
+                // Header line: tells whether the rows carry checksums and where each column is
+                String[] header = tokenizer.toArray();
+                check = new LoadCheck(CHECKSUM_COLUMN.equals(header[header.length - 1].trim()));
+                mapping = columnMapping(header, check.checksums, fileVersion, filePath);
+                continue;
+            }
+             if (tokenizer.isBlankRecord()) {
+                 continue; // Skip empty lines
+             }
 
-            while ((line = reader.readLine()) != null) {
-                 lineNumber++;
-                 if (!isHeaderSkipped) {
-                    isHeaderSkipped = true;
-                    // Optionally validate header here against getHeaderLine()
-                    continue; // Skip header line
+            String[] values = tokenizer.toArray();
+            if (check.checksums) {
+                if (FOOTER_MARKER.equals(values[0].trim())) {
+                    check.readFooter(values.length > 1 ? values[1] : "", values.length > 2 ? values[2] : "", lineNumber);
+                    continue;
                 }
-                 if (line.trim().isEmpty()) {
-                      // System.out.println("Skipping empty line " + lineNumber + " in " + filePath); // Optional info
-                     continue; // Skip empty lines
-                 }
+                long checksum = checksum(tokenizer.getRawBeforeLastField()); // the row's text as saved, like the mapped path
+                check.countRow(checksum);
+                if (parseHex(values[values.length - 1]) != checksum) {
+                    check.reject(lineNumber, "checksum mismatch", tokenizer.getRawRecord());
+                    continue;
+                }
+                values = Arrays.copyOf(values, values.length - 1);
+            }
+            V object;
+            try {
+                object = parseCsvRow(mapping.identity ? values : upgrade(mapping, values)); // Delegate parsing to subclass
+            } catch (Exception e) {
+                check.reject(lineNumber, e.toString(), tokenizer.getRawRecord()); // keep loading the other rows
+                continue;
+            }
+            if (object != null) {
+                sink.accept(getKey(object), object); // Add to map using key from object
+            } else {
+                check.reject(lineNumber, "unparseable row", tokenizer.getRawRecord());
+            }
+        }
+        if (check != null && report) {
+            check.report(filePath);
+            recordLoad(filePath, mapping, check, schemaLine);
+        }
+    }
+
+    /**
+     * Memory-maps the file and scans it for line and field boundaries in place.
+     * Each row is handed to {@link #parseCsvFields(CsvFields)} as a field view over the mapped bytes,
+     * so no per-line String is built unless the subclass asks for one.
+     * Files of at least {@link PersistenceConfig#PARALLEL_PARSE_MIN_BYTES} are parsed in chunks on a ForkJoinPool.
+     */
+    private void loadMapped(File file, Map<K, V> dataMap) throws IOException {
+        String filePath = file.getPath();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CsvFields fields = new CsvFields(buffer);
+            int limit = buffer.limit();
+            int position = hasUtf8Bom(buffer) ? 3 : 0;
+            if (position >= limit) return;
+            position = fields.scan(position, limit);
+            int firstLine = 1 + fields.lineCount();
+            int fileVersion = 0;
+            boolean schemaLine = fields.fieldEquals(0, SCHEMA_MARKER);
+            if (schemaLine) {
+                fileVersion = parseVersion(fields.size() > 1 ? fields.getString(1) : "", filePath);
+                position = fields.scan(position, limit);
+                firstLine += fields.lineCount();
+            }
+            // Header line: tells whether the rows carry checksums and where each column is
+            boolean checksums = fields.fieldEquals(fields.size() - 1, CHECKSUM_COLUMN);
+            CsvColumnMapping mapping = columnMapping(fields.toStringArray(), checksums, fileVersion, filePath);
+
+            LoadCheck check = new LoadCheck(checksums);
+            long minParallelBytes = PersistenceConfig.PARALLEL_PARSE_MIN_BYTES;
+            if (minParallelBytes > 0 && limit >= minParallelBytes && ForkJoinPool.commonPool().getParallelism() > 1) {
+                List<CsvChunk> chunks = splitIntoChunks(fields, position, limit, firstLine, checksums);
+                List<Map<K, V>> results = ForkJoinPool.commonPool().invoke(new ParseChunksTask(buffer, chunks, mapping));
+                results.forEach(dataMap::putAll); // in file order, so later duplicates win as in a sequential load
+                chunks.forEach(chunk -> check.merge(chunk.check));
+            } else {
+                parseRange(fields, position, limit, firstLine, check, mapping, dataMap);
+            }
+            check.report(filePath);
+            recordLoad(filePath, mapping, check, schemaLine);
+        }
+    }
+
+    /** Parses every record in [position, end) of the mapped file into the map, verifying checksums if the file has them. */
+    private void parseRange(CsvFields fields, int position, int end, int firstLine, LoadCheck check, CsvColumnMapping mapping, Map<K, V> dataMap) {
+        int nextLine = firstLine;
+        while (position < end) {
+            int lineNumber = nextLine;
+            position = fields.scan(position, end);
+            nextLine += fields.lineCount();
+            if (fields.isBlankLine()) continue; // Skip empty lines
+
+            if (check.checksums) {
+                if (fields.fieldEquals(0, FOOTER_MARKER)) {
+                    check.readFooter(fields.size() > 1 ? fields.getString(1) : "", fields.size() > 2 ? fields.getString(2) : "", lineNumber);
+                    continue;
+                }
+                long checksum = fields.checksumBeforeLastField();
+                check.countRow(checksum);
+                if (fields.getHex(fields.size() - 1) != checksum) {
+                    check.reject(lineNumber, "checksum mismatch", fields.line());
+                    continue;
+                }
+                fields.dropLastField();
+            }
+            try {
+                V object = mapping.identity ? parseCsvFields(fields) : parseCsvRow(upgrade(mapping, fields.toStringArray()));
+                if (object != null) {
+                    dataMap.put(getKey(object), object);
+                } else {
+                    check.reject(lineNumber, "unparseable row", fields.line());
+                }
+            } catch (Exception e) {
+                check.reject(lineNumber, e.toString(), fields.line()); // keep loading the other rows
+            }
+        }
+    }
+
+    /**
+     * Splits [position, limit) into roughly equal byte ranges that start and end on record boundaries.
+     * Boundaries are found with the same quote-aware scanner the parser uses (a cheap byte pass,
+     * so a line break inside a quoted field never splits a record), which also yields each
+     * chunk's starting line number for error reporting.
+     */
+    private static List<CsvChunk> splitIntoChunks(CsvFields fields, int position, int limit, int firstLine, boolean checksums) {
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long targetBytes = Math.max(PARALLEL_CHUNK_MIN_BYTES, (limit - position) / (parallelism * 4L));
+
+        List<CsvChunk> chunks = new ArrayList<>();
+        int chunkStart = position;
+        int chunkLine = firstLine;
+        int line = firstLine;
+        while (position < limit) {
+            position = fields.scan(position, limit);
+            line += fields.lineCount();
+            if (position - chunkStart >= targetBytes || position >= limit) {
+                chunks.add(new CsvChunk(chunkStart, position, chunkLine, new LoadCheck(checksums)));
+                chunkStart = position;
+                chunkLine = line;
+            }
+        }
+        return chunks;
+    }
+
+    /** A byte range of the mapped file holding whole records, the line number of its first record, and its verification results. */
+    private static class CsvChunk {
+        final int start;
+        final int end;
+        final int firstLine;
+        final LoadCheck check;
+
+        CsvChunk(int start, int end, int firstLine, LoadCheck check) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+            this.check = check;
+        }
+    }
+
+    /** Fork/join task parsing a run of chunks; each chunk gets its own map so results can be merged in file order. */
+    private class ParseChunksTask extends RecursiveTask<List<Map<K, V>>> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buffer;
+        private final List<CsvChunk> chunks;
+        private final CsvColumnMapping mapping;
 
+        ParseChunksTask(ByteBuffer buffer, List<CsvChunk> chunks, CsvColumnMapping mapping) {
+            this.buffer = buffer;
+            this.chunks = chunks;
+            this.mapping = mapping;
+        }
+
+        @Override
+        protected List<Map<K, V>> compute() {
+            if (chunks.isEmpty()) return new ArrayList<>();
+            if (chunks.size() == 1) {
+                CsvChunk chunk = chunks.get(0);
+                Map<K, V> chunkMap = new HashMap<>();
+                parseRange(new CsvFields(buffer.duplicate()), chunk.start, chunk.end, chunk.firstLine, chunk.check, mapping, chunkMap);
+                List<Map<K, V>> result = new ArrayList<>();
+                result.add(chunkMap);
+                return result;
+            }
+            int middle = chunks.size() / 2;
+            ParseChunksTask left = new ParseChunksTask(buffer, chunks.subList(0, middle), mapping);
+            ParseChunksTask right = new ParseChunksTask(buffer, chunks.subList(middle, chunks.size()), mapping);
+            left.fork();
+            List<Map<K, V>> result = new ArrayList<>(right.compute());
+            result.addAll(0, left.join());
+            return result;
+        }
+    }
+
+    private static boolean hasUtf8Bom(MappedByteBuffer buffer) {
+        return buffer.limit() >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF;
+    }
+
+    /**
+     * Verification results of one load (or one chunk of it): rows seen, the file hash over their checksums,
+     * the footer, and the rows rejected. The file hash is a sum of mixed row checksums, so it does not depend
+     * on the order in which chunks are verified.
+     */
+    private static final class LoadCheck {
+        final boolean checksums;
+        int rows = 0;
+        long fileHash = 0;
+        boolean footerSeen = false;
+        String footerRows = null;
+        String footerHash = null;
+        int footerLine = 0;
+        int checksumFailures = 0;
+        final List<String> rejected = new ArrayList<>(); // "# line N: reason" followed by the row, for the quarantine file
+        int firstRejectedLine = 0;
+        String firstReason = null;
+
+        LoadCheck(boolean checksums) {
+            this.checksums = checksums;
+        }
+
+        void countRow(long checksum) {
+            rows++;
+            fileHash += mix(checksum);
+        }
+
+        void readFooter(String rowCount, String hash, int lineNumber) {
+            footerSeen = true;
+            footerRows = rowCount.trim();
+            footerHash = hash.trim();
+            footerLine = lineNumber;
+        }
+
+        void reject(int lineNumber, String reason, String row) {
+            if (reason.equals("checksum mismatch")) checksumFailures++;
+            if (firstReason == null) {
+                firstRejectedLine = lineNumber;
+                firstReason = reason;
+            }
+            rejected.add("# line " + lineNumber + ": " + reason);
+            rejected.add(row);
+        }
+
+        /** Adds the results of the next chunk, in file order. */
+        void merge(LoadCheck chunk) {
+            rows += chunk.rows;
+            fileHash += chunk.fileHash;
+            if (chunk.footerSeen) readFooter(chunk.footerRows, chunk.footerHash, chunk.footerLine);
+            checksumFailures += chunk.checksumFailures;
+            if (firstReason == null && chunk.firstReason != null) {
+                firstRejectedLine = chunk.firstRejectedLine;
+                firstReason = chunk.firstReason;
+            }
+            rejected.addAll(chunk.rejected);
+        }
+
+        /** Quarantines the rejected rows and prints one summary line, if anything is wrong with the file. */
+        void report(String filePath) {
+            List<String> problems = new ArrayList<>();
+            if (!rejected.isEmpty()) {
+                problems.add(rejected.size() / 2 + " bad row(s) skipped (first at line " + firstRejectedLine + ": " + firstReason + ")");
+            }
+            if (checksums) {
+                if (!footerSeen) {
+                    problems.add("no footer, so the file may be truncated");
+                } else if (!String.valueOf(rows).equals(footerRows)) {
+                    problems.add("footer at line " + footerLine + " expects " + footerRows + " rows, found " + rows);
+                } else if (checksumFailures == 0 && parseUnsignedHex(footerHash) != fileHash) {
+                    problems.add("file hash does not match the footer");
+                }
+            }
+            if (problems.isEmpty()) return;
+
+            String message = filePath + ": " + String.join("; ", problems) + ".";
+            if (!rejected.isEmpty() && PersistenceConfig.READ_ONLY) {
+                message += " The data is open read-only, so they were not quarantined.";
+            } else if (!rejected.isEmpty()) {
+                String quarantinePath = filePath + QUARANTINE_EXTENSION;
                 try {
-                    // Use the CSV delimiter to split the main line
-                    String[] values = line.split(CSV_DELIMITER, -1); // -1 keeps trailing empty strings
-                    V object = parseCsvRow(values); // Delegate parsing to subclass
-                    if (object != null) {
-                        dataMap.put(getKey(object), object); // Add to map using key from object
-                    } else {
-                        // parseCsvRow should print specific errors, but log general failure too
-                        System.err.println("Failed to parse line " + lineNumber + " in " + filePath + ". Skipping row. Content: " + Arrays.toString(values));
-                    }
-                } catch (Exception e) {
-                     // Catch any unexpected exception during row processing
-                     System.err.println(TextFormatUtil.error("Unexpected error processing line " + lineNumber + " in file " + filePath + ": " + line));
-                     e.printStackTrace(); // Log parsing error but try to continue loading other lines
+                    List<String> lines = new ArrayList<>();
+                    lines.add("# " + LocalDateTime.now() + " rows rejected while loading " + filePath);
+                    lines.addAll(rejected);
+                    Files.write(Paths.get(quarantinePath), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    message += " Rejected rows were copied to " + quarantinePath + ".";
+                } catch (IOException e) {
+                    message += " Could not write " + quarantinePath + ": " + e.getMessage();
                 }
             }
-        } catch (FileNotFoundException e) {
-            // This case should be handled by the file.exists() check, but included for completeness
-            System.err.println(TextFormatUtil.error("Data file not found during load attempt (should have been created): " + filePath));
-            throw e; // Re-throw as it indicates a setup issue
+            System.err.println(TextFormatUtil.warning(message));
         }
-        System.out.println("Loaded " + dataMap.size() + " records from: " + filePath);
-        return dataMap;
     }
 
+    /** CRC32 of a row's UTF-8 text, as saved in the checksum column. */
+    private static long checksum(String row) {
+        CRC32 crc = new CRC32();
+        crc.update(row.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /** Spreads a row checksum over 64 bits (SplitMix64 finalizer) before it is added to the file hash. */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /** Parses a checksum column; -1 if it is not valid hex. */
+    private static long parseHex(String value) {
+        try {
+            String trimmed = value.trim();
+            return (trimmed.isEmpty() || trimmed.length() > 8) ? -1 : Long.parseLong(trimmed, 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseUnsignedHex(String value) {
+        try {
+            return Long.parseUnsignedLong(value, 16);
+        } catch (NumberFormatException e) {
+            return 0; // reported as a mismatch unless the hash happens to be 0
+        }
+    }
+
+    /**
+     * Works out, once per file, how the file's columns map onto the current ones, and reports a file in an
+     * older version or another layout. Files without a version (version 1) whose header does not name
+     * every current column are read by position, as before versioned headers.
+     * @param header The file's header fields, including the checksum column if the file has one.
+     * @param fileVersion The version from a schema line, or 0 if the file has none; a version suffix in the header wins.
+     */
+    private CsvColumnMapping columnMapping(String[] header, boolean checksums, int fileVersion, String filePath) throws IOException {
+        String[] fileColumns = checksums ? Arrays.copyOf(header, header.length - 1) : header.clone();
+        int suffix = fileColumns[0].lastIndexOf(VERSION_SUFFIX);
+        if (suffix >= 0) {
+            fileVersion = parseVersion(fileColumns[0].substring(suffix + VERSION_SUFFIX.length()), filePath);
+            fileColumns[0] = fileColumns[0].substring(0, suffix);
+        }
+        String[] currentColumns = CsvTokenizer.parseLine(getHeaderLine());
+        Map<String, String> renames = new HashMap<>();
+        getColumnRenames().forEach((from, to) -> renames.put(from.toLowerCase(Locale.ROOT), to));
+        boolean byName = fileVersion > 0 || CsvColumnMapping.coversByName(currentColumns, fileColumns, renames);
+        int version = Math.max(fileVersion, 1);
+        CsvColumnMapping mapping = new CsvColumnMapping(currentColumns, fileColumns, version, getSchemaVersion(), renames, byName);
+
+        if (mapping.identity) return mapping;
+        StringBuilder message = new StringBuilder(filePath + ": schema version " + version + " (current " + getSchemaVersion() + ")");
+        message.append(byName ? ", columns matched by header name" : ", columns read by position");
+        if (!mapping.missingColumns.isEmpty()) message.append("; missing ").append(mapping.missingColumns).append(" (left empty)");
+        if (!mapping.droppedColumns.isEmpty()) message.append("; dropping ").append(mapping.droppedColumns);
+        if (version > getSchemaVersion()) {
+            System.err.println(TextFormatUtil.warning(message + ". The file was written by a newer version; columns it dropped are lost on the next save."));
+        } else {
+            System.out.println(message + ". Rows are upgraded while loading.");
+        }
+        return mapping;
+    }
+
+    /**
+     * Records whether the loaded file had rejected rows and whether it should be rewritten in the current
+     * version (or without its schema line). A file with rejected rows is left as it is, so an automatic rewrite
+     * never drops rows that only failed to upgrade.
+     */
+    private void recordLoad(String filePath, CsvColumnMapping mapping, LoadCheck check, boolean schemaLine) {
+        if (check.rejected.isEmpty()) filesWithRejectedRows.remove(filePath);
+        else filesWithRejectedRows.add(filePath);
+        boolean outdated = mapping != null && (!mapping.identity || schemaLine) && mapping.fileVersion <= getSchemaVersion();
+        if (outdated && !check.rejected.isEmpty()) {
+            System.err.println(TextFormatUtil.warning(filePath + " is not rewritten in the current version until its rejected rows are fixed."));
+            outdated = false;
+        }
+        if (outdated) outdatedFiles.add(filePath);
+        else outdatedFiles.remove(filePath);
+    }
+
+    /** Rearranges a row of an older file into the current columns and upgrades its values. */
+    private String[] upgrade(CsvColumnMapping mapping, String[] fileValues) {
+        String[] values = mapping.map(fileValues);
+        if (mapping.fileVersion < getSchemaVersion()) upgradeRow(mapping.fileVersion, values);
+        return values;
+    }
+
+    private static int parseVersion(String value, String filePath) throws IOException {
+        try {
+            int version = Integer.parseInt(value.trim());
+            if (version >= 1) return version;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IOException("Invalid schema version in " + filePath + ": '" + value + "'");
+    }
+
+    /** Writes the header (with the version suffix from version 2 on) and the rows of a file, plus the checksum column and the footer if {@link PersistenceConfig#CSV_CHECKSUMS} is on. */
+    private final class TableWriter {
+        private final Writer writer;
+        private final boolean checksums = PersistenceConfig.CSV_CHECKSUMS;
+        private int rows = 0;
+        private long fileHash = 0;
+
+        TableWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(versionedHeaderLine());
+            if (checksums) writer.write(CSV_DELIMITER + CHECKSUM_COLUMN);
+            writer.write(System.lineSeparator());
+        }
+
+        void row(String row) throws IOException {
+            writer.write(row);
+            if (checksums) {
+                long checksum = checksum(row);
+                writer.write(CSV_DELIMITER);
+                writer.write(Long.toHexString(checksum));
+                fileHash += mix(checksum);
+            }
+            writer.write(System.lineSeparator());
+            rows++;
+        }
+
+        void finish() throws IOException {
+            if (!checksums) return;
+            writer.write(FOOTER_MARKER + CSV_DELIMITER + rows + CSV_DELIMITER + Long.toHexString(fileHash));
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Saves the map crash-safely: rows go to a temp file that is fsynced and then
+     * atomically renamed over the live CSV, so a crash mid-save never truncates the table.
+     */
     @Override
     public void save(String filePath, Map<K, V> dataMap) throws IOException {
-        File file = new File(filePath);
-         File parentDir = file.getParentFile();
-         if (parentDir != null && !parentDir.exists()) {
-             parentDir.mkdirs(); // Ensure directory exists before writing
-         }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            // Write header
-            writer.write(getHeaderLine());
-            writer.newLine();
-
-            // Write data rows
-            if (dataMap != null) { // Check if map is null
+        try {
+            writeFile(filePath, writer -> {
+                TableWriter table = new TableWriter(writer); // writes the header
+
+                // Write data rows
+                if (dataMap == null) { // Check if map is null
+                    System.out.println("Warning: Data map provided for saving to " + filePath + " is null. Saving empty file.");
+                    table.finish();
+                    return;
+                }
                 for (V object : dataMap.values()) {
                     if (object == null) continue; // Skip null objects in the map
                     try {
-                        writer.write(formatCsvRow(object)); // Delegate formatting to subclass
-                        writer.newLine();
+                        table.row(formatCsvRow(object)); // Delegate formatting to subclass
+                    } catch (IOException e) {
+                        throw e;
                     } catch (Exception e) {
                         System.err.println(TextFormatUtil.error("Error formatting object for file " + filePath + ": " + object));
                         e.printStackTrace(); // Log formatting error but continue saving other objects
                     }
                 }
+                table.finish();
                 System.out.println("Saving " + dataMap.size() + " records to: " + filePath);
-            } else {
-                System.out.println("Warning: Data map provided for saving to " + filePath + " is null. Saving empty file.");
-            }
+            });
         } catch (IOException e) {
              System.err.println(TextFormatUtil.error("Error writing to file " + filePath + ": " + e.getMessage()));
              throw e; // Re-throw to indicate save failure
         }
     }
 
+    /** Atomically writes a CSV file, compressed if selected with {@link #setCompressed(boolean)}. */
+    private void writeFile(String filePath, AtomicFiles.ContentWriter content) throws IOException {
+        if (!compressed) {
+            AtomicFiles.write(Paths.get(filePath), content);
+            return;
+        }
+        byte[] dictionary = CompressedFiles.buildDictionary(getCompressionVocabulary());
+        CompressedFiles.write(Paths.get(filePath), dictionary, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.write(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Words every file of this table contains, for the compression dictionary: the header line by default.
+     * Subclasses add the names of the enums they store. Changing the vocabulary only affects files saved afterwards.
+     */
+    protected String getCompressionVocabulary() {
+        return getHeaderLine();
+    }
+
+    /** Comma-separated names of the constants of the given enums, for {@link #getCompressionVocabulary()}. */
+    @SafeVarargs
+    protected static String enumVocabulary(Class<? extends Enum<?>>... types) {
+        List<String> names = new ArrayList<>();
+        for (Class<? extends Enum<?>> type : types) {
+            for (Enum<?> constant : type.getEnumConstants()) names.add(constant.name());
+        }
+        return String.join(CSV_DELIMITER, names);
+    }
+
+    /**
+     * Writes rows that were already formatted with {@link #formatRecord(Object)}, e.g. from a snapshot
+     * captured while the live objects keep changing.
+     * @param filePath The path to the CSV file.
+     * @param rows The formatted rows, without line terminators.
+     * @throws IOException If an I/O error occurs during writing.
+     */
+    public void saveRows(String filePath, Collection<String> rows) throws IOException {
+        try {
+            writeFile(filePath, writer -> {
+                TableWriter table = new TableWriter(writer);
+                for (String row : rows) {
+                    table.row(row);
+                }
+                table.finish();
+            });
+        } catch (IOException e) {
+             System.err.println(TextFormatUtil.error("Error writing to file " + filePath + ": " + e.getMessage()));
+             throw e;
+        }
+        System.out.println("Saving " + rows.size() + " records to: " + filePath);
+    }
+
+    /**
+     * Reads a file that was already loaded, e.g. to rewrite it in another format: streamed like
+     * {@link #load(String)}, but rejected rows are only left out, not quarantined and reported again.
+     * @return The rows in file order; empty if the file does not exist.
+     */
+    public Map<K, V> read(String filePath) throws IOException {
+        Map<K, V> dataMap = new LinkedHashMap<>();
+        File file = new File(filePath);
+        if (file.isFile()) readRows(file, dataMap::put);
+        return dataMap;
+    }
+
+    /**
+     * Rewrites a file with some rows changed, without holding the table in memory: the rows of the source
+     * file stream through and are re-formatted, the changed ones are replaced (or left out if removed), and
+     * rows new to the file are appended. Rows of the source that fail to verify or parse are left out, as
+     * they were when it was loaded.
+     * @param sourcePath The file holding the table so far; null or missing if there is none.
+     * @param targetPath Where to write, crash-safely; may be the source file.
+     * @param changes Changed rows by key, formatted with {@link #formatRecord(Object)}; a null row for a removed key.
+     */
+    public void saveChanges(String sourcePath, String targetPath, Map<K, String> changes) throws IOException {
+        int[] rowCount = { 0 };
+        try {
+            writeFile(targetPath, writer -> {
+                TableWriter table = new TableWriter(writer);
+                Set<K> written = new HashSet<>();
+                File source = (sourcePath == null) ? null : new File(sourcePath);
+                if (source != null && source.isFile()) {
+                    readRows(source, (key, object) -> { // closed before the target replaces it
+                        if (!changes.containsKey(key)) {
+                            table.row(formatCsvRow(object));
+                        } else if (written.add(key) && changes.get(key) != null) {
+                            table.row(changes.get(key));
+                        }
+                    });
+                }
+                for (Map.Entry<K, String> change : changes.entrySet()) {
+                    if (change.getValue() != null && written.add(change.getKey())) table.row(change.getValue());
+                }
+                rowCount[0] = table.rows;
+                table.finish();
+            });
+        } catch (IOException e) {
+             System.err.println(TextFormatUtil.error("Error writing to file " + targetPath + ": " + e.getMessage()));
+             throw e;
+        }
+        System.out.println("Saving " + rowCount[0] + " records (" + changes.size() + " changed) to: " + targetPath);
+    }
+
+    /** Streams the rows of a plain or compressed file; never mapped, so the file can be replaced right after. */
+    private void readRows(File file, RowSink<K, V> sink) throws IOException {
+        InputStream in = CompressedFiles.isCompressed(file) ? CompressedFiles.open(file) : new FileInputStream(file);
+        try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            loadRecords(reader, file.getPath(), sink, false);
+        }
+    }
+
+    /**
+     * Formats a single object as one CSV row, e.g. for journaling an individual change.
+     * @param object The model object.
+     * @return The CSV row without a line terminator.
+     */
+    public String formatRecord(V object) {
+        return formatCsvRow(object);
+    }
+
+    /**
+     * Parses a single CSV row produced by {@link #formatRecord(Object)}.
+     * @param row The CSV row.
+     * @return The model object, or null if the row is invalid.
+     */
+    public V parseRecord(String row) {
+        return parseCsvRow(CsvTokenizer.parseLine(row));
+    }
+
+    /** Returns the map key of an object, as used by {@link #load(String)}. */
+    public K keyOf(V object) {
+        return getKey(object);
+    }
+
     /** Defines the header line for the CSV file. Must be implemented by subclasses. */
     protected abstract String getHeaderLine();
 
+    /** The header line, with the schema version appended to its first column from version 2 on. */
+    private String versionedHeaderLine() {
+        String header = getHeaderLine();
+        if (getSchemaVersion() == 1) return header;
+        int firstColumnEnd = header.indexOf(CSV_DELIMITER);
+        if (firstColumnEnd < 0) firstColumnEnd = header.length();
+        return header.substring(0, firstColumnEnd) + VERSION_SUFFIX + getSchemaVersion() + header.substring(firstColumnEnd);
+    }
+
+    /**
+     * Schema version of {@link #getHeaderLine()}, written to the header of every saved file from version 2 on.
+     * Bump it when the columns change, and handle rows of the older versions in {@link #upgradeRow(int, String[])}.
+     * Journal records, log segments and database rows hold rows in the version that wrote them, so
+     * checkpoint (or convert to CSV) before changing the columns of a table stored that way.
+     */
+    protected int getSchemaVersion() {
+        return 1;
+    }
+
+    /** Columns renamed since earlier versions: old header name to current header name. None by default. */
+    protected Map<String, String> getColumnRenames() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Upgrades a row of an older file, already rearranged into the current columns (columns the file
+     * lacks are empty), e.g. to fill in a new column or convert a value. Called for every such row while
+     * loading, possibly from several threads at once. Does nothing by default.
+     * @param fileVersion Schema version of the file the row came from.
+     * @param values The row in the current column order, changed in place.
+     */
+    protected void upgradeRow(int fileVersion, String[] values) {
+    }
+
+    /** Whether the last load of the file skipped rows that failed to verify or parse (see the quarantine file). */
+    public boolean hadRejectedRows(String filePath) {
+        return filesWithRejectedRows.contains(filePath);
+    }
+
+    /** Whether the file, as last loaded, was in an older schema version or another column layout, and should be rewritten. */
+    public boolean isOutdated(String filePath) {
+        return outdatedFiles.contains(filePath);
+    }
+
     /** Parses a single row (array of string values) from the CSV into a model object. Must be implemented by subclasses. */
     protected abstract V parseCsvRow(String[] values);
 
+    /**
+     * Parses a row straight from the memory-mapped file.
+     * Subclasses with large tables can override this to read fields in place; the default
+     * decodes the fields and falls back to {@link #parseCsvRow(String[])}.
+     */
+    protected V parseCsvFields(CsvFields fields) {
+        return parseCsvRow(fields.toStringArray());
+    }
+
     /** Formats a model object into a CSV string row. Must be implemented by subclasses. */
     protected abstract String formatCsvRow(V object);
 
+    /**
+     * Joins field values into one CSV row, quoting any value that contains
+     * a delimiter, a quote or a line break (RFC 4180). Null values are written as empty fields.
+     */
+    protected static String joinCsvFields(String... values) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) row.append(CSV_DELIMITER);
+            row.append(CsvTokenizer.quote(values[i]));
+        }
+        return row.toString();
+    }
+
     /** Extracts the key from a model object for map storage. Must be implemented by subclasses. */
     protected abstract K getKey(V object);
 
@@ -0,0 +1,289 @@
+package data;
+
+import utils.PersistenceConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Abstract base class for DataManagers that store a table in the embedded SQL database ({@link JdbcDatabase}).
+ * <p>
+ * Each row is stored in its CSV row format next to its key, a hash of the row and the indexed
+ * foreign-key columns declared by the subclass (e.g. applicant NRIC, project ID), which are indexed.
+ * A save compares the row hashes with those in the database and sends only the changed rows, as
+ * batched UPDATEs, INSERTs and DELETEs in one transaction (which joins an enclosing
+ * {@link JdbcDatabase#transaction(JdbcDatabase.Work)} block, e.g. one flush of all tables).
+ * The path passed to load and save only names the database in messages; the SQL table is fixed per subclass.
+ * @param <K> Key type for the data map
+ * @param <V> Value type (Model object) for the data map
+ */
+public abstract class AbstractJdbcDataManager<K, V> implements DataManager<K, V> {
+
+    protected static final int VARCHAR = Types.VARCHAR;
+    protected static final int INTEGER = Types.INTEGER;
+
+    /** A foreign-key column copied out of each row so it can be indexed and queried. */
+    private static final class IndexedColumn<V> {
+        final String name;
+        final int sqlType;
+        final Function<V, Object> value;
+
+        IndexedColumn(String name, int sqlType, Function<V, Object> value) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.value = value;
+        }
+    }
+
+    private final String table;
+    private final AbstractCsvDataManager<K, V> codec;
+    private final List<IndexedColumn<V>> indexedColumns = new ArrayList<>();
+    private boolean schemaReady = false;
+    // Row hash of every key in the database table, as of the last load or committed save; null until read
+    private Map<String, Long> storedHashes = null;
+
+    /**
+     * @param table SQL table name.
+     * @param codec The table's CSV DataManager, used to encode and decode rows.
+     */
+    protected AbstractJdbcDataManager(String table, AbstractCsvDataManager<K, V> codec) {
+        this.table = table;
+        this.codec = codec;
+    }
+
+    /** Declares an indexed column; called from the subclass constructor. */
+    protected void indexColumn(String name, int sqlType, Function<V, Object> value) {
+        indexedColumns.add(new IndexedColumn<>(name, sqlType, value));
+    }
+
+    public String getTable() { return table; }
+
+    @Override
+    public Map<K, V> load(String databasePath) throws IOException {
+        long startNanos = System.nanoTime();
+        Map<K, V> dataMap = new ConcurrentHashMap<>();
+        JdbcDatabase.transaction(connection -> {
+            ensureSchema(connection);
+            Map<String, Long> hashes = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT id, row_hash, row_data FROM " + table)) {
+                while (rows.next()) {
+                    String key = rows.getString(1);
+                    hashes.put(key, rows.getLong(2));
+                    V object = codec.parseRecord(rows.getString(3));
+                    if (object != null) {
+                        dataMap.put(codec.keyOf(object), object);
+                    } else {
+                        System.err.println("Skipping unparseable row '" + key + "' in table " + table + ".");
+                    }
+                }
+            }
+            storedHashes = hashes;
+            return null;
+        });
+        System.out.println(String.format("Loaded %d records from: %s in %s in %.1f ms", dataMap.size(), table, databasePath,
+                (System.nanoTime() - startNanos) / 1_000_000.0));
+        return dataMap;
+    }
+
+    @Override
+    public void save(String databasePath, Map<K, V> dataMap) throws IOException {
+        Map<K, String> rows = new LinkedHashMap<>();
+        if (dataMap != null) {
+            dataMap.forEach((key, object) -> {
+                if (object != null) rows.put(key, codec.formatRecord(object));
+            });
+        }
+        saveRows(databasePath, rows);
+    }
+
+    /**
+     * Brings the database table in line with the given rows, sending only rows whose hash differs.
+     * @param rows Every row of the table, already formatted with {@link AbstractCsvDataManager#formatRecord(Object)}.
+     */
+    public void saveRows(String databasePath, Map<K, String> rows) throws IOException {
+        write(databasePath, rows, true);
+    }
+
+    /**
+     * Sends the given changes: the rows whose hash differs from the stored one, and DELETEs for the removed keys.
+     * @param changes Changed rows by key, formatted with {@link AbstractCsvDataManager#formatRecord(Object)};
+     *                a null row for a removed key.
+     */
+    public void saveChanges(String databasePath, Map<K, String> changes) throws IOException {
+        write(databasePath, changes, false);
+    }
+
+    /** @param complete Whether the rows are the whole table, so stored keys missing from them are deleted. */
+    private void write(String databasePath, Map<K, String> rows, boolean complete) throws IOException {
+        long startNanos = System.nanoTime();
+        int[] counts = JdbcDatabase.transaction(connection -> {
+            ensureSchema(connection);
+            Map<String, Long> stored = storedHashes(connection);
+            JdbcDatabase.onRollback(() -> storedHashes = null); // updated below before the commit
+
+            String columns = indexedColumnList();
+            String placeholders = "?, ".repeat(indexedColumns.size());
+            int updated = 0, inserted = 0, deleted = 0, unchanged = 0;
+            Set<String> keys = new HashSet<>();
+            List<String> removed = new ArrayList<>();
+            try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET " + assignments() + "row_hash = ?, row_data = ? WHERE id = ?");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " (" + columns + "row_hash, row_data, id) VALUES (" + placeholders + "?, ?, ?)");
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+                for (Map.Entry<K, String> row : rows.entrySet()) {
+                    String key = String.valueOf(row.getKey());
+                    keys.add(key);
+                    if (row.getValue() == null) {
+                        if (stored.containsKey(key)) removed.add(key);
+                        continue;
+                    }
+                    long hash = hash(row.getValue());
+                    Long storedHash = stored.get(key);
+                    if (storedHash != null && storedHash == hash) {
+                        unchanged++;
+                        continue;
+                    }
+                    V object = codec.parseRecord(row.getValue());
+                    PreparedStatement statement = (storedHash != null) ? update : insert;
+                    bindRow(statement, object, hash, row.getValue(), key);
+                    statement.addBatch();
+                    if (storedHash != null) updated++; else inserted++;
+                    stored.put(key, hash);
+                    if ((updated + inserted) % PersistenceConfig.JDBC_BATCH_SIZE == 0) {
+                        update.executeBatch();
+                        insert.executeBatch();
+                    }
+                }
+                update.executeBatch();
+                insert.executeBatch();
+                if (complete) {
+                    for (String key : stored.keySet()) {
+                        if (!keys.contains(key)) removed.add(key);
+                    }
+                }
+                for (String key : removed) {
+                    delete.setString(1, key);
+                    delete.addBatch();
+                    stored.remove(key);
+                    if (++deleted % PersistenceConfig.JDBC_BATCH_SIZE == 0) delete.executeBatch();
+                }
+                delete.executeBatch();
+            }
+            JdbcDatabase.recordSave(connection, table, stored.size());
+            return new int[] { updated, inserted, deleted, unchanged };
+        });
+        System.out.println(String.format("Saved %s in %s: %d updated, %d inserted, %d deleted, %d unchanged in %.1f ms",
+                table, databasePath, counts[0], counts[1], counts[2], counts[3],
+                (System.nanoTime() - startNanos) / 1_000_000.0));
+    }
+
+    /**
+     * Loads on the calling thread: the shared connection's transactions belong to the thread that opened
+     * them, so an enclosing {@link JdbcDatabase#transaction(JdbcDatabase.Work)} block would otherwise deadlock.
+     */
+    @Override
+    public CompletableFuture<Map<K, V>> loadAsync(String databasePath) {
+        try {
+            return CompletableFuture.completedFuture(load(databasePath));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Saves on the calling thread, for the same reason as {@link #loadAsync(String)}. */
+    @Override
+    public CompletableFuture<Void> saveAsync(String databasePath, Map<K, V> dataMap) {
+        try {
+            save(databasePath, dataMap);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** When the table was last saved to the database (epoch millis), or 0 if it never was. */
+    public long savedAt() throws IOException {
+        return JdbcDatabase.transaction(connection -> JdbcDatabase.savedAt(connection, table));
+    }
+
+    private void bindRow(PreparedStatement statement, V object, long hash, String row, String key) throws SQLException {
+        int parameter = 1;
+        for (IndexedColumn<V> column : indexedColumns) {
+            Object value = (object == null) ? null : column.value.apply(object);
+            if (value == null) statement.setNull(parameter++, column.sqlType);
+            else statement.setObject(parameter++, value, column.sqlType);
+        }
+        statement.setLong(parameter++, hash);
+        statement.setString(parameter++, row);
+        statement.setString(parameter, key);
+    }
+
+    private Map<String, Long> storedHashes(Connection connection) throws SQLException {
+        if (storedHashes == null) {
+            Map<String, Long> hashes = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT id, row_hash FROM " + table)) {
+                while (rows.next()) hashes.put(rows.getString(1), rows.getLong(2));
+            }
+            storedHashes = hashes;
+        }
+        return storedHashes;
+    }
+
+    /** Creates the table and its indexes on first use. */
+    private void ensureSchema(Connection connection) throws SQLException {
+        if (schemaReady) return;
+        JdbcDatabase.ensureStateTable(connection);
+        if (!JdbcDatabase.tableExists(connection, table)) {
+            StringBuilder create = new StringBuilder("CREATE TABLE " + table + " (id VARCHAR(64) PRIMARY KEY, ");
+            for (IndexedColumn<V> column : indexedColumns) {
+                create.append(column.name).append(column.sqlType == INTEGER ? " INTEGER, " : " VARCHAR(64), ");
+            }
+            create.append("row_hash BIGINT NOT NULL, row_data CLOB NOT NULL)");
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(create.toString());
+                for (IndexedColumn<V> column : indexedColumns) {
+                    statement.executeUpdate("CREATE INDEX idx_" + table + "_" + column.name + " ON " + table + " (" + column.name + ")");
+                }
+            }
+            System.out.println("Created database table " + table + ".");
+        }
+        schemaReady = true;
+    }
+
+    private String indexedColumnList() {
+        StringBuilder list = new StringBuilder();
+        for (IndexedColumn<V> column : indexedColumns) list.append(column.name).append(", ");
+        return list.toString();
+    }
+
+    private String assignments() {
+        StringBuilder list = new StringBuilder();
+        for (IndexedColumn<V> column : indexedColumns) list.append(column.name).append(" = ?, ");
+        return list.toString();
+    }
+
+    /** 64-bit row hash (CRC32 and String.hashCode side by side), so an unchanged hash means an unchanged row. */
+    private static long hash(String row) {
+        CRC32 crc = new CRC32();
+        crc.update(row.getBytes(StandardCharsets.UTF_8));
+        return (crc.getValue() << 32) | (row.hashCode() & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,43 @@
+package data;
+
+import models.BTOApplication;
+import enums.BTOApplicationStatus;
+import enums.FlatType;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for BTOApplication using binary snapshot files.
+ */
+public class ApplicationBinaryDataManager extends AbstractBinaryDataManager<Integer, BTOApplication> {
+
+    @Override
+    protected String getTableName() {
+        return "applications";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, BTOApplication app) throws IOException {
+        out.writeInt(app.getApplicationId());
+        out.writeReference(app.getApplicantNric());
+        out.writeInt(app.getProjectId());
+        out.writeEnum(app.getStatus());
+        out.writeEnum(app.getAppliedFlatType());
+        out.writeEnum(app.getBookedFlatType());
+        out.writeNullableInt(app.getFlatBookingId());
+        out.writeBoolean(app.isWithdrawalRequested());
+        out.writeDate(app.getSubmissionDate());
+    }
+
+    @Override
+    protected BTOApplication readRow(RowReader in) {
+        return new BTOApplication(in.readInt(), in.readReference(), in.readInt(),
+                                  in.readEnum(BTOApplicationStatus.class), in.readEnum(FlatType.class),
+                                  in.readEnum(FlatType.class), in.readNullableInt(), in.readBoolean(), in.readDate());
+    }
+
+    @Override
+    protected Integer getKey(BTOApplication app) {
+        return app.getApplicationId();
+    }
+}
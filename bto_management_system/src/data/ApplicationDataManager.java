@@ -21,6 +21,11 @@ public class ApplicationDataManager extends AbstractCsvDataManager<Integer, BTOA
         return "AppID,ApplicantNRIC,ProjectID,Status,AppliedFlatType,BookedFlatType,BookingID,WithdrawalRequested,SubmissionDate";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(BTOApplicationStatus.class, FlatType.class) + ",true,false";
+    }
+
     @Override
     protected BTOApplication parseCsvRow(String[] values) {
          // Expected number of columns based on header
@@ -132,6 +137,40 @@ public class ApplicationDataManager extends AbstractCsvDataManager<Integer, BTOA
                                   bookedFlatType, bookingId, withdrawalRequested, submissionDate);
     }
 
+    // Cached so the mapped-file fast path does not clone the arrays per row
+    private static final BTOApplicationStatus[] STATUSES = BTOApplicationStatus.values();
+    private static final FlatType[] FLAT_TYPES = FlatType.values();
+
+    /**
+     * Fast path for the (largest) applications table: numeric, enum and boolean columns are
+     * parsed in place from the mapped file. Any row that is not clean and consistent is handed
+     * to {@link #parseCsvRow(String[])}, which produces the detailed warnings.
+     */
+    @Override
+    protected BTOApplication parseCsvFields(CsvFields fields) {
+        if (fields.size() < 9) return parseCsvRow(fields.toStringArray());
+
+        int appId = fields.getInt(0, -1);
+        int projectId = fields.getInt(2, -1);
+        BTOApplicationStatus status = fields.getEnum(3, STATUSES);
+        FlatType appliedFlatType = fields.getEnum(4, FLAT_TYPES);
+        FlatType bookedFlatType = fields.getEnum(5, FLAT_TYPES);
+        Integer bookingId = fields.isBlank(6) ? null : fields.getInt(6, -1);
+        boolean clean = appId > 0 && projectId > 0 && status != null && appliedFlatType != null
+                && (fields.isBlank(5) || bookedFlatType != null)
+                && (bookingId == null || bookingId > 0)
+                && ((status == BTOApplicationStatus.BOOKED) == (bookedFlatType != null && bookingId != null))
+                && (status == BTOApplicationStatus.BOOKED || (bookedFlatType == null && bookingId == null));
+        if (!clean) return parseCsvRow(fields.toStringArray());
+
+        String applicantNric = fields.getString(1);
+        Date submissionDate = DateUtils.parseDate(fields.getString(8));
+        if (applicantNric.isEmpty() || submissionDate == null) return parseCsvRow(fields.toStringArray());
+
+        return new BTOApplication(appId, applicantNric, projectId, status, appliedFlatType,
+                                  bookedFlatType, bookingId, fields.getBoolean(7, false), submissionDate);
+    }
+
     /**
      * Formats a BTOApplication object into a CSV string row.
      * @param app The BTOApplication object to format.
@@ -139,7 +178,7 @@ public class ApplicationDataManager extends AbstractCsvDataManager<Integer, BTOA
      */
     @Override
     protected String formatCsvRow(BTOApplication app) {
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 String.valueOf(app.getApplicationId()),
                 app.getApplicantNric(),
                 String.valueOf(app.getProjectId()),
@@ -0,0 +1,15 @@
+package data;
+
+import models.BTOApplication;
+
+/**
+ * DataManager implementation for BTOApplication using the embedded SQL database.
+ */
+public class ApplicationJdbcDataManager extends AbstractJdbcDataManager<Integer, BTOApplication> {
+
+    public ApplicationJdbcDataManager() {
+        super("bto_applications", new ApplicationDataManager());
+        indexColumn("applicant_nric", VARCHAR, BTOApplication::getApplicantNric);
+        indexColumn("project_id", INTEGER, BTOApplication::getProjectId);
+    }
+}
@@ -0,0 +1,97 @@
+package data;
+
+import utils.TextFormatUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe file replacement: content is written to a sibling temp file, forced to disk,
+ * and then atomically renamed over the target. Readers see either the old or the new file, never a partial one.
+ */
+public final class AtomicFiles {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Writes the body of a text file. */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    /** Writes the body of a binary file. */
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {}
+
+    /**
+     * Atomically replaces (or creates) the target file with the content produced by the given writer.
+     * @param target The file to replace.
+     * @param content Callback that writes the complete new content.
+     * @throws IOException If writing fails; the existing target is then left untouched.
+     */
+    public static void write(Path target, ContentWriter content) throws IOException {
+        writeStream(target, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.write(writer);
+            writer.flush(); // not closed here: closing would close the channel before force()
+        });
+    }
+
+    /**
+     * Binary counterpart of {@link #write(Path, ContentWriter)}.
+     * @param target The file to replace.
+     * @param content Callback that writes the complete new content; the stream is buffered and flushed afterwards.
+     * @throws IOException If writing fails; the existing target is then left untouched.
+     */
+    public static void writeStream(Path target, StreamWriter content) throws IOException {
+        Path parentDir = target.toAbsolutePath().getParent();
+        if (parentDir != null) {
+            Files.createDirectories(parentDir);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            content.write(out);
+            out.flush(); // not closed here: closing would close the channel before force()
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            System.err.println(TextFormatUtil.warning("Atomic rename not supported for " + target + "; falling back to a plain replace."));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(parentDir);
+    }
+
+    /** Forces the directory entry (the rename) to disk where the platform allows it. */
+    private static void syncDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Not supported on every platform (e.g. Windows); the file contents are already durable.
+        }
+    }
+}
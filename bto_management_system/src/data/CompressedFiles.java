@@ -0,0 +1,247 @@
+package data;
+
+import utils.FilePathConstants;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Compressed variant of the data files: a short header naming a preset dictionary, followed by a zlib
+ * stream compressed against that dictionary. A table's dictionary is built from its vocabulary (header line,
+ * enum names), which small files and per-project shards otherwise spend most of their bytes on.
+ * Dictionaries are stored once in {@link FilePathConstants#DICTIONARY_DIR}, named by their Adler-32 ID, and never
+ * overwritten, so every compressed file stays readable after the vocabulary changes.
+ * Content is deflated and inflated as a stream; it is never held in memory as a whole.
+ * Loaders recognise a compressed file by its magic number, so compression can be switched per table at any time.
+ */
+public final class CompressedFiles {
+
+    private static final byte[] MAGIC = { (byte) 0x89, 'B', 'T', 'Z' }; // not valid text, so never mistaken for a CSV header
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 4 + 4; // magic, version, dictionary ID
+    private static final String DICTIONARY_EXTENSION = ".dict";
+
+    // Dictionaries by ID, as read from or written to the dictionary directory
+    private static final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    private CompressedFiles() {}
+
+    /** Whether the file starts with the compressed-file magic number. */
+    public static boolean isCompressed(File file) throws IOException {
+        if (file.length() < MAGIC.length) return false;
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = in.readNBytes(head, 0, head.length);
+            return read == head.length && Arrays.equals(head, MAGIC);
+        }
+    }
+
+    /**
+     * Builds a preset dictionary from a table's vocabulary. Deflate matches are cheapest near the end
+     * of the dictionary, so the words should be given with the most frequent (e.g. enum names) last.
+     * @param vocabulary Comma-separated words; duplicates are dropped.
+     */
+    public static byte[] buildDictionary(String vocabulary) {
+        Set<String> words = new LinkedHashSet<>(Arrays.asList(vocabulary.split(",")));
+        return String.join(",", words).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Atomically replaces the target with a compressed file, streaming the content through a Deflater.
+     * Reports the compression ratio and throughput.
+     * @param dictionary Preset dictionary; stored in the dictionary directory if new, and referenced by ID from the file header.
+     * @param content Callback that writes the uncompressed content.
+     */
+    public static void write(Path target, byte[] dictionary, AtomicFiles.StreamWriter content) throws IOException {
+        long startNanos = System.nanoTime();
+        int dictionaryId = storeDictionary(dictionary);
+        long[] sizes = new long[2];
+        AtomicFiles.writeStream(target, out -> {
+            DataOutputStream header = new DataOutputStream(out);
+            header.write(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeInt(dictionaryId);
+            header.flush();
+
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try {
+                deflater.setDictionary(dictionary);
+                DeflaterOutputStream deflated = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, 8192);
+                content.write(deflated);
+                deflated.finish();
+                sizes[0] = deflater.getBytesRead();
+                sizes[1] = HEADER_BYTES + deflater.getBytesWritten();
+            } finally {
+                deflater.end();
+            }
+        });
+        System.out.println("Compressed " + target + ": " + describe(sizes[0], sizes[1], System.nanoTime() - startNanos));
+    }
+
+    /** Opens a compressed file for streaming decompression. */
+    public static InflatingInputStream open(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] head = new byte[MAGIC.length];
+            in.readFully(head);
+            if (!Arrays.equals(head, MAGIC)) throw new IOException("Not a compressed data file: " + file);
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported compressed file version " + version + " in " + file);
+            byte[] dictionary = loadDictionary(in.readInt());
+            return new InflatingInputStream(in, dictionary, file.length());
+        } catch (IOException e) {
+            in.close();
+            throw (e instanceof EOFException) ? new IOException("Compressed file is truncated: " + file, e) : e;
+        }
+    }
+
+    /** Makes sure the dictionary is on disk and returns its ID. */
+    private static int storeDictionary(byte[] dictionary) throws IOException {
+        int id = dictionaryId(dictionary);
+        if (dictionaries.containsKey(id)) return id;
+        Path path = dictionaryPath(id);
+        if (!Files.exists(path)) {
+            AtomicFiles.writeStream(path, out -> out.write(dictionary));
+        } else if (!Arrays.equals(Files.readAllBytes(path), dictionary)) {
+            throw new IOException("Dictionary ID collision for " + path + "; cannot compress with this vocabulary");
+        }
+        dictionaries.put(id, dictionary);
+        return id;
+    }
+
+    private static byte[] loadDictionary(int id) throws IOException {
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary != null) return dictionary;
+        Path path = dictionaryPath(id);
+        if (!Files.exists(path)) {
+            throw new IOException("Compression dictionary " + path + " is missing");
+        }
+        dictionary = Files.readAllBytes(path);
+        if (dictionaryId(dictionary) != id) {
+            throw new IOException("Compression dictionary " + path + " is corrupt");
+        }
+        dictionaries.put(id, dictionary);
+        return dictionary;
+    }
+
+    /** The zlib dictionary ID: the Adler-32 checksum of the dictionary, also recorded in the zlib stream header. */
+    private static int dictionaryId(byte[] dictionary) {
+        Adler32 checksum = new Adler32();
+        checksum.update(dictionary);
+        return (int) checksum.getValue();
+    }
+
+    private static Path dictionaryPath(int id) {
+        return Paths.get(FilePathConstants.DICTIONARY_DIR, String.format("%08x", id) + DICTIONARY_EXTENSION);
+    }
+
+    /** e.g. "52310 -> 9120 bytes (5.7:1) in 4.2 ms, 11.9 MB/s" (throughput of uncompressed data). */
+    public static String describe(long uncompressedBytes, long compressedBytes, long elapsedNanos) {
+        double millis = elapsedNanos / 1_000_000.0;
+        double ratio = (compressedBytes == 0) ? 0 : (double) uncompressedBytes / compressedBytes;
+        double megabytesPerSecond = (elapsedNanos == 0) ? 0 : uncompressedBytes / (1024.0 * 1024.0) / (elapsedNanos / 1_000_000_000.0);
+        return String.format("%d -> %d bytes (%.1f:1) in %.1f ms, %.1f MB/s", uncompressedBytes, compressedBytes, ratio, millis, megabytesPerSecond);
+    }
+
+    /**
+     * Inflates the body of a compressed file, supplying the preset dictionary when the stream asks for it.
+     * The zlib checksum is verified at the end of the stream.
+     */
+    public static final class InflatingInputStream extends InputStream {
+        private final InputStream in;
+        private final byte[] dictionary;
+        private final long fileBytes;
+        private final Inflater inflater = new Inflater();
+        private final byte[] input = new byte[8192];
+        private final byte[] single = new byte[1];
+
+        private InflatingInputStream(InputStream in, byte[] dictionary, long fileBytes) {
+            this.in = in;
+            this.dictionary = dictionary;
+            this.fileBytes = fileBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return (read(single, 0, 1) < 0) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            try {
+                while (true) {
+                    int inflated = inflater.inflate(buffer, offset, length);
+                    if (inflated > 0) return inflated;
+                    if (inflater.finished()) return -1;
+                    if (inflater.needsDictionary()) {
+                        if (inflater.getAdler() != dictionaryId(dictionary)) throw new ZipException("Preset dictionary does not match the compressed data");
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        int read = in.read(input);
+                        if (read < 0) throw new EOFException("Compressed data ends unexpectedly");
+                        inflater.setInput(input, 0, read);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Corrupt compressed data: " + e.getMessage());
+            }
+        }
+
+        /** Uncompressed bytes produced so far. */
+        public long uncompressedBytes() {
+            return inflater.getBytesWritten();
+        }
+
+        /** Size of the compressed file. */
+        public long fileBytes() {
+            return fileBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+
+    /** Lets the deflater finish its stream without closing the file underneath (AtomicFiles still has to force it). */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
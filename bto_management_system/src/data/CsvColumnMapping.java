@@ -0,0 +1,77 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the columns of one CSV file onto the current columns of its table. Built once per file from the
+ * file's header and schema version; each row is then rearranged by position, without looking at names again.
+ */
+final class CsvColumnMapping {
+
+    final int fileVersion;
+    // File column holding each current column, or -1 if the file lacks it (the value is then empty)
+    private final int[] source;
+    // Whether rows are already in the current layout and version, so they can be parsed as they are
+    final boolean identity;
+    final List<String> missingColumns = new ArrayList<>();
+    final List<String> droppedColumns = new ArrayList<>();
+
+    /**
+     * @param currentColumns Header names of the current version.
+     * @param fileColumns Header names of the file, without the checksum column.
+     * @param fileVersion Schema version of the file.
+     * @param currentVersion Schema version of the table.
+     * @param renames Old column names (lower case) mapped to their current names.
+     * @param byName Whether to match columns by name; otherwise they are taken in file order.
+     */
+    CsvColumnMapping(String[] currentColumns, String[] fileColumns, int fileVersion, int currentVersion,
+                     Map<String, String> renames, boolean byName) {
+        this.fileVersion = fileVersion;
+        this.source = new int[currentColumns.length];
+        boolean inOrder = fileColumns.length == currentColumns.length;
+        for (int i = 0; i < currentColumns.length; i++) {
+            source[i] = byName ? indexOf(currentColumns[i], fileColumns, renames) : (i < fileColumns.length ? i : -1);
+            if (source[i] < 0) missingColumns.add(currentColumns[i]);
+            if (source[i] != i) inOrder = false;
+        }
+        for (int j = 0; j < fileColumns.length; j++) {
+            if (!contains(source, j)) droppedColumns.add(fileColumns[j]);
+        }
+        this.identity = inOrder && fileVersion == currentVersion;
+    }
+
+    /** Whether every current column appears by name in the file's header (ignoring case and renames). */
+    static boolean coversByName(String[] currentColumns, String[] fileColumns, Map<String, String> renames) {
+        for (String column : currentColumns) {
+            if (indexOf(column, fileColumns, renames) < 0) return false;
+        }
+        return true;
+    }
+
+    /** Rearranges a file row into the current column order. */
+    String[] map(String[] fileValues) {
+        String[] values = new String[source.length];
+        for (int i = 0; i < source.length; i++) {
+            int column = source[i];
+            values[i] = (column >= 0 && column < fileValues.length) ? fileValues[column] : "";
+        }
+        return values;
+    }
+
+    private static int indexOf(String column, String[] fileColumns, Map<String, String> renames) {
+        for (int j = 0; j < fileColumns.length; j++) {
+            String name = fileColumns[j].trim();
+            if (name.equalsIgnoreCase(column) || column.equalsIgnoreCase(renames.get(name.toLowerCase()))) return j;
+        }
+        return -1;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,268 @@
+package data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reusable view over the fields of one CSV record inside a (memory-mapped) byte buffer.
+ * Fields are kept as offset/length pairs into the buffer; nothing is decoded into a String
+ * unless a caller asks for it, so numeric and enum columns can be parsed without allocation.
+ * Quoting follows the same lenient RFC 4180 rules as {@link CsvTokenizer}.
+ */
+public final class CsvFields {
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+
+    private final ByteBuffer buffer;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16]; // quoted field containing "" sequences
+    private int count;
+    private int lineStart;
+    private int lineEnd;
+    private int lineCount;
+    private final CRC32 crc = new CRC32(); // reused for row checksums
+
+    public CsvFields(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Points the view at the record starting at the given offset and locates its fields.
+     * A quoted field may span several lines. Like {@link CsvTokenizer}, a record ends at {@code \n},
+     * {@code \r\n} or a lone {@code \r}, and each of them counts as one line.
+     * @return Offset just past the record's line terminator.
+     */
+    int scan(int position, int limit) {
+        lineStart = position;
+        lineCount = 1;
+        count = 0;
+        int i = position;
+        while (true) {
+            if (i < limit && buffer.get(i) == QUOTE) {
+                int contentStart = ++i;
+                boolean hasEscapes = false;
+                while (i < limit) {
+                    byte b = buffer.get(i);
+                    if (b == QUOTE) {
+                        if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                            hasEscapes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (b == '\n' || (b == '\r' && !isCrLf(i, limit))) lineCount++;
+                    i++;
+                }
+                addField(contentStart, i, hasEscapes);
+                if (i < limit) i++; // closing quote
+                while (i < limit && !endsField(buffer.get(i))) i++; // ignore anything before the next delimiter
+            } else {
+                int fieldStart = i;
+                while (i < limit && !endsField(buffer.get(i))) i++;
+                addField(fieldStart, i, false);
+            }
+            if (i < limit && buffer.get(i) == DELIMITER) {
+                i++;
+                continue;
+            }
+            lineEnd = i;
+            if (i < limit && isCrLf(i, limit)) i++;
+            return (i < limit) ? i + 1 : limit;
+        }
+    }
+
+    private static boolean endsField(byte b) {
+        return b == DELIMITER || b == '\n' || b == '\r';
+    }
+
+    /** Whether the byte at the offset starts a {@code \r\n} pair. */
+    private boolean isCrLf(int i, int limit) {
+        return buffer.get(i) == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n';
+    }
+
+    /** Number of physical lines the current record spans. */
+    int lineCount() {
+        return lineCount;
+    }
+
+    /** Number of fields on the line. */
+    public int size() {
+        return count;
+    }
+
+    /** Buffer offset of the first byte of a field. */
+    public int offset(int index) {
+        return starts[index];
+    }
+
+    /** Length of a field in bytes, untrimmed. */
+    public int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    /** Whether a field is empty or only whitespace. */
+    public boolean isBlank(int index) {
+        return trimmedStart(index) >= trimmedEnd(index);
+    }
+
+    /** Whether the record is an empty or whitespace-only line. */
+    boolean isBlankLine() {
+        return count == 1 && isBlank(0);
+    }
+
+    /** Decodes a field as a trimmed, unquoted UTF-8 string. */
+    public String getString(int index) {
+        int start = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (start >= end) return "";
+        String value = decode(start, end);
+        return escaped[index] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Parses a field as a decimal integer directly from the buffer.
+     * @return The value, or defaultValue if the field is blank or not a valid integer.
+     */
+    public int getInt(int index, int defaultValue) {
+        int start = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (start >= end) return defaultValue;
+        boolean negative = false;
+        if (buffer.get(start) == '-' || buffer.get(start) == '+') {
+            negative = buffer.get(start) == '-';
+            if (++start >= end) return defaultValue;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) return defaultValue;
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) return defaultValue;
+        }
+        value = negative ? -value : value;
+        return (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) ? defaultValue : (int) value;
+    }
+
+    /** Parses a field as a boolean ("true", case-insensitive); blank fields give defaultValue. */
+    public boolean getBoolean(int index, boolean defaultValue) {
+        if (isBlank(index)) return defaultValue;
+        return matchesIgnoreCase(index, "true");
+    }
+
+    /**
+     * Finds the enum constant whose name matches a field, ignoring case.
+     * @param constants The candidate constants, e.g. FlatType.values() (cached by the caller).
+     * @return The matching constant, or null if the field is blank or matches none.
+     */
+    public <E extends Enum<E>> E getEnum(int index, E[] constants) {
+        if (isBlank(index)) return null;
+        for (E constant : constants) {
+            if (matchesIgnoreCase(index, constant.name())) return constant;
+        }
+        return null;
+    }
+
+    /** Decodes every field as an unquoted, untrimmed string, for the {@code parseCsvRow(String[])} fallback. */
+    public String[] toStringArray() {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            String value = decode(starts[i], ends[i]);
+            values[i] = escaped[i] ? value.replace("\"\"", "\"") : value;
+        }
+        return values;
+    }
+
+    /** Whether a field equals an ASCII string, ignoring case, without decoding it. */
+    boolean fieldEquals(int index, String expected) {
+        return matchesIgnoreCase(index, expected);
+    }
+
+    /** Parses a field of at most 8 hex digits (e.g. a CRC32) directly from the buffer; -1 if blank or invalid. */
+    long getHex(int index) {
+        int start = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (start >= end || end - start > 8) return -1;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(buffer.get(i), 16);
+            if (digit < 0) return -1;
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /** CRC32 of the record's bytes in front of its last field and that field's delimiter, e.g. a trailing checksum column. */
+    long checksumBeforeLastField() {
+        int fieldStart = starts[count - 1];
+        if (fieldStart > lineStart && buffer.get(fieldStart - 1) == QUOTE) fieldStart--; // the opening quote of a quoted field
+        int end = (count > 1) ? fieldStart - 1 : lineStart;
+        ByteBuffer range = buffer.duplicate();
+        range.limit(end).position(lineStart);
+        crc.reset();
+        crc.update(range);
+        return crc.getValue();
+    }
+
+    /** Hides the last field from the parser, e.g. once a trailing checksum column has been verified. */
+    void dropLastField() {
+        count--;
+    }
+
+    /** Decodes the whole record as it appears in the file, for error messages. */
+    public String line() {
+        return decode(lineStart, lineEnd);
+    }
+
+    // Helper Methods
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            escaped = Arrays.copyOf(escaped, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        escaped[count] = hasEscapes;
+        count++;
+    }
+
+    /** Compares a trimmed field with an ASCII string, ignoring case. */
+    private boolean matchesIgnoreCase(int index, String expected) {
+        int start = trimmedStart(index);
+        int end = trimmedEnd(index);
+        if (end - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            int actual = buffer.get(start + i) & 0xFF;
+            if (actual >= 0x80 || Character.toUpperCase((char) actual) != Character.toUpperCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimmedStart(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+        return start;
+    }
+
+    private int trimmedEnd(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+        return end;
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,215 @@
+package data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 CSV tokenizer.
+ * Handles quoted fields, escaped quotes ("") and line breaks inside quoted fields.
+ * A record ends at \n, \r\n or a lone \r, the same rule {@link CsvFields} applies to mapped files.
+ * The field buffer is reused from record to record; Strings are only created for fields a caller reads.
+ * The record's text as it appears in the input is kept as well, so rows can be verified and quarantined
+ * byte for byte like {@link CsvFields} does for mapped files.
+ * Parsing is lenient: a quote in the middle of an unquoted field is kept as a literal character,
+ * characters between a closing quote and the next delimiter are ignored, and an unterminated
+ * quoted field runs to the end of the input.
+ */
+public final class CsvTokenizer {
+
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private final Reader reader;
+    private final char[] input = new char[8192];
+    private int inputPos = 0;
+    private int inputLen = 0;
+
+    // Unquoted characters of every field in the current record, back to back
+    private char[] chars = new char[256];
+    private int charCount = 0;
+    private int[] fieldEnds = new int[16];
+    private int fieldCount = 0;
+
+    // The current record's characters as read, without its line terminator, and where its last delimiter is
+    private char[] raw = new char[256];
+    private int rawCount = 0;
+    private int lastDelimiter = 0;
+
+    private int linesRead = 0;
+    private int recordLine = 0;
+
+    public CsvTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Parses a single CSV record held in a String (e.g. a journaled row).
+     * @return The unquoted field values.
+     */
+    public static String[] parseLine(String row) {
+        try {
+            CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(row));
+            return tokenizer.nextRecord() ? tokenizer.toArray() : new String[] { "" };
+        } catch (IOException e) {
+            throw new IllegalStateException("StringReader failed", e); // cannot happen
+        }
+    }
+
+    /** Quotes a value for writing if it contains a delimiter, a quote or a line break. */
+    public static String quote(String value) {
+        if (value == null) return "";
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == DELIMITER || c == QUOTE || c == '\n' || c == '\r') {
+                return QUOTE + value.replace("\"", "\"\"") + QUOTE;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Advances to the next record.
+     * @return false at the end of the input.
+     */
+    public boolean nextRecord() throws IOException {
+        fieldCount = 0;
+        charCount = 0;
+        rawCount = 0;
+        lastDelimiter = 0;
+        int c = read();
+        if (c < 0) return false;
+        recordLine = linesRead + 1;
+
+        boolean atFieldStart = true;
+        boolean inQuotes = false;
+        boolean afterQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c < 0) { // unterminated quoted field
+                    endField();
+                    return true;
+                }
+                if (c == QUOTE) {
+                    if (peek() == QUOTE) {
+                        read();
+                        append(QUOTE);
+                    } else {
+                        inQuotes = false;
+                        afterQuotes = true;
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) linesRead++; // \n, \r\n and a lone \r are one line each
+                    append((char) c);
+                }
+            } else if (c == DELIMITER) {
+                lastDelimiter = rawCount - 1;
+                endField();
+                atFieldStart = true;
+                afterQuotes = false;
+            } else if (c == '\n' || c == '\r' || c < 0) {
+                if (c >= 0) rawCount--; // the terminator is not part of the record
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                    rawCount--;
+                }
+                if (c >= 0) linesRead++;
+                endField();
+                return true;
+            } else if (c == QUOTE && atFieldStart) {
+                inQuotes = true;
+                atFieldStart = false;
+            } else if (!afterQuotes) {
+                append((char) c);
+                atFieldStart = false;
+            }
+            c = read();
+        }
+    }
+
+    /** Physical line number (1-based) on which the current record starts. */
+    public int getLineNumber() {
+        return recordLine;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** Value of one field of the current record, unquoted and untrimmed. */
+    public String getField(int index) {
+        int start = (index == 0) ? 0 : fieldEnds[index - 1];
+        return new String(chars, start, fieldEnds[index] - start);
+    }
+
+    /** Whether the current record is an empty or whitespace-only line. */
+    public boolean isBlankRecord() {
+        if (fieldCount != 1) return false;
+        for (int i = 0; i < charCount; i++) {
+            if (chars[i] > ' ') return false;
+        }
+        return true;
+    }
+
+    /** The current record as it appears in the input (quotes included), without its line terminator. */
+    public String getRawRecord() {
+        return new String(raw, 0, rawCount);
+    }
+
+    /**
+     * The current record's text in front of its last field and that field's delimiter, as it appears in the
+     * input; e.g. what a trailing checksum column covers (see {@link CsvFields#checksumBeforeLastField()}).
+     */
+    public String getRawBeforeLastField() {
+        return new String(raw, 0, (fieldCount > 1) ? lastDelimiter : 0);
+    }
+
+    /** All fields of the current record, for {@code parseCsvRow(String[])}. */
+    public String[] toArray() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = getField(i);
+        }
+        return values;
+    }
+
+    // Helper Methods
+
+    private void append(char c) {
+        if (charCount == chars.length) {
+            chars = Arrays.copyOf(chars, charCount * 2);
+        }
+        chars[charCount++] = c;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldEnds[fieldCount++] = charCount;
+    }
+
+    private int read() throws IOException {
+        if (inputPos == inputLen && !fill()) return -1;
+        char c = input[inputPos++];
+        if (rawCount == raw.length) {
+            raw = Arrays.copyOf(raw, rawCount * 2);
+        }
+        raw[rawCount++] = c;
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (inputPos == inputLen && !fill()) return -1;
+        return input[inputPos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(input, 0, input.length);
+        if (n <= 0) return false;
+        inputPos = 0;
+        inputLen = n;
+        return true;
+    }
+}
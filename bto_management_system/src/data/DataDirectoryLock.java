@@ -0,0 +1,122 @@
+package data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File locks that let several processes share one data directory: one writer and any number of read-only
+ * readers (e.g. a reporting JVM next to the front desk).
+ * <p>
+ * The lock file has two one-byte regions. The writer holds the first exclusively for as long as it runs,
+ * so a second writer fails to start. The second is taken only briefly: exclusively by the writer while it
+ * replaces data files and clears the journal, and shared by readers while they read them, so a reader never
+ * sees files and a journal from different checkpoints. Readers never block the writer for longer than one read.
+ */
+public final class DataDirectoryLock implements Closeable {
+
+    private static final long WRITER_REGION = 0;
+    private static final long UPDATE_REGION = 1;
+
+    private final FileChannel channel;
+    private final boolean writer;
+    private FileLock writerLock;
+    // File locks are held per process, so threads of this process queue here for the update region
+    private final ReentrantLock updating = new ReentrantLock();
+    private FileLock updateLock;
+
+    /** Work done while holding the update region. */
+    public interface Update<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private DataDirectoryLock(String lockPath, boolean writer) throws IOException {
+        File file = new File(lockPath);
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writer = writer;
+    }
+
+    /**
+     * Becomes the data directory's only writer.
+     * @throws IOException If another process (or this one) is already writing to it.
+     */
+    public static DataDirectoryLock acquireWriter(String lockPath) throws IOException {
+        DataDirectoryLock lock = new DataDirectoryLock(lockPath, true);
+        try {
+            lock.writerLock = lock.channel.tryLock(WRITER_REGION, 1, false);
+        } catch (OverlappingFileLockException e) {
+            lock.writerLock = null; // held by this JVM already
+        }
+        if (lock.writerLock == null) {
+            lock.close();
+            throw new IOException("The data directory is in use by another process (" + lockPath + " is locked). "
+                    + "Start this one with -Dbto.readOnly=true to open the data read-only.");
+        }
+        return lock;
+    }
+
+    /** Opens the lock as a read-only reader; never fails because of a running writer. */
+    public static DataDirectoryLock openReader(String lockPath) throws IOException {
+        return new DataDirectoryLock(lockPath, false);
+    }
+
+    /** Whether a process holds the writer lock; only meaningful from a reader. */
+    public boolean isWriterRunning() throws IOException {
+        try (FileLock probe = channel.tryLock(WRITER_REGION, 1, true)) {
+            return probe == null;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Runs the work holding the update region (exclusively in the writer, shared in a reader), waiting for
+     * the other side to finish first. Reentrant; other threads of this process wait until the work is done.
+     */
+    public <T, E extends Exception> T whileUpdating(Update<T, E> work) throws IOException, E {
+        lockUpdates();
+        try {
+            return work.run();
+        } finally {
+            unlockUpdates();
+        }
+    }
+
+    private void lockUpdates() throws IOException {
+        updating.lock();
+        try {
+            if (updating.getHoldCount() == 1) updateLock = channel.lock(UPDATE_REGION, 1, !writer);
+        } catch (IOException | RuntimeException e) {
+            updating.unlock();
+            throw e;
+        }
+    }
+
+    private void unlockUpdates() throws IOException {
+        try {
+            if (updating.getHoldCount() == 1 && updateLock != null) {
+                updateLock.release();
+                updateLock = null;
+            }
+        } finally {
+            updating.unlock();
+        }
+    }
+
+    public boolean isWriter() { return writer; }
+
+    @Override
+    public void close() throws IOException {
+        if (writerLock != null && writerLock.isValid()) writerLock.release();
+        channel.close(); // releases any other lock of this channel
+    }
+}
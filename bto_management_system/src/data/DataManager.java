@@ -2,6 +2,7 @@ package data;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface for data managers handling loading and saving of data.
@@ -27,4 +28,29 @@ public interface DataManager<K, V> {
      * @throws IOException If an error occurs during file writing.
      */
     void save(String filePath, Map<K, V> dataMap) throws IOException;
+
+    /**
+     * Loads the file on an I/O thread (see {@link PersistenceExecutor}).
+     *
+     * @param filePath The path to the data file.
+     * @return A future completed with the loaded map, or exceptionally with the IOException.
+     */
+    default CompletableFuture<Map<K, V>> loadAsync(String filePath) {
+        return PersistenceExecutor.read(() -> load(filePath));
+    }
+
+    /**
+     * Saves the map on an I/O thread, blocking first while the maximum number of writes is in flight
+     * (see {@link PersistenceExecutor#write(PersistenceExecutor.IoTask)}). The map must not change until the future completes.
+     *
+     * @param filePath The path to the data file.
+     * @param dataMap The map containing the data to save.
+     * @return A future completed once the file is written, or exceptionally with the IOException.
+     */
+    default CompletableFuture<Void> saveAsync(String filePath, Map<K, V> dataMap) {
+        return PersistenceExecutor.write(() -> {
+            save(filePath, dataMap);
+            return null;
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package data;
+
+import models.Enquiry;
+import enums.EnquiryStatus;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for Enquiry using binary snapshot files.
+ */
+public class EnquiryBinaryDataManager extends AbstractBinaryDataManager<Integer, Enquiry> {
+
+    @Override
+    protected String getTableName() {
+        return "enquiries";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, Enquiry enquiry) throws IOException {
+        out.writeInt(enquiry.getEnquiryId());
+        out.writeReference(enquiry.getSubmitterNric());
+        out.writeInt(enquiry.getProjectId());
+        out.writeString(enquiry.getContent());
+        out.writeStringList(enquiry.getReplies());
+        out.writeEnum(enquiry.getStatus());
+        out.writeDate(enquiry.getSubmissionDate());
+        out.writeDate(enquiry.getLastUpdateDate());
+    }
+
+    @Override
+    protected Enquiry readRow(RowReader in) {
+        return new Enquiry(in.readInt(), in.readReference(), in.readInt(), in.readString(),
+                           in.readStringList(), in.readEnum(EnquiryStatus.class), in.readDate(), in.readDate());
+    }
+
+    @Override
+    protected Integer getKey(Enquiry enquiry) {
+        return enquiry.getEnquiryId();
+    }
+}
@@ -17,6 +17,11 @@ public class EnquiryDataManager extends AbstractCsvDataManager<Integer, Enquiry>
         return "EnquiryID,SubmitterNRIC,ProjectID,Status,SubmissionDate,LastUpdateDate,Content,Replies(" + LIST_DELIMITER + " separated)";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(EnquiryStatus.class);
+    }
+
     @Override
     protected Enquiry parseCsvRow(String[] values) {
         if (values.length < 8) {
@@ -60,17 +65,14 @@ public class EnquiryDataManager extends AbstractCsvDataManager<Integer, Enquiry>
 
     @Override
     protected String formatCsvRow(Enquiry enquiry) {
-        // Basic CSV quoting for content which might contain commas
-        String quotedContent = "\"" + enquiry.getContent().replace("\"", "\"\"") + "\"";
-
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 String.valueOf(enquiry.getEnquiryId()),
                 enquiry.getSubmitterNric(),
                 String.valueOf(enquiry.getProjectId()),
                 enquiry.getStatus().name(),
                 DateUtils.formatDate(enquiry.getSubmissionDate()),
                 DateUtils.formatDate(enquiry.getLastUpdateDate()),
-                quotedContent,
+                enquiry.getContent(), // Quoted by joinCsvFields if it contains commas, quotes or line breaks
                 // *** Use updated LIST_DELIMITER for formatting replies ***
                 formatStringList(enquiry.getReplies())
         );
@@ -0,0 +1,15 @@
+package data;
+
+import models.Enquiry;
+
+/**
+ * DataManager implementation for Enquiry using the embedded SQL database.
+ */
+public class EnquiryJdbcDataManager extends AbstractJdbcDataManager<Integer, Enquiry> {
+
+    public EnquiryJdbcDataManager() {
+        super("bto_enquiries", new EnquiryDataManager());
+        indexColumn("applicant_nric", VARCHAR, Enquiry::getSubmitterNric);
+        indexColumn("project_id", INTEGER, Enquiry::getProjectId);
+    }
+}
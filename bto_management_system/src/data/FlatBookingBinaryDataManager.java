@@ -0,0 +1,39 @@
+package data;
+
+import models.FlatBooking;
+import enums.FlatType;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for FlatBooking using binary snapshot files.
+ */
+public class FlatBookingBinaryDataManager extends AbstractBinaryDataManager<Integer, FlatBooking> {
+
+    @Override
+    protected String getTableName() {
+        return "flat_bookings";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, FlatBooking booking) throws IOException {
+        out.writeInt(booking.getBookingId());
+        out.writeInt(booking.getApplicationId());
+        out.writeReference(booking.getApplicantNric());
+        out.writeInt(booking.getProjectId());
+        out.writeEnum(booking.getBookedFlatType());
+        out.writeReference(booking.getBookingOfficerNric());
+        out.writeDate(booking.getBookingDate());
+    }
+
+    @Override
+    protected FlatBooking readRow(RowReader in) {
+        return new FlatBooking(in.readInt(), in.readInt(), in.readReference(), in.readInt(),
+                               in.readEnum(FlatType.class), in.readReference(), in.readDate());
+    }
+
+    @Override
+    protected Integer getKey(FlatBooking booking) {
+        return booking.getBookingId();
+    }
+}
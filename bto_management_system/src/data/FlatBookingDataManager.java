@@ -15,6 +15,11 @@ public class FlatBookingDataManager extends AbstractCsvDataManager<Integer, Flat
         return "BookingID,AppID,ApplicantNRIC,ProjectID,BookedFlatType,OfficerNRIC,BookingDate";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(FlatType.class);
+    }
+
     @Override
     protected FlatBooking parseCsvRow(String[] values) {
         if (values.length < 7) {
@@ -41,7 +46,7 @@ public class FlatBookingDataManager extends AbstractCsvDataManager<Integer, Flat
 
     @Override
     protected String formatCsvRow(FlatBooking booking) {
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 String.valueOf(booking.getBookingId()),
                 String.valueOf(booking.getApplicationId()),
                 booking.getApplicantNric(),
@@ -0,0 +1,16 @@
+package data;
+
+import models.FlatBooking;
+
+/**
+ * DataManager implementation for FlatBooking using the embedded SQL database.
+ */
+public class FlatBookingJdbcDataManager extends AbstractJdbcDataManager<Integer, FlatBooking> {
+
+    public FlatBookingJdbcDataManager() {
+        super("bto_flat_bookings", new FlatBookingDataManager());
+        indexColumn("applicant_nric", VARCHAR, FlatBooking::getApplicantNric);
+        indexColumn("project_id", INTEGER, FlatBooking::getProjectId);
+        indexColumn("officer_nric", VARCHAR, FlatBooking::getBookingOfficerNric);
+    }
+}
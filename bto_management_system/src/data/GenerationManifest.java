@@ -0,0 +1,115 @@
+package data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Manifest naming the physical data file of every table for the current generation.
+ * Tables are saved to new generation files first; flipping the manifest (an atomic rename)
+ * then switches all of them over together, so a crash mid-save never mixes generations.
+ */
+public class GenerationManifest {
+
+    private static final String GENERATION_KEY = "generation";
+
+    private final Path manifestPath;
+    private long generation = 0;
+    private final Map<String, String> files = new TreeMap<>(); // logical file name -> physical file name
+
+    public GenerationManifest(String manifestPath) {
+        this.manifestPath = Paths.get(manifestPath);
+    }
+
+    /**
+     * Reads the manifest from disk.
+     * @return true if a manifest exists, false if tables still use their plain file names.
+     */
+    public synchronized boolean load() throws IOException {
+        files.clear();
+        generation = 0;
+        if (!Files.exists(manifestPath)) return false;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(manifestPath.toFile())) {
+            properties.load(in);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (GENERATION_KEY.equals(name)) {
+                generation = Long.parseLong(properties.getProperty(name).trim());
+            } else {
+                files.put(name, properties.getProperty(name).trim());
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean exists() {
+        return Files.exists(manifestPath);
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /** Resolves a table's logical path (e.g. data/users.csv) to the file of the current generation. */
+    public synchronized String resolve(String logicalPath) {
+        String physical = files.get(fileName(logicalPath));
+        return (physical == null) ? logicalPath : siblingPath(logicalPath, physical);
+    }
+
+    /** Path of a table's file for the given generation, e.g. data/users.csv -> data/users.g7.csv */
+    public static String generationPath(String logicalPath, long generation) {
+        String name = fileName(logicalPath);
+        int dot = name.lastIndexOf('.');
+        String generationName = (dot > 0)
+                ? name.substring(0, dot) + ".g" + generation + name.substring(dot)
+                : name + ".g" + generation;
+        return siblingPath(logicalPath, generationName);
+    }
+
+    /**
+     * Atomically publishes a new generation.
+     * @param newGeneration The generation number being committed.
+     * @param physicalPaths Logical path -> physical path of every table in this generation.
+     */
+    public synchronized void commit(long newGeneration, Map<String, String> physicalPaths) throws IOException {
+        Map<String, String> newFiles = new TreeMap<>();
+        physicalPaths.forEach((logical, physical) -> newFiles.put(fileName(logical), fileName(physical)));
+
+        AtomicFiles.write(manifestPath, writer -> {
+            writer.write(GENERATION_KEY + "=" + newGeneration);
+            writer.write(System.lineSeparator());
+            for (Map.Entry<String, String> entry : newFiles.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.write(System.lineSeparator());
+            }
+        });
+        generation = newGeneration;
+        files.clear();
+        files.putAll(newFiles);
+    }
+
+    /** Removes the manifest so tables go back to their plain file names. */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(manifestPath);
+        files.clear();
+        generation = 0;
+    }
+
+    private static String fileName(String path) {
+        return new File(path).getName();
+    }
+
+    private static String siblingPath(String path, String siblingName) {
+        String parent = new File(path).getParent();
+        return (parent == null) ? siblingName : parent + File.separator + siblingName;
+    }
+}
@@ -0,0 +1,38 @@
+package data;
+
+import models.HDBOfficerRegistration;
+import enums.RequestStatus;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for HDBOfficerRegistration using binary snapshot files.
+ */
+public class HDBOfficerRegBinaryDataManager extends AbstractBinaryDataManager<Integer, HDBOfficerRegistration> {
+
+    @Override
+    protected String getTableName() {
+        return "officer_registrations";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, HDBOfficerRegistration reg) throws IOException {
+        out.writeInt(reg.getRegistrationId());
+        out.writeReference(reg.getOfficerNric());
+        out.writeInt(reg.getProjectId());
+        out.writeEnum(reg.getStatus());
+        out.writeDate(reg.getRequestDate());
+        out.writeDate(reg.getDecisionDate());
+    }
+
+    @Override
+    protected HDBOfficerRegistration readRow(RowReader in) {
+        return new HDBOfficerRegistration(in.readInt(), in.readReference(), in.readInt(),
+                                          in.readEnum(RequestStatus.class), in.readDate(), in.readDate());
+    }
+
+    @Override
+    protected Integer getKey(HDBOfficerRegistration reg) {
+        return reg.getRegistrationId();
+    }
+}
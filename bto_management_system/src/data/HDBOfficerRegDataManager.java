@@ -16,6 +16,11 @@ public class HDBOfficerRegDataManager extends AbstractCsvDataManager<Integer, HD
         return "RegID,OfficerNRIC,ProjectID,Status,RequestDate,DecisionDate";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(RequestStatus.class);
+    }
+
     @Override
     protected HDBOfficerRegistration parseCsvRow(String[] values) {
          // Check column count FIRST
@@ -60,7 +65,7 @@ public class HDBOfficerRegDataManager extends AbstractCsvDataManager<Integer, HD
 
     @Override
     protected String formatCsvRow(HDBOfficerRegistration reg) {
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 String.valueOf(reg.getRegistrationId()),
                 reg.getOfficerNric(),
                 String.valueOf(reg.getProjectId()),
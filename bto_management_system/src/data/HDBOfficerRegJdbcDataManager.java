@@ -0,0 +1,15 @@
+package data;
+
+import models.HDBOfficerRegistration;
+
+/**
+ * DataManager implementation for HDBOfficerRegistration using the embedded SQL database.
+ */
+public class HDBOfficerRegJdbcDataManager extends AbstractJdbcDataManager<Integer, HDBOfficerRegistration> {
+
+    public HDBOfficerRegJdbcDataManager() {
+        super("bto_officer_registrations", new HDBOfficerRegDataManager());
+        indexColumn("officer_nric", VARCHAR, HDBOfficerRegistration::getOfficerNric);
+        indexColumn("project_id", INTEGER, HDBOfficerRegistration::getProjectId);
+    }
+}
@@ -0,0 +1,154 @@
+package data;
+
+import utils.PersistenceConfig;
+import utils.TextFormatUtil;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The embedded SQL database used by the JDBC DataManagers ({@link PersistenceConfig#JDBC_URL}).
+ * One connection is shared by all tables; work on it runs in {@link #transaction(Work)} blocks, which
+ * nest, so a flush can write every database table in a single transaction.
+ * The driver must be on the class path; only java.sql is used here. The default URL needs H2
+ * (the com.h2database:h2 jar, version 2.x), e.g. {@code java -cp bin:lib/h2-2.2.224.jar main.BTOManagementApp}.
+ */
+public final class JdbcDatabase {
+
+    static final String STATE_TABLE = "bto_table_state"; // when each table was last saved
+
+    private static Connection connection;
+    private static int depth = 0; // nesting of transaction() blocks on the thread holding the lock
+    private static final List<Runnable> rollbackActions = new ArrayList<>();
+
+    private JdbcDatabase() {}
+
+    /** Work done on the shared connection inside a transaction. */
+    public interface Work<T> {
+        T run(Connection connection) throws SQLException, IOException;
+    }
+
+    /**
+     * Runs the work in a transaction, committing it when the outermost block ends; any failure rolls the
+     * whole outermost transaction back. Blocks on other threads wait until it has finished.
+     */
+    public static synchronized <T> T transaction(Work<T> work) throws IOException {
+        boolean outermost = (depth == 0);
+        depth++;
+        try {
+            T result = work.run(connection());
+            if (outermost) connection.commit();
+            return result;
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (outermost) rollback();
+            if (e instanceof IOException) throw (IOException) e;
+            throw new IOException("Database error: " + e.getMessage(), e);
+        } finally {
+            depth--;
+            if (outermost) rollbackActions.clear();
+        }
+    }
+
+    /** Fails fast, before any table is read, if no driver on the class path accepts {@link PersistenceConfig#JDBC_URL}. */
+    public static void checkDriver() throws IOException {
+        try {
+            DriverManager.getDriver(PersistenceConfig.JDBC_URL);
+        } catch (SQLException e) {
+            throw new IOException("No JDBC driver on the class path for " + PersistenceConfig.JDBC_URL
+                    + ". The \"jdbc\" format needs one: for the default URL add the H2 jar (com.h2database:h2), e.g. -cp bin:lib/h2-2.2.224.jar", e);
+        }
+    }
+
+    /** Registers an action (e.g. dropping a cache of what the database holds) to run if the current transaction rolls back. */
+    static synchronized void onRollback(Runnable action) {
+        rollbackActions.add(action);
+    }
+
+    private static void rollback() {
+        try {
+            if (connection != null && !connection.isClosed()) connection.rollback();
+        } catch (SQLException e) {
+            System.err.println(TextFormatUtil.warning("Database rollback failed: " + e.getMessage()));
+        }
+        rollbackActions.forEach(Runnable::run);
+    }
+
+    private static Connection connection() throws IOException {
+        try {
+            if (connection == null || connection.isClosed()) {
+                connection = DriverManager.getConnection(PersistenceConfig.JDBC_URL, PersistenceConfig.JDBC_USER, PersistenceConfig.JDBC_PASSWORD);
+                connection.setAutoCommit(false);
+                System.out.println("Opened database " + PersistenceConfig.JDBC_URL + ".");
+            }
+            return connection;
+        } catch (SQLException e) {
+            throw new IOException("Cannot open database " + PersistenceConfig.JDBC_URL + " (is its JDBC driver on the class path?): " + e.getMessage(), e);
+        }
+    }
+
+    /** Whether the table exists; unquoted names may be stored upper- or lower-case depending on the database. */
+    static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[] { table, table.toUpperCase(), table.toLowerCase() }) {
+            try (ResultSet tables = metaData.getTables(null, null, name, new String[] { "TABLE" })) {
+                if (tables.next()) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Creates the table recording when each table was last saved, if needed. */
+    static void ensureStateTable(Connection connection) throws SQLException {
+        if (tableExists(connection, STATE_TABLE)) return;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE " + STATE_TABLE + " (table_name VARCHAR(64) PRIMARY KEY, saved_at BIGINT NOT NULL, row_count INTEGER NOT NULL)");
+        }
+    }
+
+    /** Records that the table was saved now, with the given number of rows. */
+    static void recordSave(Connection connection, String table, int rowCount) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + STATE_TABLE + " SET saved_at = ?, row_count = ? WHERE table_name = ?")) {
+            update.setLong(1, now);
+            update.setInt(2, rowCount);
+            update.setString(3, table);
+            if (update.executeUpdate() > 0) return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + STATE_TABLE + " (table_name, saved_at, row_count) VALUES (?, ?, ?)")) {
+            insert.setString(1, table);
+            insert.setLong(2, now);
+            insert.setInt(3, rowCount);
+            insert.executeUpdate();
+        }
+    }
+
+    /** When the table was last saved (epoch millis), or 0 if it never was. */
+    static long savedAt(Connection connection, String table) throws SQLException {
+        if (!tableExists(connection, STATE_TABLE)) return 0;
+        try (PreparedStatement query = connection.prepareStatement("SELECT saved_at FROM " + STATE_TABLE + " WHERE table_name = ?")) {
+            query.setString(1, table);
+            try (ResultSet result = query.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    /** Closes the shared connection, if open. Call once on application exit. */
+    public static synchronized void close() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println(TextFormatUtil.warning("Error closing database: " + e.getMessage()));
+        }
+        connection = null;
+    }
+}
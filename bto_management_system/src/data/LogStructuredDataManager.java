@@ -0,0 +1,707 @@
+package data;
+
+import utils.PersistenceConfig;
+import utils.TextFormatUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured storage for one table: a directory of append-only segment files holding keyed PUT and
+ * DEL records (rows in the table's CSV row format), plus an in-memory index of where each key's latest
+ * record lives.
+ * <ul>
+ * <li>A save appends records only for rows that differ from the indexed ones (compared by checksum) and
+ *     tombstones for removed keys, followed by a COMMIT record; a save cut short by a crash is discarded
+ *     as a whole on recovery.</li>
+ * <li>Once the active segment reaches {@link PersistenceConfig#LOG_SEGMENT_BYTES} it is sealed and a hint
+ *     file (its keys and offsets) is written next to it. Recovery reads the hint files and scans only the
+ *     unsealed tail segment, so the scan is bounded by the segment size (plus at most one save).</li>
+ * <li>When dead records make up {@link PersistenceConfig#LOG_COMPACT_GARBAGE_RATIO} of the log, a background
+ *     thread copies the live records into a new segment that replaces all older ones.</li>
+ * </ul>
+ * Records are framed as CRC32, payload length, payload (op, key, row), so torn or corrupt records are detected.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+public class LogStructuredDataManager<K, V> implements DataManager<K, V> {
+
+    private static final byte[] SEGMENT_MAGIC = { 'B', 'T', 'K', 'V' };
+    private static final byte[] HINT_MAGIC = { 'B', 'T', 'K', 'H' };
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 4 + 4 + 8; // magic, version, ID of the last segment a compacted segment replaces
+    private static final int RECORD_HEADER_BYTES = 4 + 4; // CRC32, payload length
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String HINT_EXTENSION = ".hint";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_COMMIT = 3;
+
+    // Compaction runs on one shared background thread; a compaction cut off by exit leaves the old segments in place
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AbstractCsvDataManager<K, V> codec;
+    // Open logs by directory (a table normally has one)
+    private final Map<String, Log> logs = new ConcurrentHashMap<>();
+
+    /** @param codec The table's CSV DataManager, used to encode and decode rows. */
+    public LogStructuredDataManager(AbstractCsvDataManager<K, V> codec) {
+        this.codec = codec;
+    }
+
+    /** Where a key's latest record lives. */
+    private static final class Entry {
+        final long segment;
+        final long offset;
+        final int length; // whole record, header included
+        final int rowChecksum;
+
+        Entry(long segment, long offset, int length, int rowChecksum) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rowChecksum = rowChecksum;
+        }
+    }
+
+    /** One operation as listed in a hint file: a PUT with its location, or a DEL. */
+    private static final class HintOp {
+        final String key;
+        final Entry entry; // null for DEL
+
+        HintOp(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /** State of one log directory; guarded by its own monitor. */
+    private static final class Log {
+        final Path dir;
+        final Map<String, Entry> index = new HashMap<>();
+        final List<HintOp> activeOps = new ArrayList<>(); // operations in the active segment, for its hint
+        long activeSegment = -1; // -1: the next save starts a new segment
+        long activeBytes = 0;
+        long nextSegment = 1;
+        long totalBytes = 0;
+        long liveBytes = 0;
+        boolean compacting = false;
+
+        Log(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    @Override
+    public Map<K, V> load(String dirPath) throws IOException {
+        long startNanos = System.nanoTime();
+        Log log = open(dirPath);
+        Map<K, V> dataMap = new ConcurrentHashMap<>();
+        synchronized (log) {
+            // Read the live records segment by segment, in file order
+            Map<Long, List<Entry>> bySegment = new TreeMap<>();
+            for (Entry entry : log.index.values()) {
+                bySegment.computeIfAbsent(entry.segment, id -> new ArrayList<>()).add(entry);
+            }
+            for (Map.Entry<Long, List<Entry>> segment : bySegment.entrySet()) {
+                segment.getValue().sort(Comparator.comparingLong(entry -> entry.offset));
+                try (FileChannel channel = FileChannel.open(segmentPath(log, segment.getKey()), StandardOpenOption.READ)) {
+                    for (Entry entry : segment.getValue()) {
+                        String row = readRow(channel, entry, segmentPath(log, segment.getKey()));
+                        V object = codec.parseRecord(row);
+                        if (object != null) {
+                            dataMap.put(codec.keyOf(object), object);
+                        } else {
+                            System.err.println(TextFormatUtil.warning("Skipping unparseable record in " + segmentPath(log, segment.getKey()) + " at offset " + entry.offset));
+                        }
+                    }
+                }
+            }
+            System.out.println(String.format("Loaded %d records from: %s (%d live of %d log bytes) in %.1f ms",
+                    dataMap.size(), dirPath, log.liveBytes, log.totalBytes, (System.nanoTime() - startNanos) / 1_000_000.0));
+        }
+        return dataMap;
+    }
+
+    @Override
+    public void save(String dirPath, Map<K, V> dataMap) throws IOException {
+        Map<K, String> rows = new LinkedHashMap<>();
+        if (dataMap != null) {
+            dataMap.forEach((key, object) -> {
+                if (object != null) rows.put(key, codec.formatRecord(object));
+            });
+        }
+        saveRows(dirPath, rows);
+    }
+
+    /**
+     * Brings the log in line with the given rows: appends the rows that differ from the indexed ones and
+     * tombstones for indexed keys that are missing, as one committed batch.
+     * @param rows Every row of the table, already formatted with {@link AbstractCsvDataManager#formatRecord(Object)}.
+     */
+    public void saveRows(String dirPath, Map<K, String> rows) throws IOException {
+        append(dirPath, rows, true);
+    }
+
+    /**
+     * Appends the given changes as one committed batch: the rows that differ from the indexed ones, and
+     * tombstones for the removed keys that are indexed.
+     * @param changes Changed rows by key, formatted with {@link AbstractCsvDataManager#formatRecord(Object)};
+     *                a null row for a removed key.
+     */
+    public void saveChanges(String dirPath, Map<K, String> changes) throws IOException {
+        append(dirPath, changes, false);
+    }
+
+    /** @param complete Whether the rows are the whole table, so indexed keys missing from them are removed. */
+    private void append(String dirPath, Map<K, String> rows, boolean complete) throws IOException {
+        Log log = open(dirPath);
+        synchronized (log) {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            List<HintOp> ops = new ArrayList<>();
+            long offset = (log.activeSegment < 0) ? SEGMENT_HEADER_BYTES : log.activeBytes;
+            long segment = (log.activeSegment < 0) ? log.nextSegment : log.activeSegment;
+
+            Set<String> keys = new HashSet<>();
+            for (Map.Entry<K, String> row : rows.entrySet()) {
+                String key = String.valueOf(row.getKey());
+                keys.add(key);
+                if (row.getValue() == null) {
+                    if (log.index.containsKey(key)) {
+                        ops.add(new HintOp(key, null));
+                        batch.write(encodeRecord(OP_DELETE, key, null));
+                    }
+                    continue;
+                }
+                byte[] rowBytes = row.getValue().getBytes(StandardCharsets.UTF_8);
+                int rowChecksum = checksum(rowBytes, 0, rowBytes.length);
+                Entry current = log.index.get(key);
+                byte[] record = encodeRecord(OP_PUT, key, rowBytes);
+                if (current != null && current.rowChecksum == rowChecksum && current.length == record.length) {
+                    continue; // unchanged
+                }
+                ops.add(new HintOp(key, new Entry(segment, offset + batch.size(), record.length, rowChecksum)));
+                batch.write(record);
+            }
+            if (complete) {
+                for (String key : log.index.keySet()) {
+                    if (!keys.contains(key)) {
+                        ops.add(new HintOp(key, null));
+                        batch.write(encodeRecord(OP_DELETE, key, null));
+                    }
+                }
+            }
+            if (ops.isEmpty()) {
+                System.out.println("No changed records to append to: " + dirPath);
+                return;
+            }
+            batch.write(encodeRecord(OP_COMMIT, "", null));
+
+            if (log.activeSegment < 0) {
+                startSegment(log, segment, 0);
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(log, log.activeSegment), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            }
+            log.activeBytes += batch.size();
+            log.totalBytes += batch.size();
+            for (HintOp op : ops) {
+                applyOp(log, op);
+                log.activeOps.add(op);
+            }
+            System.out.println("Appended " + ops.size() + " record(s) (" + batch.size() + " bytes) to: " + segmentPath(log, log.activeSegment));
+
+            if (log.activeBytes >= PersistenceConfig.LOG_SEGMENT_BYTES) {
+                sealActiveSegment(log);
+            }
+            maybeCompact(log);
+        }
+    }
+
+    /** Opens the log directory (once per directory), rebuilding the index from the hint files and the tail segment. */
+    private Log open(String dirPath) throws IOException {
+        Log existing = logs.get(dirPath);
+        if (existing != null) return existing;
+        synchronized (logs) {
+            existing = logs.get(dirPath);
+            if (existing != null) return existing;
+            Log log = new Log(Paths.get(dirPath));
+            Files.createDirectories(log.dir);
+            recover(log);
+            logs.put(dirPath, log);
+            return log;
+        }
+    }
+
+    private void recover(Log log) throws IOException {
+        TreeMap<Long, Path> segments = listSegments(log);
+        // The newest completed compaction (one with a hint file) replaces every segment before it
+        long replacedUpTo = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long replaces = readSegmentHeader(segment.getValue());
+            if (replaces > 0) {
+                if (Files.exists(hintPath(log, segment.getKey()))) {
+                    replacedUpTo = Math.max(replacedUpTo, replaces);
+                } else if (!segments.headMap(segment.getKey()).isEmpty() && !PersistenceConfig.READ_ONLY) {
+                    Files.deleteIfExists(segment.getValue()); // compaction cut short; the old segments still hold everything
+                }
+                // else: the old segments are gone, so only its hint was lost; it is scanned below
+            }
+        }
+
+        long scannedBytes = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long id = segment.getKey();
+            log.nextSegment = Math.max(log.nextSegment, id + 1);
+            if (!Files.exists(segment.getValue())) continue;
+            if (id <= replacedUpTo) {
+                if (!PersistenceConfig.READ_ONLY) {
+                    Files.deleteIfExists(hintPath(log, id)); // left behind by a compaction that finished
+                    Files.deleteIfExists(segment.getValue());
+                }
+                continue;
+            }
+            log.totalBytes += Files.size(segment.getValue());
+            if (Files.exists(hintPath(log, id))) {
+                for (HintOp op : readHint(hintPath(log, id))) applyOp(log, op);
+                continue;
+            }
+            // Unsealed: scan it, keeping committed batches only
+            List<HintOp> ops = new ArrayList<>();
+            long committedBytes = scanSegment(log, id, ops);
+            scannedBytes += Files.size(segment.getValue());
+            for (HintOp op : ops) applyOp(log, op);
+            if (PersistenceConfig.READ_ONLY) {
+                continue; // the writer may be appending to it or compacting; read-only loads repair nothing
+            } else if (id == segments.lastKey()) {
+                truncate(segment.getValue(), committedBytes, log);
+                log.activeSegment = id;
+                log.activeBytes = committedBytes;
+                log.activeOps.addAll(ops);
+            } else {
+                writeHint(log, id, ops); // sealed, but the crash came before its hint was written
+            }
+        }
+        if (!segments.isEmpty()) {
+            System.out.println("Opened log " + log.dir + ": " + log.index.size() + " keys in " + listSegments(log).size()
+                    + " segment(s), scanned " + scannedBytes + " tail bytes.");
+        }
+    }
+
+    /**
+     * Reads the records of a segment that has no hint file.
+     * @param ops Receives the operations of every committed batch, in order.
+     * @return Length of the segment up to the end of its last committed batch.
+     */
+    private long scanSegment(Log log, long id, List<HintOp> ops) throws IOException {
+        Path path = segmentPath(log, id);
+        long committed = SEGMENT_HEADER_BYTES;
+        List<HintOp> pending = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            in.skipNBytes(SEGMENT_HEADER_BYTES);
+            long offset = SEGMENT_HEADER_BYTES;
+            while (true) {
+                int storedChecksum, length;
+                byte[] payload;
+                try {
+                    storedChecksum = in.readInt();
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) break; // garbage length: a torn header
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payload.length < length || checksum(payload, 0, payload.length) != storedChecksum) {
+                    break; // torn or corrupt: nothing after it is trusted
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte op = record.readByte();
+                int recordLength = RECORD_HEADER_BYTES + length;
+                if (op == OP_COMMIT) {
+                    ops.addAll(pending);
+                    pending.clear();
+                    committed = offset + recordLength;
+                } else {
+                    String key = readString(record);
+                    if (op == OP_PUT) {
+                        byte[] row = readBytes(record);
+                        pending.add(new HintOp(key, new Entry(id, offset, recordLength, checksum(row, 0, row.length))));
+                    } else {
+                        pending.add(new HintOp(key, null));
+                    }
+                }
+                offset += recordLength;
+            }
+        }
+        return committed;
+    }
+
+    /** Cuts off an uncommitted or torn tail so new batches are appended after the last committed one. */
+    private void truncate(Path path, long length, Log log) throws IOException {
+        long size = Files.size(path);
+        if (size <= length) return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(true);
+        }
+        log.totalBytes -= size - length;
+        System.err.println(TextFormatUtil.warning("Discarded " + (size - length) + " bytes of an unfinished save at the end of " + path + "."));
+    }
+
+    private void applyOp(Log log, HintOp op) {
+        Entry previous = (op.entry != null) ? log.index.put(op.key, op.entry) : log.index.remove(op.key);
+        if (previous != null) log.liveBytes -= previous.length;
+        if (op.entry != null) log.liveBytes += op.entry.length;
+    }
+
+    private void startSegment(Log log, long id, long replacesUpTo) throws IOException {
+        Path path = segmentPath(log, id);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(segmentHeader(replacesUpTo)));
+            channel.force(true);
+        }
+        log.nextSegment = Math.max(log.nextSegment, id + 1);
+        log.activeSegment = id;
+        log.activeBytes = SEGMENT_HEADER_BYTES;
+        log.totalBytes += SEGMENT_HEADER_BYTES;
+        log.activeOps.clear();
+    }
+
+    /** Writes the hint file of the active segment; the next save starts a new segment. */
+    private void sealActiveSegment(Log log) throws IOException {
+        if (log.activeSegment < 0) return;
+        writeHint(log, log.activeSegment, log.activeOps);
+        log.activeSegment = -1;
+        log.activeBytes = 0;
+        log.activeOps.clear();
+    }
+
+    /** Starts a background compaction once dead records make up the configured share of a large enough log. */
+    private void maybeCompact(Log log) throws IOException {
+        if (log.compacting || log.totalBytes < PersistenceConfig.LOG_COMPACT_MIN_BYTES
+                || log.totalBytes - log.liveBytes < log.totalBytes * PersistenceConfig.LOG_COMPACT_GARBAGE_RATIO) {
+            return;
+        }
+        sealActiveSegment(log); // every current record is now in a sealed segment below the target
+        long target = log.nextSegment++;
+        Map<String, Entry> snapshot = new HashMap<>(log.index);
+        log.compacting = true;
+        compactor.execute(() -> compact(log, snapshot, target));
+    }
+
+    /**
+     * Copies the live records of the snapshot into a new segment that replaces every older one, then points
+     * the index at the copies (unless a key was written again meanwhile) and deletes the older segments.
+     * Saves carry on during the copy; they go to segments after the target.
+     */
+    private void compact(Log log, Map<String, Entry> snapshot, long target) {
+        long startNanos = System.nanoTime();
+        Path targetPath = segmentPath(log, target);
+        try {
+            List<Map.Entry<String, Entry>> live = new ArrayList<>(snapshot.entrySet());
+            live.sort(Comparator.<Map.Entry<String, Entry>>comparingLong(e -> e.getValue().segment).thenComparingLong(e -> e.getValue().offset));
+            List<HintOp> copied = new ArrayList<>(live.size());
+            long offset = SEGMENT_HEADER_BYTES;
+            Map<Long, FileChannel> sources = new HashMap<>();
+            try (FileChannel out = FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.wrap(segmentHeader(target - 1)));
+                for (Map.Entry<String, Entry> entry : live) {
+                    Entry source = entry.getValue();
+                    FileChannel in = sources.get(source.segment);
+                    if (in == null) {
+                        in = FileChannel.open(segmentPath(log, source.segment), StandardOpenOption.READ);
+                        sources.put(source.segment, in);
+                    }
+                    ByteBuffer record = readRecord(in, source, segmentPath(log, source.segment));
+                    while (record.hasRemaining()) out.write(record);
+                    copied.add(new HintOp(entry.getKey(), new Entry(target, offset, source.length, source.rowChecksum)));
+                    offset += source.length;
+                }
+                out.write(ByteBuffer.wrap(encodeRecord(OP_COMMIT, "", null))); // lets recovery scan the segment should its hint be lost
+                out.force(true);
+            } finally {
+                for (FileChannel in : sources.values()) in.close();
+            }
+            writeHint(log, target, copied); // the compaction counts as complete from here on
+
+            long reclaimed;
+            synchronized (log) {
+                for (HintOp op : copied) {
+                    if (log.index.get(op.key) == snapshot.get(op.key)) log.index.put(op.key, op.entry);
+                }
+                long before = log.totalBytes;
+                for (Map.Entry<Long, Path> segment : listSegments(log).entrySet()) {
+                    if (segment.getKey() < target) {
+                        Files.deleteIfExists(hintPath(log, segment.getKey()));
+                        Files.deleteIfExists(segment.getValue());
+                    }
+                }
+                log.totalBytes = 0;
+                for (Path segment : listSegments(log).values()) log.totalBytes += Files.size(segment);
+                reclaimed = before - log.totalBytes;
+                log.compacting = false;
+            }
+            System.out.println(String.format("Compacted log %s: %d live records into segment %d, reclaimed %d bytes in %.1f ms.",
+                    log.dir, copied.size(), target, reclaimed, (System.nanoTime() - startNanos) / 1_000_000.0));
+        } catch (IOException | RuntimeException e) {
+            System.err.println(TextFormatUtil.warning("Compaction of " + log.dir + " failed (" + e.getMessage() + "); the log is unchanged."));
+            try {
+                Files.deleteIfExists(hintPath(log, target));
+                Files.deleteIfExists(targetPath);
+            } catch (IOException cleanup) {
+                // Recovery discards a compacted segment without a hint file
+            }
+            synchronized (log) {
+                log.compacting = false;
+            }
+        }
+    }
+
+    private static byte[] encodeRecord(byte op, String key, byte[] row) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeByte(op);
+        if (op != OP_COMMIT) {
+            writeBytes(payload, key.getBytes(StandardCharsets.UTF_8));
+        }
+        if (op == OP_PUT) {
+            writeBytes(payload, row);
+        }
+        payload.flush();
+        byte[] body = payloadBytes.toByteArray();
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.length);
+        record.putInt(checksum(body, 0, body.length));
+        record.putInt(body.length);
+        record.put(body);
+        return record.array();
+    }
+
+    private static ByteBuffer readRecord(FileChannel channel, Entry entry, Path path) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(entry.length);
+        while (record.hasRemaining()) {
+            if (channel.read(record, entry.offset + record.position()) < 0) {
+                throw new IOException("Record at offset " + entry.offset + " of " + path + " is cut short");
+            }
+        }
+        record.flip();
+        int storedChecksum = record.getInt(0);
+        if (checksum(record.array(), RECORD_HEADER_BYTES, entry.length - RECORD_HEADER_BYTES) != storedChecksum) {
+            throw new IOException("Checksum mismatch in record at offset " + entry.offset + " of " + path);
+        }
+        return record;
+    }
+
+    private static String readRow(FileChannel channel, Entry entry, Path path) throws IOException {
+        ByteBuffer record = readRecord(channel, entry, path);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array(), RECORD_HEADER_BYTES, entry.length - RECORD_HEADER_BYTES));
+        if (in.readByte() != OP_PUT) throw new IOException("Index points at a non-PUT record at offset " + entry.offset + " of " + path);
+        readBytes(in); // key
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Negative field length");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] segmentHeader(long replacesUpTo) {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.put(SEGMENT_MAGIC).putInt(FORMAT_VERSION).putLong(replacesUpTo);
+        return header.array();
+    }
+
+    /** @return The ID of the last segment this one replaces (0 unless it is a compacted segment). */
+    private static long readSegmentHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path.toFile()))) {
+            byte[] magic = new byte[SEGMENT_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, SEGMENT_MAGIC)) throw new IOException("Not a log segment: " + path);
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported log segment version " + version + " in " + path);
+            return in.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Log segment header is truncated: " + path, e);
+        }
+    }
+
+    private static void writeHint(Log log, long segment, List<HintOp> ops) throws IOException {
+        AtomicFiles.writeStream(hintPath(log, segment), stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.write(HINT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(ops.size());
+            for (HintOp op : ops) {
+                out.writeByte(op.entry != null ? OP_PUT : OP_DELETE);
+                writeBytes(out, op.key.getBytes(StandardCharsets.UTF_8));
+                if (op.entry != null) {
+                    out.writeLong(op.entry.offset);
+                    out.writeInt(op.entry.length);
+                    out.writeInt(op.entry.rowChecksum);
+                }
+            }
+            out.flush();
+        });
+    }
+
+    private static List<HintOp> readHint(Path path) throws IOException {
+        long segment = segmentId(path.getFileName().toString());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            byte[] magic = new byte[HINT_MAGIC.length];
+            in.readFully(magic);
+            int version = in.readInt();
+            if (!Arrays.equals(magic, HINT_MAGIC) || version != FORMAT_VERSION) throw new IOException("Not a supported hint file: " + path);
+            int count = in.readInt();
+            List<HintOp> ops = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte op = in.readByte();
+                String key = readString(in);
+                ops.add(op == OP_PUT ? new HintOp(key, new Entry(segment, in.readLong(), in.readInt(), in.readInt())) : new HintOp(key, null));
+            }
+            return ops;
+        } catch (EOFException e) {
+            throw new IOException("Hint file is truncated: " + path, e);
+        }
+    }
+
+    private static TreeMap<Long, Path> listSegments(Log log) {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        File[] files = log.dir.toFile().listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+        if (files == null) return segments;
+        for (File file : files) {
+            long id = segmentId(file.getName());
+            if (id > 0) segments.put(id, file.toPath());
+        }
+        return segments;
+    }
+
+    private static long segmentId(String fileName) {
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.lastIndexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static Path segmentPath(Log log, long id) {
+        return log.dir.resolve(String.format("%010d", id) + SEGMENT_EXTENSION);
+    }
+
+    private static Path hintPath(Log log, long id) {
+        return log.dir.resolve(String.format("%010d", id) + HINT_EXTENSION);
+    }
+
+    /** Whether the path is a log directory (as opposed to a CSV or binary file). */
+    public static boolean isLog(String path) {
+        return new File(path).isDirectory();
+    }
+
+    /**
+     * Whether the log directory holds any segment. Opening a log creates its directory, so an empty
+     * directory does not mean the table was ever saved as a log.
+     */
+    public static boolean hasSegments(String dirPath) {
+        File[] files = new File(dirPath).listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION) && segmentId(name) > 0);
+        return files != null && files.length > 0;
+    }
+
+    /** Latest modification time of the files of a log directory (0 if it does not exist). */
+    public static long lastModified(String dirPath) {
+        File[] files = new File(dirPath).listFiles();
+        long latest = new File(dirPath).lastModified();
+        if (files != null) {
+            for (File file : files) latest = Math.max(latest, file.lastModified());
+        }
+        return latest;
+    }
+
+    /** Total size of the files of a log directory. */
+    public static long sizeOnDisk(String dirPath) {
+        File[] files = new File(dirPath).listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) total += file.length();
+        }
+        return total;
+    }
+
+    /**
+     * Deletes a log directory this manager may have open, forgetting its index, so a later save starts a new log
+     * instead of appending to segments that are gone.
+     */
+    public void drop(String dirPath) throws IOException {
+        synchronized (logs) {
+            Log log = logs.remove(dirPath);
+            if (log == null) {
+                delete(dirPath);
+                return;
+            }
+            synchronized (log) {
+                delete(dirPath);
+            }
+        }
+    }
+
+    /** Deletes a log directory and its files, e.g. once the table has moved to another format or layout. */
+    public static void delete(String dirPath) throws IOException {
+        File[] files = new File(dirPath).listFiles();
+        if (files != null) {
+            for (File file : files) Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(Paths.get(dirPath));
+    }
+}
@@ -0,0 +1,91 @@
+package data;
+
+import utils.PersistenceConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs DataManager loads and saves asynchronously on a shared pool of I/O threads
+ * ({@link PersistenceConfig#ASYNC_IO_THREADS}), so files of different tables are encoded and written in parallel.
+ * At most {@link PersistenceConfig#ASYNC_MAX_IN_FLIGHT_WRITES} writes run or wait at a time; a caller starting
+ * another one blocks until one finishes, so a slow disk holds back new writes instead of queuing them without bound.
+ */
+public final class PersistenceExecutor {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService ioThreads = Executors.newFixedThreadPool(Math.max(1, PersistenceConfig.ASYNC_IO_THREADS), runnable -> {
+        Thread thread = new Thread(runnable, "persistence-io-" + threadCount.incrementAndGet());
+        thread.setDaemon(true); // callers wait for their futures before exit
+        return thread;
+    });
+    private static final Semaphore writePermits = new Semaphore(Math.max(1, PersistenceConfig.ASYNC_MAX_IN_FLIGHT_WRITES), true);
+
+    private PersistenceExecutor() {}
+
+    /** Blocking I/O work run on an I/O thread. */
+    public interface IoTask<T> {
+        T call() throws IOException;
+    }
+
+    /** Runs a read on an I/O thread. */
+    public static <T> CompletableFuture<T> read(IoTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> run(task), ioThreads);
+    }
+
+    /**
+     * Runs a write on an I/O thread once fewer than the maximum number of writes are in flight, blocking the
+     * caller until then. Must not be called from a write itself, which could wait for its own permit.
+     */
+    public static <T> CompletableFuture<T> write(IoTask<T> task) {
+        writePermits.acquireUninterruptibly();
+        try {
+            return CompletableFuture.supplyAsync(() -> run(task), ioThreads)
+                    .whenComplete((result, failure) -> writePermits.release());
+        } catch (RuntimeException e) { // e.g. the pool rejected the task
+            writePermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every future, then rethrows the first failure as an IOException (later ones are added
+     * as suppressed exceptions), so no write is still running when the caller reports the error.
+     */
+    public static void awaitAll(List<? extends CompletableFuture<?>> futures) throws IOException {
+        IOException failure = null;
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                IOException cause = unwrap(e);
+                if (failure == null) failure = cause;
+                else failure.addSuppressed(cause);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** The IOException behind a failed future, or one wrapping any other failure. */
+    public static IOException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException) return ((UncheckedIOException) cause).getCause();
+        if (cause instanceof IOException) return (IOException) cause;
+        return new IOException(String.valueOf(cause), cause);
+    }
+
+    private static <T> T run(IoTask<T> task) {
+        try {
+            return task.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
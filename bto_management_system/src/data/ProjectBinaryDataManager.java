@@ -0,0 +1,45 @@
+package data;
+
+import models.Project;
+import enums.FlatType;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for Project using binary snapshot files.
+ */
+public class ProjectBinaryDataManager extends AbstractBinaryDataManager<Integer, Project> {
+
+    @Override
+    protected String getTableName() {
+        return "projects";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, Project project) throws IOException {
+        out.writeInt(project.getProjectId());
+        out.writeString(project.getProjectName());
+        out.writeReference(project.getNeighborhood());
+        out.writeEnumIntMap(project.getTotalUnits());
+        out.writeEnumIntMap(project.getAvailableUnits());
+        out.writeDate(project.getApplicationOpeningDate());
+        out.writeDate(project.getApplicationClosingDate());
+        out.writeReference(project.getAssignedHDBManagerNric());
+        out.writeReferenceList(project.getAssignedHDBOfficerNrics());
+        out.writeInt(project.getMaxOfficerSlots());
+        out.writeBoolean(project.isVisible());
+    }
+
+    @Override
+    protected Project readRow(RowReader in) {
+        return new Project(in.readInt(), in.readString(), in.readReference(),
+                           in.readEnumIntMap(FlatType.class), in.readEnumIntMap(FlatType.class),
+                           in.readDate(), in.readDate(), in.readReference(),
+                           in.readReferenceList(), in.readInt(), in.readBoolean());
+    }
+
+    @Override
+    protected Integer getKey(Project project) {
+        return project.getProjectId();
+    }
+}
@@ -20,6 +20,11 @@ public class ProjectDataManager extends AbstractCsvDataManager<Integer, Project>
         return "ProjectID,ProjectName,Neighborhood,TotalUnits,AvailableUnits,OpeningDate,ClosingDate,ManagerNRIC,MaxOfficerSlots,Visibility,AssignedOfficerNRICs";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(FlatType.class) + ",true,false";
+    }
+
     @Override
     protected Project parseCsvRow(String[] values) {
         int EXPECTED_COLUMNS = 11;
@@ -32,14 +37,6 @@ public class ProjectDataManager extends AbstractCsvDataManager<Integer, Project>
         int projectId = safeParseInt(values[0], -1);
         String projectName = safeParseString(values[1]);
         String neighborhood = safeParseString(values[2]);
-        
-        // Remove potential surrounding quotes if CSV writer added them unnecessarily
-        if (projectName.startsWith("\"") && projectName.endsWith("\"")) {
-            projectName = projectName.substring(1, projectName.length() - 1).replace("\"\"", "\"");
-        }
-        if (neighborhood.startsWith("\"") && neighborhood.endsWith("\"")) {
-            neighborhood = neighborhood.substring(1, neighborhood.length() - 1).replace("\"\"", "\"");
-        }
 
         // Parse complex fields using helpers 
         Map<FlatType, Integer> totalUnits = parseFlatTypeMap(values[3]);
@@ -104,11 +101,10 @@ public class ProjectDataManager extends AbstractCsvDataManager<Integer, Project>
      */
     @Override
     protected String formatCsvRow(Project project) {
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 String.valueOf(project.getProjectId()),
-                // Quote fields that might contain the delimiter or quotes
-                "\"" + project.getProjectName().replace("\"", "\"\"") + "\"",
-                "\"" + project.getNeighborhood().replace("\"", "\"\"") + "\"",
+                project.getProjectName(), // Quoted by joinCsvFields if it contains the delimiter or quotes
+                project.getNeighborhood(),
                 formatFlatTypeMap(project.getTotalUnits()),
                 formatFlatTypeMap(project.getAvailableUnits()),
                 DateUtils.formatDate(project.getApplicationOpeningDate()), // Handles null
@@ -0,0 +1,13 @@
+package data;
+
+import models.Project;
+
+/**
+ * DataManager implementation for Project using the embedded SQL database.
+ */
+public class ProjectJdbcDataManager extends AbstractJdbcDataManager<Integer, Project> {
+
+    public ProjectJdbcDataManager() {
+        super("bto_projects", new ProjectDataManager());
+    }
+}
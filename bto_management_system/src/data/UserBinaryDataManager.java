@@ -0,0 +1,54 @@
+package data;
+
+import models.*;
+import enums.*;
+
+import java.io.IOException;
+
+/**
+ * DataManager implementation for User using binary snapshot files.
+ */
+public class UserBinaryDataManager extends AbstractBinaryDataManager<String, User> {
+
+    @Override
+    protected String getTableName() {
+        return "users";
+    }
+
+    @Override
+    protected void writeRow(RowWriter out, User user) throws IOException {
+        out.writeString(user.getNric()); // unique per row, so not worth a dictionary entry
+        out.writeString(user.getPassword());
+        out.writeString(user.getName());
+        out.writeInt(user.getAge());
+        out.writeEnum(user.getMaritalStatus());
+        out.writeEnum(user.getRole());
+    }
+
+    @Override
+    protected User readRow(RowReader in) {
+        String nric = in.readString();
+        String password = in.readString();
+        String name = in.readString();
+        int age = in.readInt();
+        MaritalStatus maritalStatus = in.readEnum(MaritalStatus.class);
+        UserRole role = in.readEnum(UserRole.class);
+
+        switch (role) {
+            case APPLICANT:
+                return new Applicant(nric, password, name, age, maritalStatus);
+            case OFFICER:
+                return new HDBOfficer(nric, password, name, age, maritalStatus);
+            case MANAGER:
+                return new HDBManager(nric, password, name, age, maritalStatus);
+            default:
+                System.err.println("Skipping user row: Unknown role '" + role + "' for NRIC " + nric);
+                return null;
+        }
+    }
+
+    @Override
+    protected String getKey(User user) {
+        return user.getNric();
+    }
+}
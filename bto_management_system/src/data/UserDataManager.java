@@ -15,6 +15,11 @@ public class UserDataManager extends AbstractCsvDataManager<String, User> {
         return "NRIC,Password,Name,Age,MaritalStatus,Role";
     }
 
+    @Override
+    protected String getCompressionVocabulary() {
+        return getHeaderLine() + CSV_DELIMITER + enumVocabulary(MaritalStatus.class, UserRole.class);
+    }
+
     @Override
     protected User parseCsvRow(String[] values) {
         if (values.length < 6) {
@@ -56,7 +61,7 @@ public class UserDataManager extends AbstractCsvDataManager<String, User> {
 
     @Override
     protected String formatCsvRow(User user) {
-        return String.join(CSV_DELIMITER,
+        return joinCsvFields(
                 user.getNric(),
                 user.getPassword(), // Store plain text as per brief (HASH IN REAL WORLD!)
                 user.getName(),
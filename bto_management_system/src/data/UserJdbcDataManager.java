@@ -0,0 +1,13 @@
+package data;
+
+import models.User;
+
+/**
+ * DataManager implementation for User using the embedded SQL database.
+ */
+public class UserJdbcDataManager extends AbstractJdbcDataManager<String, User> {
+
+    public UserJdbcDataManager() {
+        super("bto_users", new UserDataManager());
+    }
+}
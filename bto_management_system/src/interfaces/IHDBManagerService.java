@@ -1,5 +1,7 @@
 package interfaces;
 
+import java.util.Map;
+
 public interface IHDBManagerService {
     /**
      * Approves a pending HDB Officer registration request for a project managed by this manager.
@@ -55,4 +57,14 @@ public interface IHDBManagerService {
      * @return true if rejection successful, false otherwise.
      */
     boolean rejectWithdrawal(int applicationId, String managerNric);
-}
\ No newline at end of file
+
+    /**
+     * Moves the applications, enquiries and flat bookings of every closed, fully booked project to the archive,
+     * out of the live tables. A project qualifies once its application period has ended, none of its units are
+     * left, and none of its applications is pending, successful but unbooked, or awaiting a withdrawal decision.
+     * The projects themselves stay in the live table.
+     * @param managerNric NRIC of the manager running the archival (for verification).
+     * @return Number of records archived per project ID (empty if no project qualified), or null if the user is not a manager.
+     */
+    Map<Integer, Integer> archiveClosedProjects(String managerNric);
+}
@@ -0,0 +1,97 @@
+package main;
+
+import enums.BTOApplicationStatus;
+import enums.FlatType;
+import models.BTOApplication;
+import models.OffHeapApplicationMap;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Compares the applications table kept as heap objects (the default ConcurrentHashMap) with the off-heap
+ * table of -Dbto.applications.offHeap=true: heap and direct memory held once filled, and the collections
+ * and time spent filling it and scanning it the way reports do.
+ * <pre>
+ * java -Xmx1g main.ApplicationMemoryBenchmark [rows] [heap|off-heap]
+ * </pre>
+ * Each variant runs after a full collection, with only its own table reachable; name one to run it alone in a fresh JVM.
+ * Synthetic rows; no data files are touched.
+ */
+public class ApplicationMemoryBenchmark {
+
+    private static final int SCANS = 5;
+    private static Map<Integer, BTOApplication> table; // reachable until measured
+
+    public static void main(String[] args) {
+        int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println(String.format("%-9s %12s %12s %10s %10s %12s %10s %10s",
+                "table", "heap MB", "direct MB", "fill ms", "fill GCs", "fill GC ms", "scan ms", "scan GCs"));
+        String only = (args.length > 1) ? args[1] : null;
+        if (only == null || only.equals("heap")) run("heap", () -> new ConcurrentHashMap<>(rows), rows);
+        if (only == null || only.equals("off-heap")) run("off-heap", () -> new OffHeapApplicationMap(rows), rows);
+    }
+
+    private static void run(String name, Supplier<Map<Integer, BTOApplication>> newTable, int rows) {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = directMemory();
+
+        long[] gcBefore = gcTotals();
+        long start = System.nanoTime();
+        table = newTable.get();
+        for (int id = 1; id <= rows; id++) {
+            table.put(id, new BTOApplication(id, String.format("S%07dA", id), id % 50, BTOApplicationStatus.values()[id % 5],
+                    (id % 2 == 0) ? FlatType.TWO_ROOM : FlatType.THREE_ROOM, null, null, false, new Date(1_700_000_000_000L + id)));
+        }
+        double fillMillis = (System.nanoTime() - start) / 1_000_000.0;
+        long[] gcFill = gcTotals();
+
+        long heap = usedHeapAfterGc() - heapBefore;
+        long direct = directMemory() - directBefore;
+
+        long[] gcScanBefore = gcTotals();
+        start = System.nanoTime();
+        long checksum = 0;
+        for (int scan = 0; scan < SCANS; scan++) {
+            for (BTOApplication application : table.values()) {
+                if (application.getStatus() == BTOApplicationStatus.PENDING) checksum += application.getProjectId();
+                checksum += application.getSubmissionDate().getTime() & 1;
+            }
+        }
+        double scanMillis = (System.nanoTime() - start) / 1_000_000.0;
+        long[] gcScan = gcTotals();
+
+        System.out.println(String.format("%-9s %12.1f %12.1f %10.1f %10d %12d %10.1f %10d",
+                name, heap / 1048576.0, direct / 1048576.0, fillMillis, gcFill[0] - gcBefore[0], gcFill[1] - gcBefore[1],
+                scanMillis, gcScan[0] - gcScanBefore[0]));
+        if (checksum == 42) System.out.println(); // keeps the scans from being optimised away
+        table = null;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    /** Collections and milliseconds spent collecting so far, over all collectors. */
+    private static long[] gcTotals() {
+        long count = 0, millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[] { count, millis };
+    }
+}
@@ -27,6 +27,7 @@ public class BTOManagementApp {
                 if (!loggedIn) {
                     break;
                 }
+                DataStore.prefetchInBackground(); // load the tables this session has not touched yet
 
                 User currentUser = AuthStore.getCurrentUser();
                 if (currentUser == null) {
@@ -60,7 +61,7 @@ public class BTOManagementApp {
             System.err.println("\n!!! An unexpected error occurred: " + e.getMessage() + " !!!");
             e.printStackTrace();
             System.err.println("Attempting to save data before exiting...");
-            DataStore.saveAllData();
+            DataStore.shutdown();
             System.err.println("Application will now exit due to the error.");
 
         } finally {
@@ -68,8 +69,9 @@ public class BTOManagementApp {
 
             if (gracefulExit) {
                  CommonView.displayGoodbyeMessage(); 
-                 DataStore.saveAllData();
             }
+            // Always drain queued background saves before the JVM exits
+            DataStore.shutdown();
 
            
              System.out.println("Application finished.");
@@ -0,0 +1,155 @@
+package main;
+
+import data.*;
+import stores.DataStore;
+import utils.FilePathConstants;
+import utils.PersistenceConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line converter between the CSV and binary snapshot formats of the data files, and between
+ * the CSV files and the embedded SQL database.
+ * Run it after a clean shutdown of the application (which checkpoints the journal into the data files), or after the
+ * checkpoint command, which folds a journal left by a crashed run into the data files;
+ * it refuses to run while the application holds the data directory's writer lock. Then select the format with -Dbto.format or -Dbto.format.&lt;table&gt;.
+ * The application loads only the configured format's file (another format's file only while that one does not exist yet),
+ * and deletes the table's files in the other formats once it has saved the table in the configured format.
+ * <pre>
+ * java main.DataMigrationTool to-binary [table ...]
+ * java main.DataMigrationTool to-csv [table ...]
+ * java -cp ...:h2.jar main.DataMigrationTool to-jdbc [table ...]
+ * java -cp ...:h2.jar main.DataMigrationTool from-jdbc [table ...]
+ * java main.DataMigrationTool checkpoint
+ * </pre>
+ * With no table names, all tables are converted. to-jdbc bulk-copies the CSV files into the database
+ * (-Dbto.jdbc.url) in a single transaction; from-jdbc writes the database tables back to CSV files.
+ * checkpoint loads every table with its journaled changes replayed, writes the data files and empties the journal
+ * (-Dbto.journal.enabled), so other programs reading the files see the latest data.
+ */
+public class DataMigrationTool {
+
+    private static final List<String> COMMANDS = List.of("to-binary", "to-csv", "to-jdbc", "from-jdbc", "checkpoint");
+
+    /** One table's file in each format. */
+    private static class TableFormats<K, V> {
+        final String csvPath;
+        final DataManager<K, V> csvManager;
+        final DataManager<K, V> binaryManager;
+        final DataManager<K, V> databaseManager;
+
+        TableFormats(String csvPath, DataManager<K, V> csvManager, DataManager<K, V> binaryManager, DataManager<K, V> databaseManager) {
+            this.csvPath = csvPath;
+            this.csvManager = csvManager;
+            this.binaryManager = binaryManager;
+            this.databaseManager = databaseManager;
+        }
+
+        /** Loads the table from one format and writes it in another, then checks the row count. */
+        void convert(String command, GenerationManifest manifest) throws IOException {
+            String binaryPath = FilePathConstants.snapshotPathFor(csvPath);
+            String currentCsvPath = manifest.resolve(csvPath); // current generation file, if any
+            switch (command) {
+                case "to-binary": copy(csvManager, currentCsvPath, binaryManager, binaryPath); break;
+                case "to-csv": copy(binaryManager, manifest.resolve(binaryPath), csvManager, csvPath); break;
+                case "to-jdbc": copy(csvManager, currentCsvPath, databaseManager, PersistenceConfig.JDBC_URL); break;
+                default: copy(databaseManager, PersistenceConfig.JDBC_URL, csvManager, csvPath); break;
+            }
+        }
+
+        private void copy(DataManager<K, V> source, String sourcePath, DataManager<K, V> target, String targetPath) throws IOException {
+            boolean fromDatabase = (source == databaseManager);
+            if (!fromDatabase && !new File(sourcePath).exists()) {
+                System.out.println("  " + sourcePath + " does not exist; skipped.");
+                return;
+            }
+
+            long start = System.nanoTime();
+            Map<K, V> rows = source.load(sourcePath);
+            target.save(targetPath, rows);
+            Map<K, V> check = target.load(targetPath);
+            if (check.size() != rows.size()) {
+                throw new IOException("Row count mismatch after converting " + sourcePath + ": wrote " + rows.size() + ", read back " + check.size());
+            }
+            System.out.println(String.format("  %s (%s) -> %s (%s), %d rows in %.1f ms",
+                    sourcePath, describe(sourcePath, fromDatabase), targetPath, describe(targetPath, target == databaseManager),
+                    rows.size(), (System.nanoTime() - start) / 1_000_000.0));
+        }
+
+        private String describe(String path, boolean database) {
+            return database ? "table " + ((AbstractJdbcDataManager<K, V>) databaseManager).getTable() : new File(path).length() + " bytes";
+        }
+    }
+
+    private static void convertAll(String command, List<String> selected, Map<String, TableFormats<?, ?>> tables, GenerationManifest manifest) throws IOException {
+        for (String name : selected) {
+            System.out.println("Converting " + name + " (" + command + "):");
+            tables.get(name).convert(command, manifest);
+        }
+    }
+
+    /** Brings the data files up to date with the journal, holding the writer lock like the application does. */
+    private static void checkpoint() {
+        DataStore.initialize(); // exits if the application is running
+        DataStore.checkpoint();
+        DataStore.shutdown();
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || !COMMANDS.contains(args[0])) {
+            System.err.println("Usage: DataMigrationTool <to-binary|to-csv|to-jdbc|from-jdbc> [table ...] | DataMigrationTool checkpoint");
+            System.exit(2);
+        }
+        String command = args[0];
+        if (command.equals("checkpoint")) {
+            checkpoint();
+            return;
+        }
+
+        Map<String, TableFormats<?, ?>> tables = new LinkedHashMap<>();
+        tables.put("users", new TableFormats<>(FilePathConstants.USERS_FILE, new UserDataManager(), new UserBinaryDataManager(), new UserJdbcDataManager()));
+        tables.put("projects", new TableFormats<>(FilePathConstants.PROJECTS_FILE, new ProjectDataManager(), new ProjectBinaryDataManager(), new ProjectJdbcDataManager()));
+        tables.put("applications", new TableFormats<>(FilePathConstants.APPLICATIONS_FILE, new ApplicationDataManager(), new ApplicationBinaryDataManager(), new ApplicationJdbcDataManager()));
+        tables.put("enquiries", new TableFormats<>(FilePathConstants.ENQUIRIES_FILE, new EnquiryDataManager(), new EnquiryBinaryDataManager(), new EnquiryJdbcDataManager()));
+        tables.put("officer_registrations", new TableFormats<>(FilePathConstants.OFFICER_REGISTRATIONS_FILE, new HDBOfficerRegDataManager(), new HDBOfficerRegBinaryDataManager(), new HDBOfficerRegJdbcDataManager()));
+        tables.put("flat_bookings", new TableFormats<>(FilePathConstants.FLAT_BOOKINGS_FILE, new FlatBookingDataManager(), new FlatBookingBinaryDataManager(), new FlatBookingJdbcDataManager()));
+
+        List<String> selected = (args.length > 1) ? Arrays.asList(args).subList(1, args.length) : List.copyOf(tables.keySet());
+        for (String name : selected) {
+            if (!tables.containsKey(name)) {
+                System.err.println("Unknown table '" + name + "'. Known tables: " + tables.keySet());
+                System.exit(2);
+            }
+        }
+        // Converting under a running application would lose its later saves, so take the writer lock first
+        try (DataDirectoryLock lock = DataDirectoryLock.acquireWriter(FilePathConstants.LOCK_FILE)) {
+            if (command.endsWith("jdbc")) {
+                JdbcDatabase.checkDriver();
+            }
+            lock.whileUpdating(() -> { // read-only viewers wait while files are replaced
+                GenerationManifest manifest = new GenerationManifest(FilePathConstants.MANIFEST_FILE);
+                manifest.load();
+                if (command.endsWith("jdbc")) {
+                    // One transaction: either every selected table is copied or none is
+                    JdbcDatabase.transaction(connection -> {
+                        convertAll(command, selected, tables, manifest);
+                        return null;
+                    });
+                } else {
+                    convertAll(command, selected, tables, manifest);
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            JdbcDatabase.close();
+        }
+    }
+}
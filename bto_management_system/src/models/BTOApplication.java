@@ -22,6 +22,7 @@ public class BTOApplication implements Serializable {
 
     // Constructor for new application
     public BTOApplication(String applicantNric, int projectId, FlatType appliedFlatType) {
+        ModelChangeTracker.creating(BTOApplication.class);
         this.applicationId = idCounter.incrementAndGet();
         this.applicantNric = applicantNric;
         this.projectId = projectId;
@@ -33,6 +34,9 @@ public class BTOApplication implements Serializable {
         this.submissionDate = new Date();
     }
 
+    // Constructor for records of OffHeapApplicationMap, which keep their fields off the heap
+    BTOApplication() {}
+
      // Constructor for loading existing application
     public BTOApplication(int applicationId, String applicantNric, int projectId, BTOApplicationStatus status,
                           FlatType appliedFlatType, FlatType bookedFlatType, Integer flatBookingId,
@@ -63,37 +67,48 @@ public class BTOApplication implements Serializable {
     public Date getSubmissionDate() { return submissionDate; }
 
     // Setters
-    public void setStatus(BTOApplicationStatus status) { this.status = status; }
+    public void setStatus(BTOApplicationStatus status) { assignStatus(status); ModelChangeTracker.changed(this); }
     public void setBookedFlatType(FlatType bookedFlatType) {
-        if (this.status == BTOApplicationStatus.BOOKED) {
-            this.bookedFlatType = bookedFlatType;
+        if (getStatus() == BTOApplicationStatus.BOOKED) {
+            assignBookedFlatType(bookedFlatType);
+            ModelChangeTracker.changed(this);
         } else {
-             System.err.println("Warning: Attempted to set booked flat type for application " + applicationId + " while status is " + this.status);
+             System.err.println("Warning: Attempted to set booked flat type for application " + getApplicationId() + " while status is " + getStatus());
         }
     }
     public void setFlatBookingId(Integer flatBookingId) {
-        if (this.status == BTOApplicationStatus.BOOKED && flatBookingId != null) {
-            this.flatBookingId = flatBookingId;
+        if (getStatus() == BTOApplicationStatus.BOOKED && flatBookingId != null) {
+            assignFlatBookingId(flatBookingId);
+            ModelChangeTracker.changed(this);
         } else if (flatBookingId == null) {
-            this.flatBookingId = null;
+            assignFlatBookingId(null);
+            ModelChangeTracker.changed(this);
         } else {
-             System.err.println("Warning: Attempted to set flat booking ID for application " + applicationId + " while status is " + this.status + " or with null ID when booking");
+             System.err.println("Warning: Attempted to set flat booking ID for application " + getApplicationId() + " while status is " + getStatus() + " or with null ID when booking");
         }
     }
-    public void requestWithdrawal() { this.withdrawalRequested = true; }
+    public void requestWithdrawal() { assignWithdrawalRequested(true); ModelChangeTracker.changed(this); }
     public void approveWithdrawal() {
-        this.withdrawalRequested = false;
+        assignWithdrawalRequested(false);
         this.setStatus(BTOApplicationStatus.WITHDRAWN);
     }
-    public void rejectWithdrawal() { this.withdrawalRequested = false; }
+    public void rejectWithdrawal() { assignWithdrawalRequested(false); ModelChangeTracker.changed(this); }
+
+    // Field writes behind the setters; OffHeapApplicationMap's records write to their slot instead
+    void assignStatus(BTOApplicationStatus status) { this.status = status; }
+    void assignBookedFlatType(FlatType bookedFlatType) { this.bookedFlatType = bookedFlatType; }
+    void assignFlatBookingId(Integer flatBookingId) { this.flatBookingId = flatBookingId; }
+    void assignWithdrawalRequested(boolean withdrawalRequested) { this.withdrawalRequested = withdrawalRequested; }
 
     @Override
     public String toString() {
         return "BTOApplication{" +
-               "applicationId=" + applicationId + ", applicantNric='" + applicantNric + '\'' + ", projectId=" + projectId +
-               ", status=" + status + ", appliedFlatType=" + appliedFlatType + ", bookedFlatType=" + bookedFlatType +
-               ", withdrawalRequested=" + withdrawalRequested + '}';
+               "applicationId=" + getApplicationId() + ", applicantNric='" + getApplicantNric() + '\'' + ", projectId=" + getProjectId() +
+               ", status=" + getStatus() + ", appliedFlatType=" + getAppliedFlatType() + ", bookedFlatType=" + getBookedFlatType() +
+               ", withdrawalRequested=" + isWithdrawalRequested() + '}';
     }
     public static void resetIdCounter() { idCounter.set(0); }
     public static void updateIdCounter(int maxId) { if (maxId >= idCounter.get()) idCounter.set(maxId + 1); }
+    public static int getIdCounter() { return idCounter.get(); }
+    public static void restoreIdCounter(int value) { idCounter.set(value); }
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ public class Enquiry implements Serializable {
 
     // Constructor for new enquiry
     public Enquiry(String submitterNric, int projectId, String content) {
+        ModelChangeTracker.creating(Enquiry.class);
         this.enquiryId = idCounter.incrementAndGet();
         this.submitterNric = submitterNric;
         this.projectId = projectId;
@@ -63,6 +64,7 @@ public class Enquiry implements Serializable {
         if (this.status != EnquiryStatus.CLOSED) {
             this.content = content;
             this.lastUpdateDate = new Date();
+            ModelChangeTracker.changed(this);
         } else {
             System.err.println("Cannot edit a closed enquiry.");
         }
@@ -72,14 +74,17 @@ public class Enquiry implements Serializable {
         this.replies.add(formattedReply);
         this.status = EnquiryStatus.ANSWERED;
         this.lastUpdateDate = new Date();
+        ModelChangeTracker.changed(this);
     }
     public void closeEnquiry() {
         this.status = EnquiryStatus.CLOSED;
         this.lastUpdateDate = new Date();
+        ModelChangeTracker.changed(this);
     }
     public void setStatus(EnquiryStatus status) {
         this.status = status;
         this.lastUpdateDate = new Date();
+        ModelChangeTracker.changed(this);
     }
 
     @Override
@@ -90,4 +95,6 @@ public class Enquiry implements Serializable {
     }
     public static void resetIdCounter() { idCounter.set(0); }
     public static void updateIdCounter(int maxId) { if (maxId >= idCounter.get()) idCounter.set(maxId + 1); }
+    public static int getIdCounter() { return idCounter.get(); }
+    public static void restoreIdCounter(int value) { idCounter.set(value); }
 }
\ No newline at end of file
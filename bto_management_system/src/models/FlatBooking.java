@@ -19,6 +19,7 @@ public class FlatBooking implements Serializable {
 
      // Constructor for new booking
     public FlatBooking(int applicationId, String applicantNric, int projectId, FlatType bookedFlatType, String bookingOfficerNric) {
+        ModelChangeTracker.creating(FlatBooking.class);
         this.bookingId = idCounter.incrementAndGet();
         this.applicationId = applicationId;
         this.applicantNric = applicantNric;
@@ -61,4 +62,6 @@ public class FlatBooking implements Serializable {
     }
     public static void resetIdCounter() { idCounter.set(0); }
     public static void updateIdCounter(int maxId) { if (maxId >= idCounter.get()) idCounter.set(maxId + 1); }
+    public static int getIdCounter() { return idCounter.get(); }
+    public static void restoreIdCounter(int value) { idCounter.set(value); }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ public class HDBOfficerRegistration implements Serializable {
 
     // Constructor for new registration request
     public HDBOfficerRegistration(String officerNric, int projectId) {
+        ModelChangeTracker.creating(HDBOfficerRegistration.class);
         this.registrationId = idCounter.incrementAndGet();
         this.officerNric = officerNric;
         this.projectId = projectId;
@@ -53,6 +54,7 @@ public class HDBOfficerRegistration implements Serializable {
         if (this.status == RequestStatus.PENDING) {
             this.status = RequestStatus.APPROVED;
             this.decisionDate = new Date();
+            ModelChangeTracker.changed(this);
         } else {
             System.err.println("Cannot approve registration " + registrationId + " with status " + status);
         }
@@ -61,6 +63,7 @@ public class HDBOfficerRegistration implements Serializable {
          if (this.status == RequestStatus.PENDING) {
             this.status = RequestStatus.REJECTED;
             this.decisionDate = new Date();
+            ModelChangeTracker.changed(this);
         } else {
              System.err.println("Cannot reject registration " + registrationId + " with status " + status);
         }
@@ -74,4 +77,6 @@ public class HDBOfficerRegistration implements Serializable {
     }
     public static void resetIdCounter() { idCounter.set(0); }
     public static void updateIdCounter(int maxId) { if (maxId >= idCounter.get()) idCounter.set(maxId + 1); }
+    public static int getIdCounter() { return idCounter.get(); }
+    public static void restoreIdCounter(int value) { idCounter.set(value); }
 }
\ No newline at end of file
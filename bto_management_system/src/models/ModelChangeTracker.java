@@ -0,0 +1,36 @@
+package models;
+
+import java.util.function.Consumer;
+
+/**
+ * Notifies the persistence layer when a persisted field of a model object changes,
+ * so that only modified tables need to be written on the next save, and before a new
+ * object takes an ID, so that a lazily loaded table can be loaded (and its ID counter set) first.
+ */
+public final class ModelChangeTracker {
+
+    private static volatile Consumer<Object> listener = model -> {};
+    private static volatile Consumer<Class<?>> creationListener = type -> {};
+
+    private ModelChangeTracker() {}
+
+    /** Registers the single listener (normally DataStore) that receives change notifications. */
+    public static void setListener(Consumer<Object> changeListener) {
+        listener = (changeListener != null) ? changeListener : model -> {};
+    }
+
+    /** Registers the single listener (normally DataStore) called before a new object of a model class takes an ID. */
+    public static void setCreationListener(Consumer<Class<?>> listener) {
+        creationListener = (listener != null) ? listener : type -> {};
+    }
+
+    /** Called by model mutators after a persisted field has changed. */
+    static void changed(Object model) {
+        listener.accept(model);
+    }
+
+    /** Called by the constructors of new model objects before they take the next ID. */
+    static void creating(Class<?> type) {
+        creationListener.accept(type);
+    }
+}
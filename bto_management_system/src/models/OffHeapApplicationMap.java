@@ -0,0 +1,587 @@
+package models;
+
+import enums.BTOApplicationStatus;
+import enums.FlatType;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The applications table kept off the heap: each application is a fixed-width slot in a direct buffer,
+ * found by application ID through an index of primitive ints, so the table costs no object headers,
+ * boxed keys or Date objects per row.
+ * <p>
+ * {@link #get} and iteration return flyweight records: BTOApplications that read and write their slot,
+ * so setters called on them change the table (and are tracked like any other change). Heap objects put into
+ * the map are copied into a slot; changes made to them later must be written back with {@link #writeBack}.
+ * A record of an application that was removed keeps its ID but throws on any other access.
+ * Thread-safe; iteration is weakly consistent, like that of a ConcurrentHashMap.
+ */
+public final class OffHeapApplicationMap extends AbstractMap<Integer, BTOApplication> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Slot layout
+    private static final int ID = 0;                 // int
+    private static final int PROJECT_ID = 4;         // int
+    private static final int FLAT_BOOKING_ID = 8;    // int, valid if HAS_BOOKING_ID
+    private static final int SUBMISSION_DATE = 12;   // long epoch millis, valid if HAS_DATE
+    private static final int STATUS = 20;            // byte: enum ordinal + 1, 0 for null
+    private static final int APPLIED_FLAT_TYPE = 21; // byte: same
+    private static final int BOOKED_FLAT_TYPE = 22;  // byte: same
+    private static final int FLAGS = 23;             // byte
+    private static final int NRIC_LENGTH = 24;       // byte
+    private static final int NRIC = 25;              // UTF-8 bytes, up to NRIC_CAPACITY
+    private static final int NRIC_CAPACITY = 23;
+    static final int SLOT_BYTES = 48;
+
+    private static final byte USED = 1, WITHDRAWAL_REQUESTED = 2, HAS_BOOKING_ID = 4, HAS_DATE = 8, NRIC_OVERFLOW = 16;
+
+    private static final long ABSENT = Long.MIN_VALUE; // read() of a field whose flag is not set
+
+    private static final BTOApplicationStatus[] STATUSES = BTOApplicationStatus.values();
+    private static final FlatType[] FLAT_TYPES = FlatType.values();
+
+    private final transient StampedLock lock = new StampedLock(); // getters read optimistically, without writing to it
+    private transient ByteBuffer slots;
+    private transient int slotCount;      // slots handed out so far (used or freed)
+    private transient int[] freeSlots = new int[16];
+    private transient int freeCount;
+    private transient int size;
+    // Open-addressing index from application ID to slot; slot -1 marks an empty bucket
+    private transient int[] indexKeys;
+    private transient int[] indexSlots;
+    // Applicant NRICs too long for a slot (never the case for valid NRICs)
+    private transient Map<Integer, String> overflowNrics = new HashMap<>();
+
+    public OffHeapApplicationMap() {
+        this(64);
+    }
+
+    public OffHeapApplicationMap(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        int buckets = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+        indexKeys = new int[buckets];
+        indexSlots = new int[buckets];
+        Arrays.fill(indexSlots, -1);
+    }
+
+    /** Copies the applications of a freshly loaded map into a new off-heap map. */
+    public static OffHeapApplicationMap copyOf(Map<Integer, BTOApplication> applications) {
+        OffHeapApplicationMap map = new OffHeapApplicationMap(applications.size());
+        map.putAll(applications);
+        return map;
+    }
+
+    /** Bytes of direct memory held by the slots (the index stays on the heap, at 8 bytes per bucket). */
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return slots.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies a changed heap application into its slot, if the table holds it; records of this map
+     * already write through and are ignored.
+     */
+    public void writeBack(BTOApplication application) {
+        if (application instanceof Record && ((Record) application).owner == this) return;
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(application.getApplicationId());
+            if (slot >= 0) write(slot, application);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Integer)) return false;
+        long stamp = lock.readLock();
+        try {
+            return find((Integer) key) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public BTOApplication get(Object key) {
+        if (!(key instanceof Integer)) return null;
+        int id = (Integer) key;
+        long stamp = lock.readLock();
+        try {
+            int slot = find(id);
+            return (slot >= 0) ? new Record(this, id, slot) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public BTOApplication put(Integer key, BTOApplication application) {
+        if (key == null || application == null) throw new NullPointerException();
+        if (key != application.getApplicationId()) {
+            throw new IllegalArgumentException("Application " + application.getApplicationId() + " put under key " + key);
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(key);
+            if (slot >= 0) {
+                if (application instanceof Record && ((Record) application).owner == this) return application; // already its slot
+                BTOApplication previous = detach(slot);
+                write(slot, application);
+                return previous;
+            }
+            slot = allocateSlot();
+            write(slot, application);
+            insertIndex(key, slot);
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public BTOApplication remove(Object key) {
+        if (!(key instanceof Integer)) return null;
+        int id = (Integer) key;
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(id);
+            if (slot < 0) return null;
+            BTOApplication previous = detach(slot);
+            removeIndex(id);
+            slots.put(slot * SLOT_BYTES + FLAGS, (byte) 0);
+            overflowNrics.remove(id);
+            if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            freeSlots[freeCount++] = slot;
+            size--;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) slots.put(slot * SLOT_BYTES + FLAGS, (byte) 0);
+            slotCount = 0;
+            freeCount = 0;
+            size = 0;
+            Arrays.fill(indexSlots, -1);
+            overflowNrics.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Set<Entry<Integer, BTOApplication>> entrySet() {
+        return new AbstractSet<Entry<Integer, BTOApplication>>() {
+            @Override
+            public Iterator<Entry<Integer, BTOApplication>> iterator() {
+                SlotIterator records = new SlotIterator();
+                return new Iterator<Entry<Integer, BTOApplication>>() {
+                    @Override public boolean hasNext() { return records.hasNext(); }
+                    @Override public void remove() { records.remove(); }
+
+                    @Override
+                    public Entry<Integer, BTOApplication> next() {
+                        BTOApplication record = records.next();
+                        return new SimpleImmutableEntry<>(record.getApplicationId(), record);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OffHeapApplicationMap.this.size();
+            }
+        };
+    }
+
+    // Iterates the records directly, without boxing keys into entries
+    @Override
+    public Collection<BTOApplication> values() {
+        return new AbstractCollection<BTOApplication>() {
+            @Override
+            public Iterator<BTOApplication> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapApplicationMap.this.size();
+            }
+        };
+    }
+
+    /** Walks the slots in order, skipping free ones; sees applications added or removed meanwhile if it has not passed them. */
+    private final class SlotIterator implements Iterator<BTOApplication> {
+        private int nextSlot = -1;
+        private Record next;
+        private Record last;
+
+        SlotIterator() {
+            advance();
+        }
+
+        private void advance() {
+            long stamp = lock.readLock();
+            try {
+                next = null;
+                while (++nextSlot < slotCount) {
+                    int base = nextSlot * SLOT_BYTES;
+                    if ((slots.get(base + FLAGS) & USED) != 0) {
+                        next = new Record(OffHeapApplicationMap.this, slots.getInt(base + ID), nextSlot);
+                        return;
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public BTOApplication next() {
+            if (next == null) throw new NoSuchElementException();
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            OffHeapApplicationMap.this.remove(last.id);
+            last = null;
+        }
+    }
+
+    // Serialized (e.g. into the warm-start image) as a plain map of heap copies
+    private Object writeReplace() {
+        long stamp = lock.readLock();
+        try {
+            Map<Integer, BTOApplication> copy = new HashMap<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if ((slots.get(slot * SLOT_BYTES + FLAGS) & USED) != 0) copy.put(slots.getInt(slot * SLOT_BYTES + ID), detach(slot));
+            }
+            return copy;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // --- Slots (callers hold the lock) ---
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        if ((slotCount + 1) * SLOT_BYTES > slots.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(slots.capacity() * 2);
+            ByteBuffer used = slots.duplicate();
+            used.position(0).limit(slotCount * SLOT_BYTES);
+            grown.put(used);
+            slots = grown; // records only hold slot numbers, which stay valid
+        }
+        return slotCount++;
+    }
+
+    private void write(int slot, BTOApplication application) {
+        int base = slot * SLOT_BYTES;
+        int id = application.getApplicationId();
+        Integer flatBookingId = application.getFlatBookingId();
+        Date submissionDate = application.getSubmissionDate();
+        slots.putInt(base + ID, id);
+        slots.putInt(base + PROJECT_ID, application.getProjectId());
+        slots.putInt(base + FLAT_BOOKING_ID, (flatBookingId != null) ? flatBookingId : 0);
+        slots.putLong(base + SUBMISSION_DATE, (submissionDate != null) ? submissionDate.getTime() : 0L);
+        slots.put(base + STATUS, code(application.getStatus()));
+        slots.put(base + APPLIED_FLAT_TYPE, code(application.getAppliedFlatType()));
+        slots.put(base + BOOKED_FLAT_TYPE, code(application.getBookedFlatType()));
+        byte flags = USED;
+        if (application.isWithdrawalRequested()) flags |= WITHDRAWAL_REQUESTED;
+        if (flatBookingId != null) flags |= HAS_BOOKING_ID;
+        if (submissionDate != null) flags |= HAS_DATE;
+        flags |= writeNric(base, id, application.getApplicantNric());
+        slots.put(base + FLAGS, flags);
+    }
+
+    /** Writes the NRIC into the slot, or aside if it does not fit; returns the flag to set. */
+    private byte writeNric(int base, int id, String nric) {
+        byte[] bytes = (nric != null) ? nric.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (bytes.length > NRIC_CAPACITY) {
+            overflowNrics.put(id, nric);
+            slots.put(base + NRIC_LENGTH, (byte) 0);
+            return NRIC_OVERFLOW;
+        }
+        overflowNrics.remove(id);
+        slots.put(base + NRIC_LENGTH, (byte) (nric != null ? bytes.length : -1));
+        for (int i = 0; i < bytes.length; i++) slots.put(base + NRIC + i, bytes[i]);
+        return 0;
+    }
+
+    private String readNric(int base) {
+        if ((slots.get(base + FLAGS) & NRIC_OVERFLOW) != 0) return overflowNrics.get(slots.getInt(base + ID));
+        int length = slots.get(base + NRIC_LENGTH);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = slots.get(base + NRIC + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** A heap copy of the application in a slot. */
+    private BTOApplication detach(int slot) {
+        int base = slot * SLOT_BYTES;
+        byte flags = slots.get(base + FLAGS);
+        return new BTOApplication(slots.getInt(base + ID), readNric(base), slots.getInt(base + PROJECT_ID),
+                decode(STATUSES, slots.get(base + STATUS)), decode(FLAT_TYPES, slots.get(base + APPLIED_FLAT_TYPE)),
+                decode(FLAT_TYPES, slots.get(base + BOOKED_FLAT_TYPE)),
+                (flags & HAS_BOOKING_ID) != 0 ? slots.getInt(base + FLAT_BOOKING_ID) : null,
+                (flags & WITHDRAWAL_REQUESTED) != 0,
+                (flags & HAS_DATE) != 0 ? new Date(slots.getLong(base + SUBMISSION_DATE)) : null);
+    }
+
+    private static byte code(Enum<?> value) {
+        return (byte) (value != null ? value.ordinal() + 1 : 0);
+    }
+
+    private static <E> E decode(E[] values, byte code) {
+        return (code > 0) ? values[code - 1] : null;
+    }
+
+    // --- Index: linear probing, deletions shift later entries back so no tombstones are needed ---
+
+    private int bucketOf(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (indexKeys.length - 1);
+    }
+
+    private int find(int id) {
+        for (int bucket = bucketOf(id); ; bucket = (bucket + 1) & (indexKeys.length - 1)) {
+            if (indexSlots[bucket] < 0) return -1;
+            if (indexKeys[bucket] == id) return indexSlots[bucket];
+        }
+    }
+
+    private void insertIndex(int id, int slot) {
+        if ((size + 1) * 2 > indexKeys.length) {
+            int[] oldKeys = indexKeys, oldSlots = indexSlots;
+            indexKeys = new int[oldKeys.length * 2];
+            indexSlots = new int[oldKeys.length * 2];
+            Arrays.fill(indexSlots, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] >= 0) placeInIndex(oldKeys[i], oldSlots[i]);
+            }
+        }
+        placeInIndex(id, slot);
+    }
+
+    private void placeInIndex(int id, int slot) {
+        int bucket = bucketOf(id);
+        while (indexSlots[bucket] >= 0) bucket = (bucket + 1) & (indexKeys.length - 1);
+        indexKeys[bucket] = id;
+        indexSlots[bucket] = slot;
+    }
+
+    private void removeIndex(int id) {
+        int mask = indexKeys.length - 1;
+        int bucket = bucketOf(id);
+        while (indexKeys[bucket] != id || indexSlots[bucket] < 0) bucket = (bucket + 1) & mask;
+        indexSlots[bucket] = -1;
+        // Move back each following entry of the run that can no longer be reached past the gap
+        for (int next = (bucket + 1) & mask; indexSlots[next] >= 0; next = (next + 1) & mask) {
+            int home = bucketOf(indexKeys[next]);
+            if (((next - home) & mask) >= ((next - bucket) & mask)) {
+                indexKeys[bucket] = indexKeys[next];
+                indexSlots[bucket] = indexSlots[next];
+                indexSlots[next] = -1;
+                bucket = next;
+            }
+        }
+    }
+
+    // --- Record access ---
+
+    /** Offset of a record's slot; the caller holds the lock. */
+    private int baseOf(Record record) {
+        int base = record.slot * SLOT_BYTES;
+        if (record.slot >= slotCount || (slots.get(base + FLAGS) & USED) == 0 || slots.getInt(base + ID) != record.id) {
+            throw new IllegalStateException("Application " + record.id + " has been removed from the table");
+        }
+        return base;
+    }
+
+    /**
+     * Reads a field of a record (width 1, 4 or 8 bytes) without locking, unless a write got in between.
+     * @param flag If not 0, the flag that says whether the field has a value.
+     * @return The value, or ABSENT if the flag is not set.
+     */
+    private long read(Record record, int field, int width, byte flag) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            ByteBuffer buffer = slots; // slots and slotCount may be from different writes until validated
+            int base = record.slot * SLOT_BYTES;
+            if (record.slot < slotCount && base + SLOT_BYTES <= buffer.capacity()) {
+                byte flags = buffer.get(base + FLAGS);
+                int id = buffer.getInt(base + ID);
+                long value = get(buffer, base + field, width);
+                if (lock.validate(stamp) && (flags & USED) != 0 && id == record.id) {
+                    return (flag != 0 && (flags & flag) == 0) ? ABSENT : value;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            int base = baseOf(record);
+            return (flag != 0 && (slots.get(base + FLAGS) & flag) == 0) ? ABSENT : get(slots, base + field, width);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long get(ByteBuffer buffer, int offset, int width) {
+        switch (width) {
+            case 1: return buffer.get(offset);
+            case 4: return buffer.getInt(offset);
+            default: return buffer.getLong(offset);
+        }
+    }
+
+    private void writeByte(Record record, int field, byte value) {
+        long stamp = lock.writeLock();
+        try {
+            slots.put(baseOf(record) + field, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void writeFlag(Record record, byte flag, boolean set) {
+        long stamp = lock.writeLock();
+        try {
+            int base = baseOf(record);
+            byte flags = slots.get(base + FLAGS);
+            slots.put(base + FLAGS, (byte) (set ? flags | flag : flags & ~flag));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void writeFlatBookingId(Record record, Integer flatBookingId) {
+        long stamp = lock.writeLock();
+        try {
+            int base = baseOf(record);
+            byte flags = slots.get(base + FLAGS);
+            slots.putInt(base + FLAT_BOOKING_ID, (flatBookingId != null) ? flatBookingId : 0);
+            slots.put(base + FLAGS, (byte) (flatBookingId != null ? flags | HAS_BOOKING_ID : flags & ~HAS_BOOKING_ID));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Flyweight over one slot; equal to every other record of the same slot and application. */
+    private static final class Record extends BTOApplication {
+        private static final long serialVersionUID = 1L;
+
+        private final transient OffHeapApplicationMap owner;
+        private final int id;
+        private final int slot;
+
+        Record(OffHeapApplicationMap owner, int id, int slot) {
+            this.owner = owner;
+            this.id = id;
+            this.slot = slot;
+        }
+
+        @Override public int getApplicationId() { return id; }
+        @Override public int getProjectId() { return (int) owner.read(this, PROJECT_ID, 4, (byte) 0); }
+        @Override public BTOApplicationStatus getStatus() { return decode(STATUSES, (byte) owner.read(this, STATUS, 1, (byte) 0)); }
+        @Override public FlatType getAppliedFlatType() { return decode(FLAT_TYPES, (byte) owner.read(this, APPLIED_FLAT_TYPE, 1, (byte) 0)); }
+        @Override public FlatType getBookedFlatType() { return decode(FLAT_TYPES, (byte) owner.read(this, BOOKED_FLAT_TYPE, 1, (byte) 0)); }
+        @Override public boolean isWithdrawalRequested() { return (owner.read(this, FLAGS, 1, (byte) 0) & WITHDRAWAL_REQUESTED) != 0; }
+
+        @Override
+        public Integer getFlatBookingId() {
+            long value = owner.read(this, FLAT_BOOKING_ID, 4, HAS_BOOKING_ID);
+            return (value != ABSENT) ? (int) value : null;
+        }
+
+        @Override
+        public Date getSubmissionDate() {
+            long value = owner.read(this, SUBMISSION_DATE, 8, HAS_DATE);
+            return (value != ABSENT) ? new Date(value) : null;
+        }
+
+        @Override
+        public String getApplicantNric() {
+            long stamp = owner.lock.readLock();
+            try {
+                return owner.readNric(owner.baseOf(this));
+            } finally {
+                owner.lock.unlockRead(stamp);
+            }
+        }
+
+        @Override void assignStatus(BTOApplicationStatus status) { owner.writeByte(this, STATUS, code(status)); }
+        @Override void assignBookedFlatType(FlatType bookedFlatType) { owner.writeByte(this, BOOKED_FLAT_TYPE, code(bookedFlatType)); }
+        @Override void assignFlatBookingId(Integer flatBookingId) { owner.writeFlatBookingId(this, flatBookingId); }
+        @Override void assignWithdrawalRequested(boolean withdrawalRequested) { owner.writeFlag(this, WITHDRAWAL_REQUESTED, withdrawalRequested); }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Record && ((Record) other).owner == owner && ((Record) other).slot == slot && ((Record) other).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        // Serialized as a heap copy
+        private Object writeReplace() {
+            long stamp = owner.lock.readLock();
+            try {
+                return owner.detach(owner.baseOf(this) / SLOT_BYTES);
+            } finally {
+                owner.lock.unlockRead(stamp);
+            }
+        }
+    }
+}
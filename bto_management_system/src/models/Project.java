@@ -29,6 +29,7 @@ public class Project implements Serializable {
     public Project(String projectName, String neighborhood, Map<FlatType, Integer> totalUnits,
                    Date applicationOpeningDate, Date applicationClosingDate,
                    String assignedHDBManagerNric, int maxOfficerSlots) {
+        ModelChangeTracker.creating(Project.class);
         this.projectId = idCounter.incrementAndGet();
         this.projectName = projectName;
         this.neighborhood = neighborhood;
@@ -79,34 +80,40 @@ public class Project implements Serializable {
      public int getRemainingOfficerSlots() { return maxOfficerSlots - getCurrentOfficerCount(); }
 
     // Setters
-    public void setProjectName(String projectName) { this.projectName = projectName; }
-    public void setNeighborhood(String neighborhood) { this.neighborhood = neighborhood; }
+    public void setProjectName(String projectName) { this.projectName = projectName; ModelChangeTracker.changed(this); }
+    public void setNeighborhood(String neighborhood) { this.neighborhood = neighborhood; ModelChangeTracker.changed(this); }
     public void setTotalUnits(Map<FlatType, Integer> totalUnits) {
         this.totalUnits = new HashMap<>(totalUnits);
         this.availableUnits = new HashMap<>(totalUnits);
+        ModelChangeTracker.changed(this);
     }
     public void setAvailableUnits(Map<FlatType, Integer> availableUnits) {
         this.availableUnits = new HashMap<>(availableUnits);
+        ModelChangeTracker.changed(this);
     }
-    public void setApplicationOpeningDate(Date applicationOpeningDate) { this.applicationOpeningDate = applicationOpeningDate; }
-    public void setApplicationClosingDate(Date applicationClosingDate) { this.applicationClosingDate = applicationClosingDate; }
-    public void setMaxOfficerSlots(int maxOfficerSlots) { this.maxOfficerSlots = maxOfficerSlots; }
-    public void setVisibility(boolean visibility) { this.visibility = visibility; }
+    public void setApplicationOpeningDate(Date applicationOpeningDate) { this.applicationOpeningDate = applicationOpeningDate; ModelChangeTracker.changed(this); }
+    public void setApplicationClosingDate(Date applicationClosingDate) { this.applicationClosingDate = applicationClosingDate; ModelChangeTracker.changed(this); }
+    public void setMaxOfficerSlots(int maxOfficerSlots) { this.maxOfficerSlots = maxOfficerSlots; ModelChangeTracker.changed(this); }
+    public void setVisibility(boolean visibility) { this.visibility = visibility; ModelChangeTracker.changed(this); }
 
     public boolean addOfficer(String officerNric) {
         if (assignedHDBOfficerNrics.size() < maxOfficerSlots && !assignedHDBOfficerNrics.contains(officerNric)) {
             assignedHDBOfficerNrics.add(officerNric);
+            ModelChangeTracker.changed(this);
             return true;
         }
         return false;
     }
     public boolean removeOfficer(String officerNric) {
-        return assignedHDBOfficerNrics.remove(officerNric);
+        boolean removed = assignedHDBOfficerNrics.remove(officerNric);
+        if (removed) ModelChangeTracker.changed(this);
+        return removed;
     }
     public boolean decrementAvailableUnits(FlatType type) {
         int currentAvailable = availableUnits.getOrDefault(type, 0);
         if (currentAvailable > 0) {
             availableUnits.put(type, currentAvailable - 1);
+            ModelChangeTracker.changed(this);
             return true;
         }
         return false;
@@ -121,6 +128,7 @@ public class Project implements Serializable {
                                " beyond total units for project " + projectId);
             availableUnits.put(type, total);
         }
+        ModelChangeTracker.changed(this);
     }
     public boolean isWithinApplicationPeriod(Date currentDate) {
         if (applicationOpeningDate == null || applicationClosingDate == null) {
@@ -136,4 +144,6 @@ public class Project implements Serializable {
     }
     public static void resetIdCounter() { idCounter.set(0); }
     public static void updateIdCounter(int maxId) { if (maxId >= idCounter.get()) idCounter.set(maxId + 1); }
+    public static int getIdCounter() { return idCounter.get(); }
+    public static void restoreIdCounter(int value) { idCounter.set(value); }
 }
\ No newline at end of file
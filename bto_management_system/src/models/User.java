@@ -36,12 +36,13 @@ public abstract class User implements Serializable {
     public boolean setPassword(String oldPassword, String newPassword) {
         if (this.password.equals(oldPassword)) {
             this.password = newPassword;
+            ModelChangeTracker.changed(this);
             return true;
         }
         return false;
     }
-    public void setAge(int age) { this.age = age; }
-    public void setMaritalStatus(MaritalStatus maritalStatus) { this.maritalStatus = maritalStatus; }
+    public void setAge(int age) { this.age = age; ModelChangeTracker.changed(this); }
+    public void setMaritalStatus(MaritalStatus maritalStatus) { this.maritalStatus = maritalStatus; ModelChangeTracker.changed(this); }
 
 
     @Override
@@ -5,4 +5,6 @@
  * 
  */
 module bto_management_system {
+    requires java.sql; // JDBC storage backend
+    requires java.management; // ApplicationMemoryBenchmark
 }
\ No newline at end of file
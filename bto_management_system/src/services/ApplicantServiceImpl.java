@@ -7,6 +7,7 @@ import enums.*;
 import stores.DataStore;
 import utils.TextFormatUtil;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +29,14 @@ public class ApplicantServiceImpl implements IApplicantService {
     @Override
     public BTOApplication viewApplicationStatus(String applicantNric) {
         if (applicantNric == null || applicantNric.trim().isEmpty()) return null;
-        return DataStore.getApplications().values().stream()
+        BTOApplication active = findActiveApplication(DataStore.getApplicationsByApplicant(applicantNric), applicantNric);
+        if (active != null) return active;
+        // A booking in an archived project still counts (and is still shown); it is read-only from here on
+        return findActiveApplication(DataStore.getArchivedApplicationsByApplicant(applicantNric), applicantNric);
+    }
+
+    private BTOApplication findActiveApplication(Collection<BTOApplication> applications, String applicantNric) {
+        return applications.stream()
                 .filter(app -> applicantNric.equals(app.getApplicantNric()))
                 .filter(app -> app.getStatus() != BTOApplicationStatus.UNSUCCESSFUL &&
                                app.getStatus() != BTOApplicationStatus.WITHDRAWN)
@@ -105,6 +113,10 @@ public class ApplicantServiceImpl implements IApplicantService {
     public boolean requestWithdrawal(int applicationId, String applicantNric) {
         BTOApplication application = DataStore.getApplicationById(applicationId);
         if (application == null) {
+            if (DataStore.getApplicationById(applicationId, true) != null) {
+                System.err.println(TextFormatUtil.error("Withdrawal request failed: Application " + applicationId + " belongs to an archived project and can no longer be changed."));
+                return false;
+            }
              System.err.println(TextFormatUtil.error("Withdrawal request failed: Application ID " + applicationId + " not found."));
             return false;
         }
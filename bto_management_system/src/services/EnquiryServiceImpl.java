@@ -38,8 +38,7 @@ public class EnquiryServiceImpl implements IEnquiryService {
 
     @Override
     public List<Enquiry> viewMyEnquiries(String submitterNric) {
-        return DataStore.getEnquiries().values().stream()
-                .filter(e -> e.getSubmitterNric().equals(submitterNric))
+        return DataStore.getEnquiriesBySubmitter(submitterNric).stream()
                 .sorted(Comparator.comparing(Enquiry::getSubmissionDate).reversed()) // Show newest first
                 .collect(Collectors.toList());
     }
@@ -91,8 +90,7 @@ public class EnquiryServiceImpl implements IEnquiryService {
 
     @Override
     public List<Enquiry> viewProjectEnquiries(int projectId) {
-        return DataStore.getEnquiries().values().stream()
-                .filter(e -> e.getProjectId() == projectId)
+        return DataStore.getEnquiriesByProject(projectId).stream()
                 .sorted(Comparator.comparing(Enquiry::getSubmissionDate).reversed())
                 .collect(Collectors.toList());
     }
@@ -44,22 +44,29 @@ public class FlatBookingServiceImpl implements IFlatBookingService {
         }
 
 
-        // 2. Attempt to decrement unit count (atomicity check)
-        if (!projectService.decrementProjectUnit(application.getProjectId(), bookedFlatType)) {
-            // decrementProjectUnit prints its own error if no units available
-            return null; // Failed to secure a unit
+        // Steps 2-4 run as one change, so a save never holds the booking without its BOOKED application
+        FlatBooking newBooking = DataStore.atomically(() -> {
+            // 2. Attempt to decrement unit count (atomicity check)
+            if (!projectService.decrementProjectUnit(application.getProjectId(), bookedFlatType)) {
+                // decrementProjectUnit prints its own error if no units available
+                return null; // Failed to secure a unit
+            }
+
+            // 3. Create Booking Record
+            FlatBooking booking = new FlatBooking(applicationId, application.getApplicantNric(),
+                                                  application.getProjectId(), bookedFlatType, officerNric);
+            DataStore.addFlatBooking(booking);
+
+            // 4. Update Application Status and Details
+            application.setStatus(BTOApplicationStatus.BOOKED);
+            application.setBookedFlatType(bookedFlatType); // Set the type confirmed during booking
+            application.setFlatBookingId(booking.getBookingId()); // Link application to booking
+            return booking;
+        });
+        if (newBooking == null) {
+            return null;
         }
 
-        // 3. Create Booking Record
-        FlatBooking newBooking = new FlatBooking(applicationId, application.getApplicantNric(),
-                                                 application.getProjectId(), bookedFlatType, officerNric);
-        DataStore.addFlatBooking(newBooking);
-
-        // 4. Update Application Status and Details
-        application.setStatus(BTOApplicationStatus.BOOKED);
-        application.setBookedFlatType(bookedFlatType); // Set the type confirmed during booking
-        application.setFlatBookingId(newBooking.getBookingId()); // Link application to booking
-
         // 5. Persist All Changes
         DataStore.saveAllData();
 
@@ -9,6 +9,14 @@ import stores.DataStore;
 import stores.AuthStore; // To verify manager identity
 import utils.TextFormatUtil;
 
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 public class HDBManagerServiceImpl implements IHDBManagerService {
 
     private final IProjectService projectService; 
@@ -45,9 +53,15 @@ public class HDBManagerServiceImpl implements IHDBManagerService {
          }
 
         // Check slots and add officer to project
-        if (projectService.addOfficerToProject(registration.getProjectId(), registration.getOfficerNric())) {
+        boolean added = DataStore.atomically(() -> {
+            if (!projectService.addOfficerToProject(registration.getProjectId(), registration.getOfficerNric())) {
+                return false;
+            }
             // If officer added successfully to project, approve the registration
-            registration.approve(); 
+            registration.approve();
+            return true;
+        });
+        if (added) {
             DataStore.saveAllData(); 
             return true;
         } else {
@@ -166,29 +180,32 @@ public class HDBManagerServiceImpl implements IHDBManagerService {
               return false;
          }
 
-        // Handle potential unit return if already booked
-        if (application.getStatus() == BTOApplicationStatus.BOOKED) {
-            FlatType bookedType = application.getBookedFlatType();
-             Integer bookingId = application.getFlatBookingId();
-            if (bookedType != null) {
-                projectService.incrementProjectUnit(application.getProjectId(), bookedType);
-                 System.out.println(TextFormatUtil.info("Unit of type " + bookedType.getDisplayName() + " returned to project " + project.getProjectId() + " inventory."));
+        // Unit return, booking removal and status change are saved together or not at all
+        DataStore.atomically(() -> {
+            // Handle potential unit return if already booked
+            if (application.getStatus() == BTOApplicationStatus.BOOKED) {
+                FlatType bookedType = application.getBookedFlatType();
+                 Integer bookingId = application.getFlatBookingId();
+                if (bookedType != null) {
+                    projectService.incrementProjectUnit(application.getProjectId(), bookedType);
+                     System.out.println(TextFormatUtil.info("Unit of type " + bookedType.getDisplayName() + " returned to project " + project.getProjectId() + " inventory."));
+                }
+                 // Remove the associated booking record
+                 if (bookingId != null) {
+                     DataStore.removeFlatBooking(bookingId);
+                     System.out.println(TextFormatUtil.info("Associated flat booking record (ID: " + bookingId + ") removed."));
+                 }
             }
-             // Remove the associated booking record
-             if (bookingId != null) {
-                 DataStore.removeFlatBooking(bookingId);
-                 System.out.println(TextFormatUtil.info("Associated flat booking record (ID: " + bookingId + ") removed."));
-             }
-        }
 
-        // Approve withdrawal (updates status and clears request flag)
-        application.approveWithdrawal();
+            // Approve withdrawal (updates status and clears request flag)
+            application.approveWithdrawal();
 
-        // Clear applicant's current application ID if tracked in Applicant model
-         User applicant = DataStore.getUserByNric(application.getApplicantNric());
-         if (applicant instanceof Applicant) {
-             ((Applicant) applicant).clearCurrentApplication();
-         }
+            // Clear applicant's current application ID if tracked in Applicant model
+             User applicant = DataStore.getUserByNric(application.getApplicantNric());
+             if (applicant instanceof Applicant) {
+                 ((Applicant) applicant).clearCurrentApplication();
+             }
+        });
 
         DataStore.saveAllData(); 
         return true;
@@ -219,4 +236,48 @@ public class HDBManagerServiceImpl implements IHDBManagerService {
         DataStore.saveAllData();
         return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Integer, Integer> archiveClosedProjects(String managerNric) {
+        User manager = DataStore.getUserByNric(managerNric);
+        if (manager == null || manager.getRole() != UserRole.MANAGER) {
+            System.err.println(TextFormatUtil.error("Archive failed: User (" + managerNric + ") is not an HDB Manager."));
+            return null;
+        }
+
+        Date now = new Date();
+        List<Project> candidates = DataStore.getProjects().values().stream()
+                .filter(project -> isArchivable(project, now))
+                .sorted(Comparator.comparingInt(Project::getProjectId))
+                .collect(Collectors.toList());
+        Map<Integer, Integer> archived = new LinkedHashMap<>();
+        for (Project project : candidates) {
+            try {
+                int records = DataStore.archiveProject(project.getProjectId());
+                if (records > 0) {
+                    archived.put(project.getProjectId(), records);
+                }
+            } catch (IOException e) {
+                System.err.println(TextFormatUtil.error("Archive failed for project " + project.getProjectId() + ": " + e.getMessage() + ". Its records were left in place."));
+            }
+        }
+        return archived;
+    }
+
+    /** Closed, fully booked, and with no application still awaiting a decision. */
+    private boolean isArchivable(Project project, Date now) {
+        Date closingDate = project.getApplicationClosingDate();
+        if (closingDate == null || !now.after(closingDate)) {
+            return false;
+        }
+        boolean fullyBooked = project.getTotalUnits().values().stream().anyMatch(units -> units > 0)
+                && project.getAvailableUnits().values().stream().allMatch(units -> units <= 0);
+        if (!fullyBooked) {
+            return false;
+        }
+        return DataStore.getApplicationsByProject(project.getProjectId()).stream()
+                .noneMatch(app -> app.getStatus() == BTOApplicationStatus.PENDING
+                        || app.getStatus() == BTOApplicationStatus.SUCCESSFUL
+                        || app.isWithdrawalRequested());
+    }
+}
@@ -43,8 +43,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
         }
 
         // Check if already registered (any status) for this specific project FIRST
-        boolean alreadyRegistered = DataStore.getOfficerRegistrations().values().stream()
-                .anyMatch(reg -> officerNric.equals(reg.getOfficerNric()) && reg.getProjectId() == projectId);
+        boolean alreadyRegistered = DataStore.getOfficerRegistrationsByOfficer(officerNric).stream()
+                .anyMatch(reg -> reg.getProjectId() == projectId);
         if (alreadyRegistered) {
              System.err.println(TextFormatUtil.error("Registration failed: A registration request (pending/approved/rejected) already exists for you for project " + projectId + "."));
              return null;
@@ -74,8 +74,7 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
               System.err.println(TextFormatUtil.error("Error viewing registrations: User (" + officerNric + ") not found or not an officer."));
               return Collections.emptyList();
          }
-        return DataStore.getOfficerRegistrations().values().stream()
-                .filter(reg -> officerNric.equals(reg.getOfficerNric()))
+        return DataStore.getOfficerRegistrationsByOfficer(officerNric).stream()
                 .sorted(Comparator.comparing(HDBOfficerRegistration::getRequestDate).reversed())
                 .collect(Collectors.toList());
     }
@@ -92,8 +91,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
               return Collections.emptyList();
          }
 
-        return DataStore.getOfficerRegistrations().values().stream()
-                .filter(reg -> reg.getProjectId() == projectId && reg.getStatus() == RequestStatus.PENDING)
+        return DataStore.getOfficerRegistrationsByProject(projectId).stream()
+                .filter(reg -> reg.getStatus() == RequestStatus.PENDING)
                 .sorted(Comparator.comparing(HDBOfficerRegistration::getRequestDate)) // Show oldest pending first
                 .collect(Collectors.toList());
     }
@@ -120,8 +119,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
         }
 
         // Rule 1: No intention to apply (check if already applied)
-        boolean isApplicantForThisProject = DataStore.getApplications().values().stream()
-                .anyMatch(app -> officerNric.equals(app.getApplicantNric()) && app.getProjectId() == projectId);
+        boolean isApplicantForThisProject = DataStore.getApplicationsByApplicant(officerNric).stream()
+                .anyMatch(app -> app.getProjectId() == projectId);
         if (isApplicantForThisProject) {
             System.err.println(TextFormatUtil.error("Eligibility check failed: Cannot register for project " + projectId + " because you have previously submitted/held a BTO application for it."));
             return false;
@@ -136,8 +135,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
              return false;
         }
 
-        boolean handlingConflict = DataStore.getOfficerRegistrations().values().stream()
-            .filter(reg -> officerNric.equals(reg.getOfficerNric()) && reg.getStatus() == RequestStatus.APPROVED && reg.getProjectId() != projectId)
+        boolean handlingConflict = DataStore.getOfficerRegistrationsByOfficer(officerNric).stream()
+            .filter(reg -> reg.getStatus() == RequestStatus.APPROVED && reg.getProjectId() != projectId)
             .map(reg -> projectService.getProjectById(reg.getProjectId()))
             .filter(Objects::nonNull)
             .anyMatch(handledProject -> {
@@ -153,8 +152,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
         }
 
         // Rule 3: No PENDING registration for another project with overlapping period
-        boolean pendingConflict = DataStore.getOfficerRegistrations().values().stream()
-                .filter(reg -> officerNric.equals(reg.getOfficerNric()) && reg.getStatus() == RequestStatus.PENDING && reg.getProjectId() != projectId)
+        boolean pendingConflict = DataStore.getOfficerRegistrationsByOfficer(officerNric).stream()
+                .filter(reg -> reg.getStatus() == RequestStatus.PENDING && reg.getProjectId() != projectId)
                 .map(reg -> projectService.getProjectById(reg.getProjectId()))
                 .filter(Objects::nonNull)
                 .anyMatch(pendingProject -> {
@@ -185,9 +184,8 @@ public class HDBOfficerServiceImpl implements IHDBOfficerService {
              return null;
          }
 
-        return DataStore.getApplications().values().stream()
-                .filter(app -> applicantNric.equals(app.getApplicantNric()) &&
-                               app.getStatus() == BTOApplicationStatus.SUCCESSFUL)
+        return DataStore.getApplicationsByApplicant(applicantNric).stream()
+                .filter(app -> app.getStatus() == BTOApplicationStatus.SUCCESSFUL)
                 .findFirst()
                 .orElse(null);
     }
@@ -65,10 +65,7 @@ public class ProjectServiceImpl implements IProjectService {
                System.err.println(TextFormatUtil.error("Error finding managed projects: User (" + managerNric + ") not found or not a manager."));
                return Collections.emptyList();
           }
-         return DataStore.getProjects().values().stream()
-                 .filter(p -> managerNric.equals(p.getAssignedHDBManagerNric()))
-                 .sorted(Comparator.comparingInt(Project::getProjectId))
-                 .collect(Collectors.toList());
+         return DataStore.getProjectsByManager(managerNric); // already in ID order
     }
 
 
@@ -120,8 +117,7 @@ public class ProjectServiceImpl implements IProjectService {
     }
 
      private boolean isManagerHandlingAnotherProjectInPeriod(String managerNric, Date newOpen, Date newClose) {
-         return DataStore.getProjects().values().stream()
-             .filter(p -> managerNric.equals(p.getAssignedHDBManagerNric()))
+         return DataStore.getProjectsByManager(managerNric).stream()
              .anyMatch(existingProject -> {
                  Date existingOpen = existingProject.getApplicationOpeningDate();
                  Date existingClose = existingProject.getApplicationClosingDate();
@@ -172,7 +168,8 @@ public class ProjectServiceImpl implements IProjectService {
                   return false;
              }
 
-             boolean appsExist = DataStore.getApplications().values().stream().anyMatch(a -> a.getProjectId() == projectId);
+             boolean appsExist = !DataStore.getApplicationsByProject(projectId).isEmpty()
+                     || DataStore.isProjectArchived(projectId);
              Map<FlatType, Integer> unitsToActuallySet = new HashMap<>(projectToEdit.getTotalUnits());
              boolean unitsWereChanged = false;
 
@@ -200,9 +197,8 @@ public class ProjectServiceImpl implements IProjectService {
      }
 
       private boolean isManagerHandlingAnotherProjectInPeriodExcludingSelf(String managerNric, Date newOpen, Date newClose, int projectIdToExclude) {
-          return DataStore.getProjects().values().stream()
+          return DataStore.getProjectsByManager(managerNric).stream()
              .filter(p -> p.getProjectId() != projectIdToExclude)
-             .filter(p -> managerNric.equals(p.getAssignedHDBManagerNric()))
              .anyMatch(existingProject -> {
                  Date existingOpen = existingProject.getApplicationOpeningDate();
                  Date existingClose = existingProject.getApplicationClosingDate();
@@ -225,25 +221,30 @@ public class ProjectServiceImpl implements IProjectService {
                 return false;
            }
 
-          boolean hasBookings = DataStore.getApplications().values().stream()
-                                .anyMatch(a -> a.getProjectId() == projectId && a.getStatus() == BTOApplicationStatus.BOOKED);
+          boolean hasBookings = DataStore.getApplicationsByProject(projectId).stream()
+                                .anyMatch(a -> a.getStatus() == BTOApplicationStatus.BOOKED);
           if (hasBookings) {
               System.err.println(TextFormatUtil.error("Delete project failed: Cannot delete project " + projectId + " because it has active flat bookings. Applicants must withdraw or bookings resolved first."));
               return false;
           }
+          if (DataStore.isProjectArchived(projectId)) {
+              System.err.println(TextFormatUtil.error("Delete project failed: Cannot delete project " + projectId + " because its bookings have been archived."));
+              return false;
+          }
 
-          boolean hasActiveApps = DataStore.getApplications().values().stream()
-                                   .anyMatch(a -> a.getProjectId() == projectId &&
-                                             (a.getStatus() == BTOApplicationStatus.PENDING || a.getStatus() == BTOApplicationStatus.SUCCESSFUL));
+          boolean hasActiveApps = DataStore.getApplicationsByProject(projectId).stream()
+                                   .anyMatch(a -> a.getStatus() == BTOApplicationStatus.PENDING || a.getStatus() == BTOApplicationStatus.SUCCESSFUL);
            if (hasActiveApps) {
                 System.out.println(TextFormatUtil.warning("Warning: Deleting project " + projectId + " with pending/successful applications. These will also be removed."));
            }
 
-          DataStore.removeProject(projectId);
-          DataStore.getApplications().values().removeIf(a -> a.getProjectId() == projectId);
-          DataStore.getEnquiries().values().removeIf(e -> e.getProjectId() == projectId);
-          DataStore.getOfficerRegistrations().values().removeIf(r -> r.getProjectId() == projectId);
-          DataStore.getFlatBookings().values().removeIf(b -> b.getProjectId() == projectId);
+          DataStore.atomically(() -> {
+              DataStore.removeProject(projectId);
+              DataStore.removeApplicationsByProject(projectId);
+              DataStore.removeEnquiriesByProject(projectId);
+              DataStore.removeOfficerRegistrationsByProject(projectId);
+              DataStore.removeFlatBookingsByProject(projectId);
+          });
 
           DataStore.saveAllData();
           return true;
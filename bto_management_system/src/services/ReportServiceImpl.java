@@ -33,8 +33,9 @@ public class ReportServiceImpl implements IReportService {
             reportTitle += " (Filtered)";
         }
 
-        // 1. Get applications with status BOOKED
-        List<BTOApplication> bookedApplications = DataStore.getApplications().values().stream()
+        // 1. Get applications with status BOOKED (archived projects only when asked for)
+        boolean includeArchived = Boolean.parseBoolean(actualFilters.getOrDefault("includeArchived", "false"));
+        List<BTOApplication> bookedApplications = DataStore.getApplications(includeArchived).values().stream()
                 .filter(app -> app.getStatus() == BTOApplicationStatus.BOOKED)
                 .collect(Collectors.toList());
 
@@ -133,6 +134,8 @@ public class ReportServiceImpl implements IReportService {
                          return false; // No match
                      }
                      break;
+                 case "includearchived":
+                     break; // selects the source rows, not a per-row condition
                  case "minage":
                      try {
                          int minAge = Integer.parseInt(filterValueTrimmed);
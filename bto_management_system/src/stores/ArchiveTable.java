@@ -0,0 +1,226 @@
+package stores;
+
+import data.AbstractCsvDataManager;
+import data.AtomicFiles;
+import utils.FilePathConstants;
+import utils.PersistenceConfig;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Cold tier of one table: the rows of archived projects, moved out of the live map into one compressed
+ * CSV file per project (see {@link FilePathConstants#archivePathFor(String, int)}).
+ * Archived rows are read-only. They are only read when a caller explicitly asks for them, and are then
+ * cached until the end of the session.
+ * An index file records the highest archived key, so the ID counter never hands out an archived ID again.
+ * A table looked up by owner (e.g. applications by applicant NRIC) also keeps an owners index of the projects
+ * each owner has archived rows in, so one owner's rows are read without loading the whole archive.
+ * @param <V> Model type of the table (keyed by an integer ID)
+ */
+class ArchiveTable<V> {
+
+    private static final String INDEX_FILE = "index.properties";
+    private static final String MAX_KEY = "maxKey";
+    private static final String OWNERS_FILE = "owners.properties";
+
+    private final String name;
+    private final String csvFilePath;
+    private final AbstractCsvDataManager<Integer, V> manager;
+    private final ToIntFunction<V> keyOf;
+    private final Function<V, String> ownerOf; // null if the table is not looked up by owner
+
+    private Map<Integer, V> rows = null; // all archived rows, once asked for
+    private int maxKey = -1; // -1 until the index is read
+    private Map<String, Set<Integer>> projectsByOwner = null; // the owners index, once asked for
+
+    /** @param manager A CSV DataManager of its own; it is switched to compressed files. */
+    ArchiveTable(String name, String csvFilePath, AbstractCsvDataManager<Integer, V> manager, ToIntFunction<V> keyOf) {
+        this(name, csvFilePath, manager, keyOf, null);
+    }
+
+    /** @param ownerOf Owner of a row, for {@link #rowsOwnedBy(String)}. */
+    ArchiveTable(String name, String csvFilePath, AbstractCsvDataManager<Integer, V> manager, ToIntFunction<V> keyOf, Function<V, String> ownerOf) {
+        this.name = name;
+        this.csvFilePath = csvFilePath;
+        this.manager = manager;
+        this.keyOf = keyOf;
+        this.ownerOf = ownerOf;
+        manager.setCompressed(true);
+    }
+
+    /**
+     * Adds rows of one project to its archive file, merging them with rows archived earlier.
+     * The file is replaced atomically; the caller removes the rows from the live map afterwards.
+     * The owners index is written first, so it never misses an archived row.
+     */
+    synchronized void archive(int projectId, Collection<V> newRows) throws IOException {
+        if (newRows.isEmpty()) return;
+        if (ownerOf != null) {
+            Map<String, Set<Integer>> owners = owners();
+            boolean added = false;
+            for (V row : newRows) {
+                String owner = ownerOf.apply(row);
+                if (owner != null) added |= owners.computeIfAbsent(owner, o -> new TreeSet<>()).add(projectId);
+            }
+            if (added) saveOwners(owners);
+        }
+        String path = FilePathConstants.archivePathFor(csvFilePath, projectId);
+        Map<Integer, V> merged = new HashMap<>();
+        if (new File(path).exists()) {
+            merged.putAll(manager.load(path));
+        }
+        int newMaxKey = maxKey();
+        for (V row : newRows) {
+            merged.put(keyOf.applyAsInt(row), row);
+            newMaxKey = Math.max(newMaxKey, keyOf.applyAsInt(row));
+        }
+        manager.save(path, merged);
+        if (newMaxKey > maxKey()) {
+            saveMaxKey(newMaxKey);
+        }
+        if (rows != null) {
+            merged.values().forEach(row -> rows.put(keyOf.applyAsInt(row), row));
+        }
+    }
+
+    /** All archived rows, loaded from the archive files on the first call. */
+    synchronized Map<Integer, V> rows() throws IOException {
+        if (rows == null) {
+            Map<Integer, V> loaded = new HashMap<>();
+            File[] files = new File(FilePathConstants.archiveDirectoryFor(csvFilePath))
+                    .listFiles((dir, file) -> file.startsWith(FilePathConstants.SHARD_PREFIX));
+            if (files != null) {
+                for (File file : files) {
+                    loaded.putAll(manager.load(file.getPath()));
+                }
+            }
+            rows = loaded;
+        }
+        return Collections.unmodifiableMap(rows);
+    }
+
+    /** Archived rows of one owner, read from the archive files of that owner's projects only. */
+    synchronized List<V> rowsOwnedBy(String owner) throws IOException {
+        List<V> owned = new ArrayList<>();
+        for (int projectId : owners().getOrDefault(owner, Collections.emptySet())) {
+            Collection<V> projectRows = (rows != null) ? rows.values() : manager.load(FilePathConstants.archivePathFor(csvFilePath, projectId)).values();
+            for (V row : projectRows) {
+                if (owner.equals(ownerOf.apply(row))) owned.add(row);
+            }
+            if (rows != null) break; // every archived row was checked at once
+        }
+        return owned;
+    }
+
+    /** Whether rows of the project have been archived. */
+    boolean hasProject(int projectId) {
+        return new File(FilePathConstants.archivePathFor(csvFilePath, projectId)).exists();
+    }
+
+    /** The highest archived key (0 if nothing has been archived); read from the index, not the archive files. */
+    synchronized int maxKey() throws IOException {
+        if (maxKey < 0) {
+            File index = new File(indexPath());
+            if (!index.exists()) {
+                maxKey = 0;
+                return maxKey;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(index)) {
+                properties.load(in);
+            }
+            try {
+                maxKey = Integer.parseInt(properties.getProperty(MAX_KEY, "0").trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt archive index " + index + ": " + e.getMessage(), e);
+            }
+        }
+        return maxKey;
+    }
+
+    private void saveMaxKey(int newMaxKey) throws IOException {
+        AtomicFiles.write(Paths.get(indexPath()), writer -> {
+            writer.write(MAX_KEY + "=" + newMaxKey);
+            writer.write(System.lineSeparator());
+        });
+        maxKey = newMaxKey;
+    }
+
+    /**
+     * The owners index, read on first use. An archive written before the index existed is scanned once
+     * and (except in read-only mode) the index saved, so later lookups need not scan it again.
+     */
+    private Map<String, Set<Integer>> owners() throws IOException {
+        if (projectsByOwner != null) return projectsByOwner;
+        Map<String, Set<Integer>> owners = new TreeMap<>();
+        File index = new File(ownersPath());
+        if (index.exists()) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(index)) {
+                properties.load(in);
+            }
+            try {
+                for (String owner : properties.stringPropertyNames()) {
+                    Set<Integer> projectIds = new TreeSet<>();
+                    for (String projectId : properties.getProperty(owner).split(",")) {
+                        if (!projectId.trim().isEmpty()) projectIds.add(Integer.parseInt(projectId.trim()));
+                    }
+                    owners.put(owner, projectIds);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt archive owners index " + index + ": " + e.getMessage(), e);
+            }
+        } else {
+            File[] files = new File(FilePathConstants.archiveDirectoryFor(csvFilePath))
+                    .listFiles((dir, file) -> file.startsWith(FilePathConstants.SHARD_PREFIX));
+            if (files != null && files.length > 0) {
+                for (File file : files) {
+                    String projectId = file.getName().substring(FilePathConstants.SHARD_PREFIX.length()).replaceFirst("\\..*$", "");
+                    for (V row : manager.load(file.getPath()).values()) {
+                        String owner = ownerOf.apply(row);
+                        if (owner != null) owners.computeIfAbsent(owner, o -> new TreeSet<>()).add(Integer.parseInt(projectId));
+                    }
+                }
+                if (!PersistenceConfig.READ_ONLY) saveOwners(owners);
+            }
+        }
+        projectsByOwner = owners;
+        return projectsByOwner;
+    }
+
+    private void saveOwners(Map<String, Set<Integer>> owners) throws IOException {
+        AtomicFiles.write(Paths.get(ownersPath()), writer -> {
+            for (Map.Entry<String, Set<Integer>> entry : owners.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue().stream().map(String::valueOf).collect(Collectors.joining(",")));
+                writer.write(System.lineSeparator());
+            }
+        });
+    }
+
+    private String ownersPath() {
+        return FilePathConstants.archiveDirectoryFor(csvFilePath) + "/" + OWNERS_FILE;
+    }
+
+    private String indexPath() {
+        return FilePathConstants.archiveDirectoryFor(csvFilePath) + "/" + INDEX_FILE;
+    }
+
+    String getName() { return name; }
+}
@@ -0,0 +1,74 @@
+package stores;
+
+import data.AtomicFiles;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Records the last checkpoint: the journal sequence number up to which every change is contained
+ * in the data files, and when the checkpoint was taken. Journal records at or below the sequence
+ * are skipped on recovery, so startup only replays the tail written since the checkpoint.
+ */
+public class CheckpointMarker {
+
+    private static final String SEQUENCE_KEY = "sequence";
+    private static final String TIMESTAMP_KEY = "timestamp";
+
+    private final Path path;
+    private long sequence = 0;
+    private long timestamp = 0;
+
+    public CheckpointMarker(String path) {
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * Reads the marker from disk.
+     * @return true if a checkpoint has been recorded.
+     */
+    public synchronized boolean load() throws IOException {
+        sequence = 0;
+        timestamp = 0;
+        if (!Files.exists(path)) return false;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path.toFile())) {
+            properties.load(in);
+        }
+        try {
+            sequence = Long.parseLong(properties.getProperty(SEQUENCE_KEY, "0").trim());
+            timestamp = Long.parseLong(properties.getProperty(TIMESTAMP_KEY, "0").trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint marker " + path + ": " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    /** Atomically records a completed checkpoint. */
+    public synchronized void save(long newSequence, long newTimestamp) throws IOException {
+        AtomicFiles.write(path, writer -> {
+            writer.write(SEQUENCE_KEY + "=" + newSequence);
+            writer.write(System.lineSeparator());
+            writer.write(TIMESTAMP_KEY + "=" + newTimestamp);
+            writer.write(System.lineSeparator());
+        });
+        sequence = newSequence;
+        timestamp = newTimestamp;
+    }
+
+    /** Highest journal sequence number contained in the data files (0 if no checkpoint yet). */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /** Time of the last checkpoint in epoch milliseconds (0 if no checkpoint yet). */
+    public synchronized long getTimestamp() {
+        return timestamp;
+    }
+}
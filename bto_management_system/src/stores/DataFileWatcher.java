@@ -0,0 +1,88 @@
+package stores;
+
+import utils.TextFormatUtil;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the data directory for files created or modified by other programs (e.g. a table patched by hand)
+ * and reports each changed file once it has been quiet for the debounce delay, since editors often save in
+ * several steps. The callback runs on the watcher thread; it must tell the application's own writes apart.
+ */
+public class DataFileWatcher {
+
+    private final Path directory;
+    private final Consumer<Path> onChange;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Thread worker;
+
+    /**
+     * @param directory The directory to watch (not its subdirectories).
+     * @param onChange Called with the path of each changed file, or of the directory if events were lost.
+     * @param debounceMillis How long a file must stay unchanged before it is reported.
+     */
+    public DataFileWatcher(Path directory, Consumer<Path> onChange, long debounceMillis) throws IOException {
+        this.directory = directory;
+        this.onChange = onChange;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.worker = new Thread(this::run, "datastore-file-watcher");
+        this.worker.setDaemon(true); // nothing to finish on exit
+        this.worker.start();
+    }
+
+    /** Stops watching; changes not reported yet are dropped. */
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Error closing the data file watcher: " + e.getMessage()));
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        Set<Path> changed = new LinkedHashSet<>();
+        try {
+            while (true) {
+                // Wait for the first event without a timeout, then until the directory has been quiet for the debounce delay
+                WatchKey key = changed.isEmpty() ? watchService.take() : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    for (Path file : changed) {
+                        try {
+                            onChange.accept(file);
+                        } catch (RuntimeException e) {
+                            System.err.println(TextFormatUtil.error("Could not reload " + file + ": " + e.getMessage()));
+                        }
+                    }
+                    changed.clear();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // Events were lost: report the directory itself, so every file is checked
+                    changed.add(event.kind() == StandardWatchEventKinds.OVERFLOW ? directory : directory.resolve((Path) event.context()));
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // stopped
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package stores;
+
+import utils.TextFormatUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for DataStore changes.
+ * Each entity change is stored as one framed record: [length][payload][crc32].
+ * A torn or corrupt tail (e.g. crash mid-append) is detected on read and discarded.
+ */
+public class DataJournal {
+
+    public static final byte OP_PUT = 'P';
+    public static final byte OP_DELETE = 'D';
+
+    private final String filePath;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long nextSequence = 1;
+
+    public DataJournal(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /** A single journaled change. Row is null for deletes. */
+    public static class Record {
+        private final long sequence;
+        private final String table;
+        private final byte op;
+        private final String key;
+        private final String row;
+
+        public Record(long sequence, String table, byte op, String key, String row) {
+            this.sequence = sequence;
+            this.table = table;
+            this.op = op;
+            this.key = key;
+            this.row = row;
+        }
+
+        public long getSequence() { return sequence; }
+        public String getTable() { return table; }
+        public byte getOp() { return op; }
+        public String getKey() { return key; }
+        public String getRow() { return row; }
+    }
+
+    /**
+     * Opens the journal for appending, creating the file if needed.
+     * Any torn records at the end of the file are truncated away.
+     * @param checkpointSequence Sequence number of the last checkpoint; new records are numbered above it
+     *                           even when the journal was reset, so they are never mistaken for checkpointed ones.
+     * @return The valid records currently in the journal, in append order.
+     */
+    public synchronized List<Record> open(long checkpointSequence) throws IOException {
+        File file = new File(filePath);
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        List<Record> records = new ArrayList<>();
+        long validEnd = readRecords(channel, records);
+        if (validEnd < channel.size()) {
+            System.err.println(TextFormatUtil.warning("Journal " + filePath + " has a torn tail (" + (channel.size() - validEnd) + " bytes). Discarding it."));
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        if (!records.isEmpty()) {
+            nextSequence = records.get(records.size() - 1).getSequence() + 1;
+        }
+        nextSequence = Math.max(nextSequence, checkpointSequence + 1);
+        return records;
+    }
+
+    /**
+     * Reads the valid records without opening the journal for appending, for a read-only process next to
+     * the writer: a record the writer is still appending is not read, and nothing is truncated.
+     */
+    public synchronized List<Record> read() throws IOException {
+        List<Record> records = new ArrayList<>();
+        File file = new File(filePath);
+        if (!file.exists()) return records;
+        try (FileChannel reader = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readRecords(reader, records);
+        }
+        return records;
+    }
+
+    /** Buffers a PUT record. Nothing reaches disk until {@link #sync()}. */
+    public synchronized void appendPut(String table, String key, String row) throws IOException {
+        append(table, OP_PUT, key, row);
+    }
+
+    /** Buffers a DELETE record. Nothing reaches disk until {@link #sync()}. */
+    public synchronized void appendDelete(String table, String key) throws IOException {
+        append(table, OP_DELETE, key, null);
+    }
+
+    /**
+     * Writes all buffered records and forces them to the storage device.
+     * @return Number of bytes appended.
+     */
+    public synchronized int sync() throws IOException {
+        ensureOpen();
+        if (pending.size() == 0) return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        pending.reset();
+        return written;
+    }
+
+    /** Discards all journaled records. Called once their effects are checkpointed into the CSV files. */
+    public synchronized void reset() throws IOException {
+        ensureOpen();
+        pending.reset();
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    /** Sequence number of the most recently appended record. */
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    /** Current on-disk size of the journal in bytes (excluding unsynced records). */
+    public synchronized long size() throws IOException {
+        return (channel == null) ? new File(filePath).length() : channel.size(); // not open: e.g. read by a read-only process
+    }
+
+    public synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Helper Methods
+
+    private void append(String table, byte op, String key, String row) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+            payload.writeLong(nextSequence++);
+            payload.writeUTF(table);
+            payload.writeByte(op);
+            payload.writeUTF(key);
+            if (op == OP_PUT) {
+                byte[] rowBytes = row.getBytes(StandardCharsets.UTF_8); // rows may exceed writeUTF's 64KB limit
+                payload.writeInt(rowBytes.length);
+                payload.write(rowBytes);
+            }
+        }
+        byte[] bytes = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        DataOutputStream frame = new DataOutputStream(pending);
+        frame.writeInt(bytes.length);
+        frame.write(bytes);
+        frame.writeInt((int) crc.getValue());
+    }
+
+    /** Reads framed records from the start of the file. Returns the offset just past the last valid record. */
+    private static long readRecords(FileChannel channel, List<Record> records) throws IOException {
+        long position = 0;
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (position + 4 <= fileSize) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            if (length <= 0 || position + 4 + length + 4 > fileSize) break;
+
+            ByteBuffer body = ByteBuffer.allocate(length + 4);
+            while (body.hasRemaining()) {
+                if (channel.read(body, position + 4 + body.position()) < 0) break;
+            }
+            body.flip();
+            byte[] bytes = new byte[length];
+            body.get(bytes);
+            int storedCrc = body.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if ((int) crc.getValue() != storedCrc) break;
+
+            records.add(decode(bytes));
+            position += 4 + length + 4;
+        }
+        return position;
+    }
+
+    private static Record decode(byte[] bytes) throws IOException {
+        try (DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            long sequence = payload.readLong();
+            String table = payload.readUTF();
+            byte op = payload.readByte();
+            String key = payload.readUTF();
+            String row = null;
+            if (op == OP_PUT) {
+                byte[] rowBytes = new byte[payload.readInt()];
+                payload.readFully(rowBytes);
+                row = new String(rowBytes, StandardCharsets.UTF_8);
+            }
+            return new Record(sequence, table, op, key, row);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("Journal " + filePath + " is not open.");
+        }
+    }
+}
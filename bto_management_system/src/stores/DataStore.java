@@ -4,16 +4,33 @@ import models.*;
 import enums.RequestStatus;
 import data.*;
 import utils.FilePathConstants;
+import utils.PersistenceConfig;
 import utils.TextFormatUtil;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Objects; 
+import java.util.function.Supplier;
 
 
 public class DataStore {
@@ -32,20 +49,132 @@ public class DataStore {
     private static final HDBOfficerRegDataManager officerRegDataManager = new HDBOfficerRegDataManager();
     private static final FlatBookingDataManager flatBookingDataManager = new FlatBookingDataManager();
 
+    private static final TableBinding<String, User> usersTable = new TableBinding<>("users", FilePathConstants.USERS_FILE, User.class,
+            userDataManager, new UserBinaryDataManager(), new UserJdbcDataManager(),
+            () -> userData, m -> userData = m, nric -> nric);
+    private static final TableBinding<Integer, Project> projectsTable = new TableBinding<>("projects", FilePathConstants.PROJECTS_FILE, Project.class,
+            projectDataManager, new ProjectBinaryDataManager(), new ProjectJdbcDataManager(),
+            () -> projectData, m -> projectData = m, Integer::valueOf);
+    private static final TableBinding<Integer, BTOApplication> applicationsTable = new TableBinding<>("applications", FilePathConstants.APPLICATIONS_FILE, BTOApplication.class,
+            applicationDataManager, new ApplicationBinaryDataManager(), new ApplicationJdbcDataManager(),
+            () -> applicationData, m -> applicationData = applicationMap(m), Integer::valueOf, BTOApplication::getProjectId);
+    private static final TableBinding<Integer, Enquiry> enquiriesTable = new TableBinding<>("enquiries", FilePathConstants.ENQUIRIES_FILE, Enquiry.class,
+            enquiryDataManager, new EnquiryBinaryDataManager(), new EnquiryJdbcDataManager(),
+            () -> enquiryData, m -> enquiryData = m, Integer::valueOf, Enquiry::getProjectId);
+    private static final TableBinding<Integer, HDBOfficerRegistration> officerRegistrationsTable = new TableBinding<>("officer_registrations", FilePathConstants.OFFICER_REGISTRATIONS_FILE, HDBOfficerRegistration.class,
+            officerRegDataManager, new HDBOfficerRegBinaryDataManager(), new HDBOfficerRegJdbcDataManager(),
+            () -> officerRegistrationData, m -> officerRegistrationData = m, Integer::valueOf);
+    private static final TableBinding<Integer, FlatBooking> flatBookingsTable = new TableBinding<>("flat_bookings", FilePathConstants.FLAT_BOOKINGS_FILE, FlatBooking.class,
+            flatBookingDataManager, new FlatBookingBinaryDataManager(), new FlatBookingJdbcDataManager(),
+            () -> flatBookingData, m -> flatBookingData = m, Integer::valueOf, FlatBooking::getProjectId);
+
+    private static final List<TableBinding<?, ?>> tables = Arrays.asList(
+            usersTable, projectsTable, applicationsTable, enquiriesTable, officerRegistrationsTable, flatBookingsTable);
+
+    // Secondary indexes, kept up to date by their tables through every add, remove, tracked setter, replay and reload
+    private static final SecondaryIndex<Integer, Project, String> projectsByManager = projectsTable.addIndex(Project::getAssignedHDBManagerNric);
+    private static final SecondaryIndex<Integer, BTOApplication, String> applicationsByApplicant = applicationsTable.addIndex(BTOApplication::getApplicantNric);
+    private static final SecondaryIndex<Integer, BTOApplication, Integer> applicationsByProject = applicationsTable.addIndex(BTOApplication::getProjectId);
+    private static final SecondaryIndex<Integer, Enquiry, String> enquiriesBySubmitter = enquiriesTable.addIndex(Enquiry::getSubmitterNric);
+    private static final SecondaryIndex<Integer, Enquiry, Integer> enquiriesByProject = enquiriesTable.addIndex(Enquiry::getProjectId);
+    private static final SecondaryIndex<Integer, HDBOfficerRegistration, String> registrationsByOfficer = officerRegistrationsTable.addIndex(HDBOfficerRegistration::getOfficerNric);
+    private static final SecondaryIndex<Integer, HDBOfficerRegistration, Integer> registrationsByProject = officerRegistrationsTable.addIndex(HDBOfficerRegistration::getProjectId);
+    private static final SecondaryIndex<Integer, FlatBooking, Integer> flatBookingsByProject = flatBookingsTable.addIndex(FlatBooking::getProjectId);
+
+    // Cold tier: rows of archived projects, read only when a caller asks for them
+    private static final ArchiveTable<BTOApplication> applicationArchive = new ArchiveTable<>("applications", FilePathConstants.APPLICATIONS_FILE,
+            new ApplicationDataManager(), BTOApplication::getApplicationId, BTOApplication::getApplicantNric);
+    private static final ArchiveTable<Enquiry> enquiryArchive = new ArchiveTable<>("enquiries", FilePathConstants.ENQUIRIES_FILE,
+            new EnquiryDataManager(), Enquiry::getEnquiryId);
+    private static final ArchiveTable<FlatBooking> flatBookingArchive = new ArchiveTable<>("flat_bookings", FilePathConstants.FLAT_BOOKINGS_FILE,
+            new FlatBookingDataManager(), FlatBooking::getBookingId);
+
+    private static final DataJournal journal = new DataJournal(FilePathConstants.JOURNAL_FILE);
+    // Whether saves go through the journal: when it is enabled, or until a journal left by such a run is folded into the files
+    private static volatile boolean journalInUse = PersistenceConfig.JOURNAL_ENABLED;
+    private static final GenerationManifest manifest = new GenerationManifest(FilePathConstants.MANIFEST_FILE);
+    private static final CheckpointMarker checkpointMarker = new CheckpointMarker(FilePathConstants.CHECKPOINT_FILE);
+    private static volatile long lastCheckpointMillis = System.currentTimeMillis();
+    private static volatile WriteBehindFlusher flusher = null; // non-null only in write-behind mode
+    private static volatile DataFileWatcher watcher = null; // non-null only while hot reload is on
+    // Writer lock on the data directory, or a reader's handle in read-only mode (see DataDirectoryLock)
+    private static DataDirectoryLock directoryLock = null;
+    // Read-only mode: modification times and sizes of the data files as of the last load (see dataSignature())
+    private static long loadedSignature = 0;
+
+    // Writers share the read side; capturing a snapshot takes the write side, so it never sees half of a multi-step change
+    private static final ReentrantReadWriteLock snapshotGate = new ReentrantReadWriteLock();
+    // Saves requested inside atomically(...), completed once the outermost block has ended and the save ran
+    private static final ThreadLocal<CompletableFuture<Void>> deferredSave = new ThreadLocal<>();
+
+    // Journaled changes not yet replayed, by table; with lazy loading each table replays its own when it is loaded
+    private static final Map<String, List<DataJournal.Record>> pendingReplay = new ConcurrentHashMap<>();
+    // Officer handling state is derived from users, registrations and projects; with lazy loading it is set on the first officer lookup
+    private static volatile boolean officerHandlingStatePending = false;
+    private static final Object officerHandlingStateLock = new Object();
+    private static volatile boolean prefetchStarted = false;
+
+    static {
+        // Model setters (e.g. BTOApplication.setStatus, Enquiry.addReply) report changes here
+        ModelChangeTracker.setListener(DataStore::markChanged);
+        // New model objects load their table before taking an ID, so the ID counter is past every stored key
+        ModelChangeTracker.setCreationListener(DataStore::ensureLoadedFor);
+    }
+
     private DataStore() {}
 
     public static void initialize() {
         System.out.println("Initializing DataStore..."); 
         try {
-            userData = userDataManager.load(FilePathConstants.USERS_FILE);
-            projectData = projectDataManager.load(FilePathConstants.PROJECTS_FILE);
-            applicationData = applicationDataManager.load(FilePathConstants.APPLICATIONS_FILE);
-            enquiryData = enquiryDataManager.load(FilePathConstants.ENQUIRIES_FILE);
-            officerRegistrationData = officerRegDataManager.load(FilePathConstants.OFFICER_REGISTRATIONS_FILE);
-            flatBookingData = flatBookingDataManager.load(FilePathConstants.FLAT_BOOKINGS_FILE);
+            if (tables.stream().anyMatch(TableBinding::usesDatabase)) {
+                JdbcDatabase.checkDriver();
+            }
+            if (PersistenceConfig.READ_ONLY) {
+                directoryLock = DataDirectoryLock.openReader(FilePathConstants.LOCK_FILE);
+                System.out.println("Opening the data read-only" + (directoryLock.isWriterRunning() ? " next to the running writer" : "") + "; changes will not be saved.");
+            } else {
+                directoryLock = DataDirectoryLock.acquireWriter(FilePathConstants.LOCK_FILE);
+            }
+            // A reader waits for a checkpoint in progress, so the files and the journal it reads belong together
+            directoryLock.whileUpdating(() -> {
+                if (PersistenceConfig.READ_ONLY) loadedSignature = dataSignature();
+                resolveTableFiles();
+                // The warm-start image is deleted by the next writer whether or not it uses it, so only the writer reads it
+                boolean warmStarted = !PersistenceConfig.READ_ONLY && loadWarmStartImage();
+                journalInUse = PersistenceConfig.JOURNAL_ENABLED || hasJournaledChanges();
+                if (journalInUse) {
+                    openJournal();
+                }
 
-            setInitialOfficerHandlingState(); 
-            updateIdCounters(); 
+                if (warmStarted) { // the image already holds the derived state and counters
+                    for (TableBinding<?, ?> table : tables) {
+                        completeLoad(table, false);
+                    }
+                } else if (PersistenceConfig.LAZY_LOAD && !PersistenceConfig.READ_ONLY) { // a reader loads everything while it holds the lock
+                    officerHandlingStatePending = true;
+                    System.out.println("Tables will be loaded on first use.");
+                } else {
+                    loadTablesInParallel();
+                    for (TableBinding<?, ?> table : tables) {
+                        completeLoad(table, true);
+                    }
+                    setInitialOfficerHandlingState();
+                }
+                return null;
+            });
+
+            if (journalInUse && !PersistenceConfig.JOURNAL_ENABLED && !PersistenceConfig.READ_ONLY) {
+                foldLeftoverJournal();
+            }
+            if (PersistenceConfig.READ_ONLY) {
+                startRefresher();
+            } else if (PersistenceConfig.WRITE_BEHIND_ENABLED) {
+                flusher = new WriteBehindFlusher(DataStore::flushInBackground,
+                        PersistenceConfig.WRITE_BEHIND_WINDOW_MS, PersistenceConfig.WRITE_BEHIND_MAX_PENDING);
+            }
+            if (PersistenceConfig.WATCH_ENABLED && !PersistenceConfig.READ_ONLY) { // a reader refreshes instead
+                startWatcher();
+            }
 
             System.out.println("DataStore initialized successfully.");
 
@@ -77,54 +206,917 @@ public class DataStore {
         });
     }
 
-    private static void updateIdCounters() {
-         Project.updateIdCounter(projectData.keySet().stream().max(Integer::compareTo).orElse(0));
-         BTOApplication.updateIdCounter(applicationData.keySet().stream().max(Integer::compareTo).orElse(0));
-         Enquiry.updateIdCounter(enquiryData.keySet().stream().max(Integer::compareTo).orElse(0));
-         HDBOfficerRegistration.updateIdCounter(officerRegistrationData.keySet().stream().max(Integer::compareTo).orElse(0));
-         FlatBooking.updateIdCounter(flatBookingData.keySet().stream().max(Integer::compareTo).orElse(0));
+    /** Moves the ID counter of the table's model past the keys loaded into the table and the keys archived from it. */
+    private static void updateIdCounter(TableBinding<?, ?> table) {
+         if (table == projectsTable) Project.updateIdCounter(maxKey(projectData));
+         else if (table == applicationsTable) BTOApplication.updateIdCounter(Math.max(maxKey(applicationData), archivedMaxKey(applicationArchive)));
+         else if (table == enquiriesTable) Enquiry.updateIdCounter(Math.max(maxKey(enquiryData), archivedMaxKey(enquiryArchive)));
+         else if (table == officerRegistrationsTable) HDBOfficerRegistration.updateIdCounter(maxKey(officerRegistrationData));
+         else if (table == flatBookingsTable) FlatBooking.updateIdCounter(Math.max(maxKey(flatBookingData), archivedMaxKey(flatBookingArchive)));
+    }
 
+    /** The map a freshly loaded applications table is kept in: the loaded map itself, or an off-heap copy. */
+    private static Map<Integer, BTOApplication> applicationMap(Map<Integer, BTOApplication> loaded) {
+        return PersistenceConfig.OFF_HEAP_APPLICATIONS ? OffHeapApplicationMap.copyOf(loaded) : loaded;
     }
 
-    public static void saveAllData() {
-        System.out.println("Saving data...");
+    private static int maxKey(Map<Integer, ?> data) {
+        return data.keySet().stream().max(Integer::compareTo).orElse(0);
+    }
+
+    private static int archivedMaxKey(ArchiveTable<?> archive) {
+        try {
+            return archive.maxKey();
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Could not read the " + archive.getName() + " archive index (" + e.getMessage() + "); new IDs may repeat archived ones."));
+            return 0;
+        }
+    }
+
+    /**
+     * Finishes loading a table: replays its journaled changes on top of the loaded file, leaving the file
+     * marked as stale until the next checkpoint, and moves its ID counter past the loaded keys.
+     * @return The number of journaled changes replayed.
+     */
+    private static int completeLoad(TableBinding<?, ?> table, boolean updateIdCounter) {
+        if (!PersistenceConfig.MANIFEST_ENABLED && !table.getPhysicalPath().equals(table.getFilePath())) {
+            table.markFileStale(); // manifest option switched off: move back to the plain CSV on next save
+        }
+        List<DataJournal.Record> records = pendingReplay.getOrDefault(table.getName(), Collections.emptyList());
+        for (DataJournal.Record record : records) {
+            table.apply(record);
+        }
+        if (updateIdCounter) {
+            updateIdCounter(table);
+        }
+        table.markLoaded();
+        pendingReplay.remove(table.getName());
+        if (table.hasOutdatedSchema() && !PersistenceConfig.READ_ONLY) {
+            rewriteInBackground(table);
+        }
+        return records.size();
+    }
+
+    /**
+     * Rewrites a table loaded from files in an older schema version by running a checkpoint on a background
+     * thread, so the next start reads the current version without upgrading every row again.
+     */
+    private static void rewriteInBackground(TableBinding<?, ?> table) {
+        System.out.println("Table " + table.getName() + ": rewriting its files in the current schema version in the background.");
+        Thread rewrite = new Thread(() -> {
+            if (!journalInUse || journal.isOpen()) checkpoint(); // not after shutdown()
+        }, "DataStore-schema-upgrade");
+        rewrite.setDaemon(true); // files are replaced atomically; if cut off, shutdown() or a later checkpoint writes them
+        rewrite.start();
+    }
+
+    /**
+     * Loads the table if this is its first access (lazy loading). Thread-safe: concurrent first accesses
+     * wait for a single load. A table that fails to load stays unloaded, so it is never saved over.
+     */
+    private static void ensureLoaded(TableBinding<?, ?> table) {
+        if (table.isLoaded()) return;
+        synchronized (table.loadLock()) {
+            if (table.isLoaded()) return;
+            long startNanos = System.nanoTime();
+            try {
+                table.load();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load table '" + table.getName() + "': " + e.getMessage(), e);
+            }
+            int replayed = completeLoad(table, true);
+            System.out.println(String.format("Loaded %s on first use in %.1f ms%s.", table.getName(),
+                    (System.nanoTime() - startNanos) / 1_000_000.0,
+                    (replayed > 0) ? " (replayed " + replayed + " journaled change(s))" : ""));
+        }
+    }
+
+    /** Loads the table storing the given model class; called before a new model object takes an ID. */
+    private static void ensureLoadedFor(Class<?> modelType) {
+        for (TableBinding<?, ?> table : tables) {
+            if (table.handlesType(modelType)) {
+                ensureLoaded(table);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the officers' handling state once its inputs (users, registrations, projects) are loaded.
+     * Only officer lookups need it, so with lazy loading it is deferred until the first one.
+     */
+    private static void ensureOfficerHandlingState() {
+        if (!officerHandlingStatePending) return;
+        synchronized (officerHandlingStateLock) {
+            if (!officerHandlingStatePending) return;
+            ensureLoaded(usersTable);
+            ensureLoaded(officerRegistrationsTable);
+            ensureLoaded(projectsTable);
+            setInitialOfficerHandlingState();
+            officerHandlingStatePending = false;
+        }
+    }
+
+    /**
+     * With lazy loading, loads the tables not accessed yet on a background thread, so later menu actions
+     * do not wait for them. Call after login; does nothing after the first call or if prefetch is disabled.
+     */
+    public static void prefetchInBackground() {
+        if (!PersistenceConfig.LAZY_LOAD || !PersistenceConfig.LAZY_LOAD_PREFETCH || prefetchStarted) return;
+        if (tables.stream().allMatch(TableBinding::isLoaded)) return;
+        prefetchStarted = true;
+        Thread prefetch = new Thread(() -> {
+            try {
+                for (TableBinding<?, ?> table : tables) {
+                    ensureLoaded(table);
+                }
+                ensureOfficerHandlingState();
+            } catch (RuntimeException e) {
+                // The table is loaded again (and the error reported) on its first access
+                System.err.println(TextFormatUtil.warning("Background table prefetch stopped: " + e.getMessage()));
+            }
+        }, "DataStore-prefetch");
+        prefetch.setDaemon(true); // loading only reads the data files
+        prefetch.start();
+    }
+
+    private static void startWatcher() {
+        try {
+            watcher = new DataFileWatcher(Paths.get(FilePathConstants.DATA_DIR).toAbsolutePath().normalize(),
+                    DataStore::reloadChangedFile, PersistenceConfig.WATCH_DEBOUNCE_MS);
+            System.out.println("Watching " + FilePathConstants.DATA_DIR + " for table files edited by other programs.");
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Hot reload is off: cannot watch " + FilePathConstants.DATA_DIR + " (" + e.getMessage() + ")."));
+        }
+    }
+
+    /** Read-only mode: checks for new data from the writer every {@link PersistenceConfig#READ_ONLY_REFRESH_MS}. */
+    private static void startRefresher() {
+        if (PersistenceConfig.READ_ONLY_REFRESH_MS <= 0) return;
+        Thread refresher = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(PersistenceConfig.READ_ONLY_REFRESH_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                refresh();
+            }
+        }, "DataStore-refresh");
+        refresher.setDaemon(true); // only reads
+        refresher.start();
+    }
+
+    /**
+     * Read-only mode: reloads every table, with the journal on top, if the writer has saved since the last load.
+     * Each table's map is replaced as a whole, so a caller iterating the previous map keeps a consistent view of it.
+     * If the reload fails, the tables loaded so far keep their new data and the reload is tried again next time.
+     */
+    public static void refresh() {
+        if (!PersistenceConfig.READ_ONLY || dataSignature() == loadedSignature) return;
+        long startNanos = System.nanoTime();
+        synchronized (DataStore.class) {
+            try {
+                directoryLock.whileUpdating(() -> {
+                    long signature = dataSignature();
+                    resolveTableFiles();
+                    pendingReplay.clear();
+                    journalInUse = PersistenceConfig.JOURNAL_ENABLED || hasJournaledChanges();
+                    if (journalInUse) {
+                        openJournal();
+                    }
+                    loadTablesInParallel();
+                    for (TableBinding<?, ?> table : tables) {
+                        completeLoad(table, true);
+                    }
+                    refreshOfficerHandlingState();
+                    loadedSignature = signature;
+                    return null;
+                });
+            } catch (Exception e) {
+                System.err.println(TextFormatUtil.warning("Could not refresh the data from " + FilePathConstants.DATA_DIR + " (will retry): " + e.getMessage()));
+                return;
+            }
+        }
+        System.out.println(String.format("Refreshed the data saved by the writer in %.1f ms.", (System.nanoTime() - startNanos) / 1_000_000.0));
+    }
+
+    /**
+     * Modification times and sizes of the data files, the journal, the checkpoint marker and the manifest,
+     * folded into one number that changes whenever the writer saves.
+     */
+    private static long dataSignature() {
+        long signature = 17;
+        for (String path : new String[] { FilePathConstants.JOURNAL_FILE, FilePathConstants.CHECKPOINT_FILE, FilePathConstants.MANIFEST_FILE }) {
+            File file = new File(path);
+            signature = signature * 31 + file.lastModified();
+            signature = signature * 31 + file.length();
+        }
+        for (TableBinding<?, ?> table : tables) {
+            signature = signature * 31 + table.lastModified();
+        }
+        return signature;
+    }
+
+    /** Called by the watcher with a changed file, or with the data directory if it lost track of changes. */
+    private static void reloadChangedFile(Path changed) {
+        boolean everyTable = changed.equals(Paths.get(FilePathConstants.DATA_DIR).toAbsolutePath().normalize());
+        for (TableBinding<?, ?> table : tables) {
+            if (everyTable || Paths.get(table.getPhysicalPath()).toAbsolutePath().normalize().equals(changed)) {
+                reloadExternalEdit(table);
+            }
+        }
+    }
+
+    /**
+     * Merges an external edit of the table's file into the live table: only the rows the edit inserted,
+     * changed or deleted are applied, then the derived state (ID counters, officers' handling projects)
+     * is refreshed and the changes are saved like any others. Tables not loaded yet read the edit on first use.
+     */
+    private static <K, V> void reloadExternalEdit(TableBinding<K, V> table) {
+        TableBinding.ExternalEdit<K, V> edit;
+        synchronized (DataStore.class) { // no save rewrites the file while it is read
+            if (!table.isLoaded() || !table.changedOnDisk()) return; // e.g. the table's own save
+            try {
+                edit = table.readExternalEdit();
+            } catch (IOException e) {
+                System.err.println(TextFormatUtil.error("Could not reload " + table.getPhysicalPath() + " after an external edit: " + e.getMessage()));
+                return;
+            }
+            atomically(() -> table.applyExternalEdit(edit));
+            if (edit.isEmpty()) return;
+            updateIdCounter(table);
+            if (table == usersTable || table == officerRegistrationsTable || table == projectsTable) {
+                refreshOfficerHandlingState();
+            }
+        }
+        System.out.println("Reloaded " + table.getName() + " after an external edit of " + table.getPhysicalPath() + ": "
+                + edit.upserts.size() + " row(s) inserted or updated, " + edit.deletes.size() + " deleted"
+                + (edit.partial ? " (rows that failed to load were kept; none were deleted)" : "") + ".");
+        saveAllData();
+    }
+
+    /** Recomputes every officer's handling project, e.g. after users or registrations were reloaded. */
+    private static void refreshOfficerHandlingState() {
+        if (officerHandlingStatePending) return; // still set on first use, from the reloaded tables
+        atomically(() -> {
+            userData.values().stream()
+                .filter(user -> user instanceof HDBOfficer)
+                .forEach(user -> ((HDBOfficer) user).clearHandlingProject());
+            setInitialOfficerHandlingState();
+        });
+    }
+
+    /**
+     * Restores all tables, derived state and ID counters from the warm-start image written at the
+     * last clean shutdown. The image is only used if it was written at the checkpoint the data files
+     * are at, the journal is empty and no data file has been written since. It is deleted by every
+     * start, used or not (e.g. with warm start disabled), so it can never be applied twice or after
+     * a session that did not keep it up to date.
+     * @return true if the image was loaded; false to fall back to parsing the data files.
+     */
+    private static boolean loadWarmStartImage() {
+        File imageFile = new File(FilePathConstants.WARM_START_FILE);
+        if (!imageFile.exists()) return false;
+        try {
+            if (!PersistenceConfig.WARM_START_ENABLED) return false; // deleted below, as this session may change the files
+
+            long startNanos = System.nanoTime();
+            WarmStartImage image = WarmStartImage.read(imageFile.getPath());
+            checkpointMarker.load();
+            long imageTime = imageFile.lastModified();
+            boolean atCheckpoint = image.checkpointSequence == checkpointMarker.getSequence();
+            boolean journalEmpty = new File(FilePathConstants.JOURNAL_FILE).length() == 0;
+            boolean filesOlder = tables.stream().allMatch(table -> table.lastModified() <= imageTime);
+            if (!atCheckpoint || !journalEmpty || !filesOlder) {
+                System.out.println("Warm-start image is out of date; loading the data files.");
+                return false;
+            }
+
+            usersTable.restore(image.users);
+            projectsTable.restore(image.projects);
+            applicationsTable.restore(image.applications);
+            enquiriesTable.restore(image.enquiries);
+            officerRegistrationsTable.restore(image.officerRegistrations);
+            flatBookingsTable.restore(image.flatBookings);
+            image.restoreIdCounters();
+            System.out.println(String.format("Warm start: restored %d tables from %s in %.1f ms.",
+                    tables.size(), imageFile.getPath(), (System.nanoTime() - startNanos) / 1_000_000.0));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println(TextFormatUtil.warning("Could not use warm-start image (" + e.getMessage() + "); loading the data files."));
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(imageFile.toPath());
+            } catch (IOException e) {
+                System.err.println(TextFormatUtil.warning("Could not delete warm-start image: " + e.getMessage()));
+            }
+        }
+    }
+
+    /** Writes the warm-start image; only called at shutdown once every data file is up to date. */
+    private static void saveWarmStartImage() {
+        WarmStartImage image = new WarmStartImage();
+        image.users = userData;
+        image.projects = projectData;
+        image.applications = applicationData;
+        image.enquiries = enquiryData;
+        image.officerRegistrations = officerRegistrationData;
+        image.flatBookings = flatBookingData;
+        snapshotGate.writeLock().lock(); // the image serializes the live objects
+        try {
+            checkpointMarker.load(); // as recorded by the last checkpoint, with or without the journal
+            image.checkpointSequence = checkpointMarker.getSequence();
+            image.captureIdCounters();
+            image.write(FilePathConstants.WARM_START_FILE);
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Could not write warm-start image: " + e.getMessage()));
+        } finally {
+            snapshotGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the journal and sets aside the changes journaled since the last checkpoint, by table;
+     * each table replays its own once its data file is loaded (see {@link #completeLoad}).
+     * Records already covered by the checkpoint (left behind if a crash hit between recording the
+     * checkpoint and clearing the journal) are skipped, so replay is bounded by the checkpoint interval.
+     */
+    /** Whether the journal file holds records, e.g. left by a run with the journal enabled. */
+    private static boolean hasJournaledChanges() {
+        return new File(FilePathConstants.JOURNAL_FILE).length() > 0;
+    }
+
+    /**
+     * With the journal disabled, checkpoints the changes a journal left by an earlier run holds into the data files,
+     * then stops using it; if that fails, the journal stays in use for this session so nothing is lost.
+     */
+    private static void foldLeftoverJournal() throws IOException {
+        System.out.println("Folding the journal left by a run with the journal enabled into the data files...");
+        checkpoint();
+        synchronized (DataStore.class) {
+            if (journal.size() > 0) {
+                System.err.println(TextFormatUtil.warning("The journal could not be folded into the data files; it stays in use until the next checkpoint."));
+                return;
+            }
+            journal.close();
+            Files.deleteIfExists(new File(FilePathConstants.JOURNAL_FILE).toPath());
+            journalInUse = false;
+        }
+    }
+
+    private static void openJournal() throws IOException {
+        long startNanos = System.nanoTime();
+        boolean hasCheckpoint = checkpointMarker.load();
+        long checkpointSequence = checkpointMarker.getSequence();
+        List<DataJournal.Record> records = PersistenceConfig.READ_ONLY ? journal.read() : journal.open(checkpointSequence);
+        Map<String, TableBinding<?, ?>> tablesByName = new HashMap<>();
+        tables.forEach(table -> tablesByName.put(table.getName(), table));
+
+        int replayable = 0, alreadyCheckpointed = 0;
+        for (DataJournal.Record record : records) {
+            if (record.getSequence() <= checkpointSequence) {
+                alreadyCheckpointed++;
+                continue;
+            }
+            TableBinding<?, ?> table = tablesByName.get(record.getTable());
+            if (table == null) {
+                System.err.println(TextFormatUtil.warning("Skipping journal record " + record.getSequence() + " for unknown table '" + record.getTable() + "'."));
+                continue;
+            }
+            pendingReplay.computeIfAbsent(table.getName(), name -> new ArrayList<>()).add(record);
+            replayable++;
+        }
+
+        if (hasCheckpoint) {
+            lastCheckpointMillis = checkpointMarker.getTimestamp();
+            System.out.println("Last checkpoint: sequence " + checkpointSequence + ", taken "
+                    + formatAge(System.currentTimeMillis() - lastCheckpointMillis) + " ago.");
+        } else {
+            System.out.println("No checkpoint recorded yet; replaying the whole journal.");
+        }
+        System.out.println(String.format("Read %d journaled change(s) to replay (%d journal bytes) in %.1f ms%s.",
+                replayable, journal.size(), (System.nanoTime() - startNanos) / 1_000_000.0,
+                (alreadyCheckpointed > 0) ? ", skipped " + alreadyCheckpointed + " already checkpointed" : ""));
+    }
+
+    /** Formats a duration as e.g. "2h 5m", "42s". */
+    private static String formatAge(long millis) {
+        long seconds = Math.max(0, millis) / 1000;
+        if (seconds < 60) return seconds + "s";
+        if (seconds < 3600) return (seconds / 60) + "m " + (seconds % 60) + "s";
+        if (seconds < 86400) return (seconds / 3600) + "h " + (seconds % 3600 / 60) + "m";
+        return (seconds / 86400) + "d " + (seconds % 86400 / 3600) + "h";
+    }
+
+    /**
+     * Loads all tables concurrently (when lazy loading is off); they are independent until the
+     * cross-table fix-up (officer handling state) that runs after this join point.
+     * Per-table timings are logged so the slowest table (the critical path) is visible.
+     */
+    private static void loadTablesInParallel() throws Exception {
+        int threads = Math.max(1, Math.min(tables.size(), PersistenceConfig.LOAD_THREADS));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startNanos = System.nanoTime();
         try {
-            userDataManager.save(FilePathConstants.USERS_FILE, userData);
-            projectDataManager.save(FilePathConstants.PROJECTS_FILE, projectData);
-            applicationDataManager.save(FilePathConstants.APPLICATIONS_FILE, applicationData);
-            enquiryDataManager.save(FilePathConstants.ENQUIRIES_FILE, enquiryData);
-            officerRegDataManager.save(FilePathConstants.OFFICER_REGISTRATIONS_FILE, officerRegistrationData);
-            flatBookingDataManager.save(FilePathConstants.FLAT_BOOKINGS_FILE, flatBookingData);
-            System.out.println("Data saved successfully.");
+            Map<TableBinding<?, ?>, Future<Long>> loads = new LinkedHashMap<>();
+            for (TableBinding<?, ?> table : tables) {
+                loads.put(table, executor.submit(() -> {
+                    long tableStart = System.nanoTime();
+                    table.load();
+                    return System.nanoTime() - tableStart;
+                }));
+            }
+
+            String slowestTable = null;
+            long slowestNanos = -1;
+            for (Map.Entry<TableBinding<?, ?>, Future<Long>> load : loads.entrySet()) {
+                long elapsedNanos;
+                try {
+                    elapsedNanos = load.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw (cause instanceof Exception) ? (Exception) cause : e;
+                }
+                System.out.println(String.format("  %-22s loaded in %6.1f ms", load.getKey().getName(), elapsedNanos / 1_000_000.0));
+                if (elapsedNanos > slowestNanos) {
+                    slowestNanos = elapsedNanos;
+                    slowestTable = load.getKey().getName();
+                }
+            }
+            System.out.println(String.format("Loaded %d tables on %d thread(s) in %.1f ms (critical path: %s).",
+                    tables.size(), threads, (System.nanoTime() - startNanos) / 1_000_000.0, slowestTable));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Points every table at the file named by the generation manifest, if one exists. */
+    private static void resolveTableFiles() throws IOException {
+        if (!manifest.load()) return;
+        for (TableBinding<?, ?> table : tables) {
+            table.resolvePaths(manifest::resolve);
+        }
+        System.out.println("Using data file generation " + manifest.getGeneration() + ".");
+    }
+
+    /** Flush action run on the write-behind thread; failures are reported through the callers' futures. */
+    private static void flushInBackground() {
+        try {
+            flushChanges();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Marks the table owning the given model object as changed for that object's key. */
+    private static void markChanged(Object model) {
+        if (model instanceof BTOApplication && applicationData instanceof OffHeapApplicationMap) {
+            ((OffHeapApplicationMap) applicationData).writeBack((BTOApplication) model); // a heap object put into the table earlier
+        }
+        for (TableBinding<?, ?> table : tables) {
+            if (table.handles(model)) {
+                table.markDirtyEntity(model);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Captures the changes made since the last capture in each table.
+     * Writers are held back only for the capture itself, which is proportional to the number of changes;
+     * the files are written from the captured rows afterwards while writers carry on.
+     * @return The captured changes, in table order.
+     */
+    private static List<TableBinding.CapturedChange> captureChanges() {
+        if (snapshotGate.getReadHoldCount() > 0) {
+            // The write lock cannot be taken while this thread holds the read lock
+            throw new IllegalStateException("Cannot save from inside DataStore.atomically(...)");
+        }
+        List<TableBinding.CapturedChange> changes = new ArrayList<>();
+        snapshotGate.writeLock().lock();
+        try {
+            for (TableBinding<?, ?> table : tables) {
+                table.capture(changes);
+            }
+        } finally {
+            snapshotGate.writeLock().unlock();
+        }
+        return changes;
+    }
+
+    private static void journalChanges(List<TableBinding.CapturedChange> changes) throws IOException {
+        for (TableBinding.CapturedChange change : changes) {
+            if (change.row != null) {
+                journal.appendPut(change.table, change.key, change.row);
+            } else {
+                journal.appendDelete(change.table, change.key);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file of every table whose file is behind its captured changes; unchanged tables are skipped.
+     * @return A summary of what was written and skipped.
+     */
+    private static String saveStaleTables() throws IOException {
+        String summary;
+        if (tables.stream().noneMatch(TableBinding::usesDatabase)) {
+            summary = writeStaleTables();
+        } else {
+            try {
+                // One database transaction per flush, so the database tables change together
+                summary = JdbcDatabase.transaction(connection -> writeStaleTables());
+            } catch (IOException e) {
+                tables.stream().filter(TableBinding::usesDatabase).forEach(TableBinding::markFileStale); // rolled back
+                throw e;
+            }
+        }
+        // Only now that the saves are committed may their captured changes, and the files they replace in other formats, go
+        for (TableBinding<?, ?> table : tables) {
+            table.saveCommitted();
+        }
+        return summary;
+    }
+
+    private static String writeStaleTables() throws IOException {
+        int written = 0, skipped = 0, skippedRows = 0;
+        long skippedBytes = 0;
+        long newGeneration = manifest.getGeneration() + 1;
+        List<String> supersededFiles = new ArrayList<>();
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+
+        // The stale tables are encoded and written in parallel; a table is saved from its captured changes only
+        for (TableBinding<?, ?> table : tables) {
+            if (table.isFileStale()) {
+                String previousPath = table.getPhysicalPath();
+                // Shards (one project at a time) and logs (appends) are written in place, so they stay outside the generations
+                String targetPath = (PersistenceConfig.MANIFEST_ENABLED && !table.writesInPlace())
+                        ? GenerationManifest.generationPath(table.getFilePath(), newGeneration)
+                        : table.getFilePath();
+                saves.add(table.saveAsync(targetPath));
+                if (!previousPath.equals(targetPath)) {
+                    supersededFiles.add(previousPath);
+                }
+                written++;
+            } else {
+                skipped++;
+                skippedRows += table.rowCount();
+                skippedBytes += table.fileBytes();
+            }
+        }
+        PersistenceExecutor.awaitAll(saves); // throws only once every save has finished
+
+        if (PersistenceConfig.MANIFEST_ENABLED && written > 0) {
+            // All tables written above become visible together when the manifest flips
+            Map<String, String> physicalPaths = new HashMap<>();
+            tables.stream().filter(table -> !table.writesInPlace())
+                    .forEach(table -> physicalPaths.put(table.getFilePath(), table.getPhysicalPath()));
+            manifest.commit(newGeneration, physicalPaths);
+        } else if (!PersistenceConfig.MANIFEST_ENABLED && manifest.exists()
+                && tables.stream().allMatch(table -> table.writesInPlace() || table.getPhysicalPath().equals(table.getFilePath()))) {
+            manifest.delete(); // every table is back on its plain CSV file
+        }
+        for (String superseded : supersededFiles) {
+            Files.deleteIfExists(Paths.get(superseded));
+        }
+
+        return written + " table(s) rewritten, " + skipped + " unchanged table(s) skipped ("
+                + skippedRows + " rows, " + skippedBytes + " bytes)";
+    }
+
+    /**
+     * Persists all changes made since the last save.
+     * With the journal enabled, only changed entities are appended (and fsynced) to the journal;
+     * the CSV files are regenerated when the journal grows past its checkpoint threshold.
+     * In write-behind mode the work is handed to the background flusher, which coalesces
+     * requests made within its commit window into one flush.
+     * @return A future completed once the changes are durable (already complete in synchronous mode).
+     */
+    public static CompletableFuture<Void> saveAllData() {
+        if (PersistenceConfig.READ_ONLY) {
+            System.err.println(TextFormatUtil.warning("The data is open read-only; this change is not saved."));
+            return CompletableFuture.failedFuture(new IllegalStateException("The data is open read-only."));
+        }
+        if (snapshotGate.getReadHoldCount() > 0) {
+            // Inside atomically(...): save once the whole change is in place
+            CompletableFuture<Void> pending = deferredSave.get();
+            if (pending == null) {
+                pending = new CompletableFuture<>();
+                deferredSave.set(pending);
+            }
+            return pending;
+        }
+        WriteBehindFlusher activeFlusher = flusher;
+        if (activeFlusher != null) {
+            return activeFlusher.requestFlush();
+        }
+        try {
+            flushChanges();
+            return CompletableFuture.completedFuture(null);
         } catch (Exception e) {
             System.err.println(TextFormatUtil.error("Error saving data: " + e.getMessage()));
             e.printStackTrace();
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    // Getters and other methods 
-    public static Map<String, User> getUsers() { return userData; }
-    public static Map<Integer, Project> getProjects() { return projectData; }
-    public static Map<Integer, BTOApplication> getApplications() { return applicationData; }
-    public static Map<Integer, Enquiry> getEnquiries() { return enquiryData; }
-    public static Map<Integer, HDBOfficerRegistration> getOfficerRegistrations() { return officerRegistrationData; }
-    public static Map<Integer, FlatBooking> getFlatBookings() { return flatBookingData; }
-    public static void addUser(User user) { if (user != null) userData.put(user.getNric(), user); }
-    public static void removeUser(String nric) { userData.remove(nric); }
-    public static void addProject(Project project) { if (project != null) projectData.put(project.getProjectId(), project); }
-    public static void removeProject(int projectId) { projectData.remove(projectId); }
-    public static void addApplication(BTOApplication application) { if (application != null) applicationData.put(application.getApplicationId(), application); }
-    public static void removeApplication(int applicationId) { applicationData.remove(applicationId); }
-    public static void addEnquiry(Enquiry enquiry) { if (enquiry != null) enquiryData.put(enquiry.getEnquiryId(), enquiry); }
-    public static void removeEnquiry(int enquiryId) { enquiryData.remove(enquiryId); }
-    public static void addOfficerRegistration(HDBOfficerRegistration registration) { if (registration != null) officerRegistrationData.put(registration.getRegistrationId(), registration); }
-    public static void removeOfficerRegistration(int registrationId) { officerRegistrationData.remove(registrationId); }
-    public static void addFlatBooking(FlatBooking booking) { if (booking != null) flatBookingData.put(booking.getBookingId(), booking); }
-    public static void removeFlatBooking(int bookingId) { flatBookingData.remove(bookingId); }
-    public static User getUserByNric(String nric) { return userData.get(nric); }
-    public static Project getProjectById(int projectId) { return projectData.get(projectId); }
-    public static BTOApplication getApplicationById(int applicationId) { return applicationData.get(applicationId); }
-    public static Enquiry getEnquiryById(int enquiryId) { return enquiryData.get(enquiryId); }
-    public static HDBOfficerRegistration getOfficerRegistrationById(int registrationId) { return officerRegistrationData.get(registrationId); }
-    public static FlatBooking getFlatBookingById(int bookingId) { return flatBookingData.get(bookingId); }
-}
\ No newline at end of file
+    /** Performs one synchronous save of all pending changes on the calling thread. */
+    private static synchronized void flushChanges() throws IOException {
+        System.out.println("Saving data...");
+        List<TableBinding.CapturedChange> captured = captureChanges();
+        if (!journalInUse) {
+            String summary = whileUpdating(DataStore::saveStaleTables); // readers wait while files are replaced
+            System.out.println("Data saved successfully: " + summary + ".");
+            return;
+        }
+
+        int changes = captured.size(), totalRows = 0;
+        long csvBytes = 0;
+        journalChanges(captured);
+        for (TableBinding<?, ?> table : tables) {
+            totalRows += table.rowCount();
+            csvBytes += table.fileBytes();
+        }
+        int journalBytes = journal.sync();
+        System.out.println("Data saved successfully: " + changes + " change(s) journaled (" + journalBytes + " bytes); skipped rewriting "
+                + Math.max(0, totalRows - changes) + " unchanged rows (" + csvBytes + " CSV bytes).");
+
+        long intervalMillis = PersistenceConfig.JOURNAL_CHECKPOINT_INTERVAL_MS;
+        if (journal.size() >= PersistenceConfig.JOURNAL_CHECKPOINT_BYTES
+                || (intervalMillis > 0 && journal.size() > 0 && System.currentTimeMillis() - lastCheckpointMillis >= intervalMillis)) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Rewrites the stale data files from a snapshot of the in-memory state, records the journal sequence
+     * they now contain in the checkpoint marker, and clears the journal.
+     * If a crash happens before the marker is written, replaying the journal again on startup is harmless.
+     */
+    public static void checkpoint() {
+        if (snapshotGate.getReadHoldCount() > 0) {
+            // Checked before taking the DataStore lock, whose holder may be waiting for this thread's block to end
+            throw new IllegalStateException("Cannot checkpoint from inside DataStore.atomically(...)");
+        }
+        if (PersistenceConfig.READ_ONLY) return;
+        synchronized (DataStore.class) {
+            checkpointLocked();
+        }
+    }
+
+    private static void checkpointLocked() {
+        try {
+            if (!journalInUse) {
+                flushChanges();
+                return;
+            }
+            System.out.println("Checkpointing data files...");
+            // Tables not loaded yet may still have journaled changes; they must reach the files before the journal is cleared
+            for (TableBinding<?, ?> table : tables) {
+                if (pendingReplay.containsKey(table.getName())) {
+                    ensureLoaded(table);
+                }
+            }
+            journalChanges(captureChanges());
+            journal.sync();
+            long sequence = journal.getLastSequence();
+            String summary = whileUpdating(() -> { // readers see the files and the journal change together
+                String saved = saveStaleTables();
+                long now = System.currentTimeMillis();
+                checkpointMarker.save(sequence, now);
+                lastCheckpointMillis = now;
+                journal.reset();
+                return saved;
+            });
+            System.out.println("Checkpoint complete at sequence " + sequence + ": " + summary + ".");
+        } catch (Exception e) {
+            System.err.println(TextFormatUtil.error("Error during checkpoint (journal retained for recovery): " + e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Drains any queued write-behind saves, flushes outstanding changes into the CSV files
+     * and releases the journal. Call once on application exit.
+     */
+    public static void shutdown() {
+        if (PersistenceConfig.READ_ONLY) {
+            synchronized (DataStore.class) {
+                closeDirectoryLock();
+                JdbcDatabase.close();
+            }
+            return;
+        }
+        DataFileWatcher activeWatcher = watcher;
+        if (activeWatcher != null) {
+            watcher = null;
+            activeWatcher.stop();
+        }
+        WriteBehindFlusher activeFlusher = flusher;
+        if (activeFlusher != null) {
+            flusher = null; // later saves run synchronously
+            activeFlusher.drainAndStop();
+        }
+        synchronized (DataStore.class) {
+            if (journalInUse && !journal.isOpen()) {
+                return; // Already shut down
+            }
+            checkpoint();
+            boolean dataFilesCurrent = tables.stream().noneMatch(table -> table.isFileStale() || table.hasPendingChanges());
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println(TextFormatUtil.error("Error closing journal: " + e.getMessage()));
+                dataFilesCurrent = false;
+            }
+            if (PersistenceConfig.WARM_START_ENABLED && dataFilesCurrent) {
+                if (tables.stream().allMatch(TableBinding::isLoaded)) {
+                    saveWarmStartImage();
+                } else {
+                    System.out.println("Warm-start image not written: some tables were never loaded in this session.");
+                }
+            }
+            JdbcDatabase.close();
+            closeDirectoryLock();
+        }
+    }
+
+    /** Runs the work holding the data directory's update region; without the lock once shutdown() has released it. */
+    private static <T, E extends Exception> T whileUpdating(DataDirectoryLock.Update<T, E> work) throws IOException, E {
+        DataDirectoryLock lock = directoryLock;
+        return (lock != null) ? lock.whileUpdating(work) : work.run();
+    }
+
+    private static void closeDirectoryLock() {
+        if (directoryLock == null) return;
+        try {
+            directoryLock.close();
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Error releasing " + FilePathConstants.LOCK_FILE + ": " + e.getMessage()));
+        }
+        directoryLock = null;
+    }
+
+    /**
+     * Runs a change spanning several entities or tables (e.g. a booking: unit count, booking record and
+     * application status) so that no save captures it half done. Blocks may nest; saves requested inside
+     * a block run once the outermost block has finished.
+     */
+    public static void atomically(Runnable change) {
+        atomically(() -> {
+            change.run();
+            return null;
+        });
+    }
+
+    /** As {@link #atomically(Runnable)}, returning the block's result. */
+    public static <T> T atomically(Supplier<T> change) {
+        snapshotGate.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            snapshotGate.readLock().unlock();
+            if (snapshotGate.getReadHoldCount() == 0) {
+                CompletableFuture<Void> pending = deferredSave.get();
+                if (pending != null) {
+                    deferredSave.remove();
+                    saveAllData().whenComplete((result, error) -> {
+                        if (error != null) pending.completeExceptionally(error);
+                        else pending.complete(null);
+                    });
+                }
+            }
+        }
+    }
+
+    // Getters and other methods; each loads its table on first access
+    public static Map<String, User> getUsers() { ensureLoaded(usersTable); return userData; }
+    public static Map<Integer, Project> getProjects() { ensureLoaded(projectsTable); return projectData; }
+    public static Map<Integer, BTOApplication> getApplications() { ensureLoaded(applicationsTable); return applicationData; }
+    public static Map<Integer, Enquiry> getEnquiries() { ensureLoaded(enquiriesTable); return enquiryData; }
+    public static Map<Integer, HDBOfficerRegistration> getOfficerRegistrations() { ensureLoaded(officerRegistrationsTable); return officerRegistrationData; }
+    public static Map<Integer, FlatBooking> getFlatBookings() { ensureLoaded(flatBookingsTable); return flatBookingData; }
+    public static void addUser(User user) { ensureLoaded(usersTable); if (user != null) atomically(() -> { userData.put(user.getNric(), user); usersTable.markDirty(user.getNric()); }); }
+    public static void removeUser(String nric) { ensureLoaded(usersTable); atomically(() -> { if (userData.remove(nric) != null) usersTable.markDirty(nric); }); }
+    public static void addProject(Project project) { ensureLoaded(projectsTable); if (project != null) atomically(() -> { projectData.put(project.getProjectId(), project); projectsTable.markDirty(project.getProjectId()); }); }
+    public static void removeProject(int projectId) { ensureLoaded(projectsTable); atomically(() -> { if (projectData.remove(projectId) != null) projectsTable.markDirty(projectId); }); }
+    public static void addApplication(BTOApplication application) { ensureLoaded(applicationsTable); if (application != null) atomically(() -> { applicationData.put(application.getApplicationId(), application); applicationsTable.markDirty(application.getApplicationId()); }); }
+    public static void removeApplication(int applicationId) { ensureLoaded(applicationsTable); atomically(() -> { if (applicationData.remove(applicationId) != null) applicationsTable.markDirty(applicationId); }); }
+    public static void addEnquiry(Enquiry enquiry) { ensureLoaded(enquiriesTable); if (enquiry != null) atomically(() -> { enquiryData.put(enquiry.getEnquiryId(), enquiry); enquiriesTable.markDirty(enquiry.getEnquiryId()); }); }
+    public static void removeEnquiry(int enquiryId) { ensureLoaded(enquiriesTable); atomically(() -> { if (enquiryData.remove(enquiryId) != null) enquiriesTable.markDirty(enquiryId); }); }
+    public static void addOfficerRegistration(HDBOfficerRegistration registration) { ensureLoaded(officerRegistrationsTable); if (registration != null) atomically(() -> { officerRegistrationData.put(registration.getRegistrationId(), registration); officerRegistrationsTable.markDirty(registration.getRegistrationId()); }); }
+    public static void removeOfficerRegistration(int registrationId) { ensureLoaded(officerRegistrationsTable); atomically(() -> { if (officerRegistrationData.remove(registrationId) != null) officerRegistrationsTable.markDirty(registrationId); }); }
+    public static void addFlatBooking(FlatBooking booking) { ensureLoaded(flatBookingsTable); if (booking != null) atomically(() -> { flatBookingData.put(booking.getBookingId(), booking); flatBookingsTable.markDirty(booking.getBookingId()); }); }
+    public static void removeFlatBooking(int bookingId) { ensureLoaded(flatBookingsTable); atomically(() -> { if (flatBookingData.remove(bookingId) != null) flatBookingsTable.markDirty(bookingId); }); }
+
+    /**
+     * Moves a project's applications, enquiries and flat bookings out of the live tables into the archive;
+     * the caller decides which projects are eligible. The archive files are written first, so a crash in
+     * between leaves rows in both places: reads that include the archive prefer the live row, and
+     * archiving the project again merges them.
+     * @return The number of rows archived.
+     */
+    public static int archiveProject(int projectId) throws IOException {
+        Map<Integer, BTOApplication> applications = rowsOfProject(applicationsTable, applicationsByProject, projectId);
+        Map<Integer, Enquiry> enquiries = rowsOfProject(enquiriesTable, enquiriesByProject, projectId);
+        Map<Integer, FlatBooking> bookings = rowsOfProject(flatBookingsTable, flatBookingsByProject, projectId);
+
+        applicationArchive.archive(projectId, applications.values());
+        enquiryArchive.archive(projectId, enquiries.values());
+        flatBookingArchive.archive(projectId, bookings.values());
+
+        atomically(() -> { // only the rows written to the archive above
+            applicationsTable.removeKeys(applications.keySet());
+            enquiriesTable.removeKeys(enquiries.keySet());
+            flatBookingsTable.removeKeys(bookings.keySet());
+        });
+        saveAllData();
+        return applications.size() + enquiries.size() + bookings.size();
+    }
+
+    private static <V> Map<Integer, V> rowsOfProject(TableBinding<Integer, V> table, SecondaryIndex<Integer, V, Integer> byProject, int projectId) {
+        ensureLoaded(table);
+        Map<Integer, V> rows = new LinkedHashMap<>();
+        for (Integer key : byProject.keysFor(projectId)) {
+            V row = table.map().get(key);
+            if (row != null) rows.put(key, row);
+        }
+        return rows;
+    }
+
+    /** Whether any rows of the project have been moved to the archive. */
+    public static boolean isProjectArchived(int projectId) {
+        return applicationArchive.hasProject(projectId) || enquiryArchive.hasProject(projectId) || flatBookingArchive.hasProject(projectId);
+    }
+
+    // Reads that fall through to the archive when asked to; archived rows are read-only
+    public static Map<Integer, BTOApplication> getApplications(boolean includeArchived) { return includeArchived ? withArchive(getApplications(), applicationArchive) : getApplications(); }
+    public static Map<Integer, Enquiry> getEnquiries(boolean includeArchived) { return includeArchived ? withArchive(getEnquiries(), enquiryArchive) : getEnquiries(); }
+    public static Map<Integer, FlatBooking> getFlatBookings(boolean includeArchived) { return includeArchived ? withArchive(getFlatBookings(), flatBookingArchive) : getFlatBookings(); }
+    public static BTOApplication getApplicationById(int applicationId, boolean includeArchived) {
+        BTOApplication application = getApplicationById(applicationId);
+        return (application == null && includeArchived) ? withArchive(Collections.emptyMap(), applicationArchive).get(applicationId) : application;
+    }
+
+    /** Archived applications of one applicant, found through the archive's owners index; a row still in the live table is left out. */
+    public static List<BTOApplication> getArchivedApplicationsByApplicant(String applicantNric) {
+        List<BTOApplication> archived = new ArrayList<>();
+        try {
+            for (BTOApplication application : applicationArchive.rowsOwnedBy(applicantNric)) {
+                if (getApplicationById(application.getApplicationId()) == null) archived.add(application);
+            }
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Could not read the " + applicationArchive.getName() + " archive (" + e.getMessage() + "); showing live records only."));
+        }
+        return archived;
+    }
+
+    /** Live rows plus archived rows, as an unmodifiable copy; a row found in both places is taken from the live table. */
+    private static <V> Map<Integer, V> withArchive(Map<Integer, V> live, ArchiveTable<V> archive) {
+        Map<Integer, V> all = new HashMap<>();
+        try {
+            all.putAll(archive.rows());
+        } catch (IOException e) {
+            System.err.println(TextFormatUtil.warning("Could not read the " + archive.getName() + " archive (" + e.getMessage() + "); showing live records only."));
+        }
+        all.putAll(live);
+        return Collections.unmodifiableMap(all);
+    }
+
+    // Cascade removals used when a project is deleted; these go through change tracking and the indexes, unlike removeIf on the raw maps
+    public static void removeApplicationsByProject(int projectId) { removeByIndex(applicationsTable, applicationsByProject, projectId); }
+    public static void removeEnquiriesByProject(int projectId) { removeByIndex(enquiriesTable, enquiriesByProject, projectId); }
+    public static void removeOfficerRegistrationsByProject(int projectId) { removeByIndex(officerRegistrationsTable, registrationsByProject, projectId); }
+    public static void removeFlatBookingsByProject(int projectId) { removeByIndex(flatBookingsTable, flatBookingsByProject, projectId); }
+
+    private static <K, V, I> void removeByIndex(TableBinding<K, V> table, SecondaryIndex<K, V, I> index, I value) {
+        ensureLoaded(table);
+        atomically(() -> table.removeKeys(index.keysFor(value)));
+    }
+
+    // Lookups through the secondary indexes instead of scanning a table; rows in ID order
+    public static List<Project> getProjectsByManager(String managerNric) { ensureLoaded(projectsTable); return projectsTable.lookup(projectsByManager, managerNric); }
+    public static List<BTOApplication> getApplicationsByApplicant(String applicantNric) { ensureLoaded(applicationsTable); return applicationsTable.lookup(applicationsByApplicant, applicantNric); }
+    public static List<BTOApplication> getApplicationsByProject(int projectId) { ensureLoaded(applicationsTable); return applicationsTable.lookup(applicationsByProject, projectId); }
+    public static List<Enquiry> getEnquiriesBySubmitter(String submitterNric) { ensureLoaded(enquiriesTable); return enquiriesTable.lookup(enquiriesBySubmitter, submitterNric); }
+    public static List<Enquiry> getEnquiriesByProject(int projectId) { ensureLoaded(enquiriesTable); return enquiriesTable.lookup(enquiriesByProject, projectId); }
+    public static List<HDBOfficerRegistration> getOfficerRegistrationsByOfficer(String officerNric) { ensureLoaded(officerRegistrationsTable); return officerRegistrationsTable.lookup(registrationsByOfficer, officerNric); }
+    public static List<HDBOfficerRegistration> getOfficerRegistrationsByProject(int projectId) { ensureLoaded(officerRegistrationsTable); return officerRegistrationsTable.lookup(registrationsByProject, projectId); }
+    public static List<FlatBooking> getFlatBookingsByProject(int projectId) { ensureLoaded(flatBookingsTable); return flatBookingsTable.lookup(flatBookingsByProject, projectId); }
+
+    public static User getUserByNric(String nric) {
+        ensureLoaded(usersTable);
+        User user = userData.get(nric);
+        if (user instanceof HDBOfficer) {
+            ensureOfficerHandlingState(); // callers read the officer's handling project
+        }
+        return user;
+    }
+    public static Project getProjectById(int projectId) { ensureLoaded(projectsTable); return projectData.get(projectId); }
+    public static BTOApplication getApplicationById(int applicationId) { ensureLoaded(applicationsTable); return applicationData.get(applicationId); }
+    public static Enquiry getEnquiryById(int enquiryId) { ensureLoaded(enquiriesTable); return enquiryData.get(enquiryId); }
+    public static HDBOfficerRegistration getOfficerRegistrationById(int registrationId) { ensureLoaded(officerRegistrationsTable); return officerRegistrationData.get(registrationId); }
+    public static FlatBooking getFlatBookingById(int bookingId) { ensureLoaded(flatBookingsTable); return flatBookingData.get(bookingId); }
+}
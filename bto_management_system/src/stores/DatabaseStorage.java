@@ -0,0 +1,68 @@
+package stores;
+
+import data.AbstractJdbcDataManager;
+import utils.PersistenceConfig;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A table kept in the embedded SQL database (see {@link AbstractJdbcDataManager}); a save sends only the
+ * rows that changed, inside the transaction DataStore opens for all database tables.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+class DatabaseStorage<K, V> implements TableStorage<K, V> {
+
+    private final AbstractJdbcDataManager<K, V> databaseManager;
+
+    DatabaseStorage(AbstractJdbcDataManager<K, V> databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    @Override public String getPath() { return PersistenceConfig.JDBC_URL; }
+    @Override public String describe() { return "table " + databaseManager.getTable() + " in " + getPath(); }
+    @Override public boolean usesDatabase() { return true; }
+    @Override public boolean needsRewrite() { return false; }
+
+    @Override
+    public boolean exists() throws IOException {
+        return databaseManager.savedAt() > 0;
+    }
+
+    @Override
+    public Map<K, V> load() throws IOException {
+        return databaseManager.load(getPath());
+    }
+
+    @Override
+    public boolean attach(Map<K, V> rows, boolean filesCurrent) throws IOException {
+        return !filesCurrent || !exists();
+    }
+
+    @Override
+    public void write(String targetPath, Map<K, String> changes, boolean complete) throws IOException {
+        if (complete) databaseManager.saveRows(getPath(), changes);
+        else databaseManager.saveChanges(getPath(), changes);
+    }
+
+    /** The database tables are left in place; only the table's files are ever retired. */
+    @Override
+    public void delete() {
+    }
+
+    /** When the table was last saved to the database, or 0 if it never was (or cannot be reached). */
+    @Override
+    public long lastModified() {
+        try {
+            return databaseManager.savedAt();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return 0; // not a file
+    }
+}
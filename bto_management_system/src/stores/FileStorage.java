@@ -0,0 +1,204 @@
+package stores;
+
+import data.AbstractBinaryDataManager;
+import data.AbstractCsvDataManager;
+import data.CompressedFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * A table kept in one CSV file or binary snapshot, replaced as a whole by every save; with the generation
+ * manifest each save writes a new generation file. A save merges the changed rows into the rows the current
+ * file holds, so the table is not kept in memory as rows. A CSV file can also be watched for edits made by
+ * other programs: it then remembers a hash of every row the file holds, so an edit can be diffed against them.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+class FileStorage<K, V> implements TableStorage<K, V> {
+
+    private final String filePath;
+    private final AbstractCsvDataManager<K, V> codec; // CSV row codec, and the file's DataManager for a CSV file
+    private final AbstractBinaryDataManager<K, V> snapshotManager; // null for a CSV file
+    private final boolean compressed;
+    private final boolean watched;
+
+    // File currently holding the table; differs from filePath when a generation manifest is in use
+    private volatile String physicalPath;
+    private volatile boolean schemaOutdated = false;
+    private volatile boolean rewriteNeeded = false;
+
+    // Hot reload (watched files only), guarded by the DataStore lock: the hash of every row the file holds (null
+    // if unknown), and the file's modification time and size when it was last read or written, so the table's
+    // own writes are not taken for external edits
+    private Map<K, Long> fileRows = null;
+    private long fileModified = 0;
+    private long fileLength = 0;
+
+    /**
+     * @param codec The table's CSV DataManager.
+     * @param snapshotManager The table's binary snapshot DataManager for a snapshot file, null for a CSV file.
+     * @param watched Whether external edits of the file are reloaded; only for CSV files.
+     */
+    FileStorage(String filePath, AbstractCsvDataManager<K, V> codec, AbstractBinaryDataManager<K, V> snapshotManager, boolean compressed, boolean watched) {
+        this.filePath = filePath;
+        this.codec = codec;
+        this.snapshotManager = snapshotManager;
+        this.compressed = compressed;
+        this.watched = watched && snapshotManager == null;
+        this.physicalPath = filePath;
+    }
+
+    @Override public String getPath() { return filePath; }
+    @Override public String getPhysicalPath() { return physicalPath; }
+    @Override public boolean writesInPlace() { return false; }
+    @Override public boolean needsRewrite() { return rewriteNeeded; }
+    @Override public boolean hasOutdatedSchema() { return schemaOutdated; }
+
+    @Override
+    public void resolvePath(Function<String, String> resolver) {
+        physicalPath = resolver.apply(filePath);
+    }
+
+    @Override
+    public boolean exists() {
+        return new File(physicalPath).exists() || new File(filePath).exists();
+    }
+
+    @Override
+    public Map<K, V> load() throws IOException {
+        File file = new File(physicalPath);
+        long modified = file.lastModified(), length = file.length(); // before reading, so an edit made meanwhile is seen later
+        Map<K, V> rows = (snapshotManager == null) ? codec.load(physicalPath) : snapshotManager.load(physicalPath);
+        if (watched) recordFileRows(hashRows(rows), modified, length);
+        schemaOutdated = snapshotManager == null && codec.isOutdated(physicalPath);
+        rewriteNeeded = schemaOutdated || compressionChanged(file);
+        return rows;
+    }
+
+    @Override
+    public boolean attach(Map<K, V> rows, boolean filesCurrent) {
+        fileRows = null;
+        File file = new File(physicalPath);
+        boolean stale = !filesCurrent || !file.exists() || compressionChanged(file);
+        if (!stale && watched) recordFileRows(hashRows(rows), file.lastModified(), file.length());
+        return stale;
+    }
+
+    /** Whether an existing file was saved with the other compression setting, so it should be rewritten. */
+    private boolean compressionChanged(File file) {
+        try {
+            return file.isFile() && CompressedFiles.isCompressed(file) != compressed;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /** Writes the rows of the current file with the changes merged in; a snapshot is encoded from decoded rows, never from the live objects. */
+    @Override
+    public void write(String targetPath, Map<K, String> changes, boolean complete) throws IOException {
+        String sourcePath = (complete || !new File(physicalPath).isFile()) ? null : physicalPath;
+        if (snapshotManager == null) {
+            codec.saveChanges(sourcePath, targetPath, changes);
+        } else {
+            Map<K, V> rows = (sourcePath == null) ? new LinkedHashMap<>() : snapshotManager.read(sourcePath);
+            snapshotManager.save(targetPath, TableStorage.applyChanges(rows, changes, codec));
+        }
+        physicalPath = targetPath;
+        rewriteNeeded = false;
+        if (watched) {
+            if (complete) fileRows = new HashMap<>();
+            if (fileRows != null) {
+                changes.forEach((key, row) -> {
+                    if (row != null) fileRows.put(key, hash(row));
+                    else fileRows.remove(key);
+                });
+                recordFileRows(fileRows, new File(targetPath).lastModified(), new File(targetPath).length());
+            }
+        }
+    }
+
+    @Override
+    public void delete() throws IOException {
+        Files.deleteIfExists(new File(physicalPath).toPath());
+        Files.deleteIfExists(new File(filePath).toPath());
+    }
+
+    @Override
+    public long lastModified() {
+        return Math.max(new File(physicalPath).lastModified(), new File(filePath).lastModified());
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return new File(physicalPath).length();
+    }
+
+    private Map<K, Long> hashRows(Map<K, V> rows) {
+        Map<K, Long> hashes = new HashMap<>();
+        rows.forEach((key, object) -> hashes.put(key, hash(codec.formatRecord(object))));
+        return hashes;
+    }
+
+    /** 64-bit row hash (CRC32 and String.hashCode side by side), so an unchanged hash means an unchanged row. */
+    private static long hash(String row) {
+        CRC32 crc = new CRC32();
+        crc.update(row.getBytes(StandardCharsets.UTF_8));
+        return (crc.getValue() << 32) | (row.hashCode() & 0xFFFFFFFFL);
+    }
+
+    private void recordFileRows(Map<K, Long> rows, long modified, long length) {
+        fileRows = rows;
+        fileModified = modified;
+        fileLength = length;
+    }
+
+    /** Whether the file was changed by another program since the table last read or wrote it. */
+    boolean changedOnDisk() {
+        if (fileRows == null) return false;
+        File file = new File(physicalPath);
+        return file.isFile() && (file.lastModified() != fileModified || file.length() != fileLength);
+    }
+
+    /**
+     * Re-reads the file after an external edit and diffs it against the rows the file held before:
+     * rows that differ are inserts or updates, rows that are gone are deletes. Rows the edit did not touch
+     * are left out, so changes the file does not have yet (e.g. still in the journal) are kept.
+     * If the file has rows that fail to parse, none are deleted, since those rows may be the missing ones.
+     */
+    TableBinding.ExternalEdit<K, V> readExternalEdit() throws IOException {
+        File file = new File(physicalPath);
+        long modified = file.lastModified(), length = file.length();
+        Map<K, V> parsed = codec.load(physicalPath);
+        boolean partial = codec.hadRejectedRows(physicalPath);
+        TableBinding.ExternalEdit<K, V> edit = new TableBinding.ExternalEdit<>(modified, length, partial);
+        for (Map.Entry<K, V> entry : parsed.entrySet()) {
+            long rowHash = hash(codec.formatRecord(entry.getValue()));
+            edit.rows.put(entry.getKey(), rowHash);
+            Long previous = fileRows.get(entry.getKey());
+            if (previous == null || previous != rowHash) edit.upserts.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<K, Long> previous : fileRows.entrySet()) {
+            if (parsed.containsKey(previous.getKey())) continue;
+            if (partial) {
+                edit.rows.put(previous.getKey(), previous.getValue());
+                edit.unread.add(previous.getKey()); // written back from memory by the next save
+            } else {
+                edit.deletes.add(previous.getKey());
+            }
+        }
+        return edit;
+    }
+
+    /** Remembers the rows the file holds after an external edit was applied. */
+    void recordExternalEdit(TableBinding.ExternalEdit<K, V> edit) {
+        recordFileRows(edit.rows, edit.modified, edit.length);
+    }
+}
@@ -0,0 +1,63 @@
+package stores;
+
+import data.LogStructuredDataManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A table kept in a log-structured segment directory (see {@link LogStructuredDataManager}); a save appends
+ * only the rows that changed.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+class LogStorage<K, V> implements TableStorage<K, V> {
+
+    private final String dirPath;
+    private final LogStructuredDataManager<K, V> logManager;
+
+    LogStorage(String dirPath, LogStructuredDataManager<K, V> logManager) {
+        this.dirPath = dirPath;
+        this.logManager = logManager;
+    }
+
+    @Override public String getPath() { return dirPath; }
+    @Override public boolean needsRewrite() { return false; }
+
+    @Override
+    public boolean exists() {
+        return LogStructuredDataManager.hasSegments(dirPath);
+    }
+
+    @Override
+    public Map<K, V> load() throws IOException {
+        return logManager.load(dirPath);
+    }
+
+    @Override
+    public boolean attach(Map<K, V> rows, boolean filesCurrent) {
+        return !filesCurrent || !exists();
+    }
+
+    /** Appends the rows that differ from the logged ones, and tombstones for the rows that are gone. */
+    @Override
+    public void write(String targetPath, Map<K, String> changes, boolean complete) throws IOException {
+        if (complete) logManager.saveRows(dirPath, changes);
+        else logManager.saveChanges(dirPath, changes);
+    }
+
+    @Override
+    public void delete() throws IOException {
+        logManager.drop(dirPath); // it may have been opened to load the table from it
+    }
+
+    @Override
+    public long lastModified() {
+        return LogStructuredDataManager.lastModified(dirPath);
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return LogStructuredDataManager.sizeOnDisk(dirPath);
+    }
+}
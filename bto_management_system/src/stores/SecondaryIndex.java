@@ -0,0 +1,65 @@
+package stores;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Index of one table by a derived key (e.g. applications by applicant NRIC), so lookups need not scan the table.
+ * Maintained by its TableBinding: rebuilt whenever a new map is installed, and updated for each key that is
+ * added, changed or removed. Rows whose extractor returns null are not indexed.
+ */
+final class SecondaryIndex<K, V, I> {
+
+    private final Function<V, I> extractor;
+    // Replaced as a whole by rebuild, so lookups never see a half-built index
+    private volatile Map<I, Set<K>> keysByValue = new ConcurrentHashMap<>();
+    private Map<K, I> valueByKey = new HashMap<>(); // what each row was indexed under, to move it on change; guarded by this
+
+    SecondaryIndex(Function<V, I> extractor) {
+        this.extractor = extractor;
+    }
+
+    /** Primary keys of the rows indexed under the value, in key order. */
+    List<K> keysFor(I value) {
+        Set<K> keys = (value != null) ? keysByValue.get(value) : null;
+        if (keys == null) return Collections.emptyList();
+        List<K> sorted = new ArrayList<>(keys);
+        sorted.sort(null); // table keys are Integers or Strings
+        return sorted;
+    }
+
+    /** Re-indexes one row from its current object in the map, or drops it if the row is gone. */
+    synchronized void update(K key, Map<K, V> map) {
+        V object = map.get(key);
+        I value = (object != null) ? extractor.apply(object) : null;
+        I previous = (value != null) ? valueByKey.put(key, value) : valueByKey.remove(key);
+        if (previous != null && !previous.equals(value)) {
+            Set<K> keys = keysByValue.get(previous);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) keysByValue.remove(previous);
+            }
+        }
+        if (value != null) keysByValue.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /** Indexes every row of a newly installed map. */
+    synchronized void rebuild(Map<K, V> map) {
+        Map<I, Set<K>> keys = new ConcurrentHashMap<>();
+        Map<K, I> values = new HashMap<>();
+        map.forEach((key, object) -> {
+            I value = extractor.apply(object);
+            if (value == null) return;
+            values.put(key, value);
+            keys.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+        });
+        valueByKey = values;
+        keysByValue = keys;
+    }
+}
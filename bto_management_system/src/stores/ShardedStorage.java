@@ -0,0 +1,246 @@
+package stores;
+
+import data.AbstractBinaryDataManager;
+import data.AbstractCsvDataManager;
+import data.CompressedFiles;
+import utils.FilePathConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * A table whose rows belong to a project, kept as one CSV or binary file per project
+ * (see {@link FilePathConstants#shardPathFor(String, int, boolean)}). A save rewrites only the shards of the
+ * projects that changed, merging the changed rows into each, and a project with no rows left has its shard file deleted.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+class ShardedStorage<K, V> implements TableStorage<K, V> {
+
+    private final String csvFilePath;
+    private final AbstractCsvDataManager<K, V> manager;
+    private final AbstractBinaryDataManager<K, V> snapshotManager;
+    private final ToIntFunction<V> projectOf;
+    private final boolean binary;
+    private final boolean compressed;
+    private volatile boolean schemaOutdated = false;
+
+    // Guarded by the DataStore lock: the shard of every row, the rows of every shard, the shards whose files are
+    // behind, and the rows that left each of those shards (moved or removed) since it was written
+    private final Map<K, Integer> rowShards = new HashMap<>();
+    private final Map<Integer, Set<K>> shardRows = new HashMap<>();
+    private final Set<Integer> staleShards = new HashSet<>();
+    private final Map<Integer, Set<K>> departedRows = new HashMap<>();
+
+    /**
+     * @param csvFilePath The table's CSV file, which names the shard directory.
+     * @param projectOf Returns the project ID of a row.
+     * @param binary Whether shards are saved as binary snapshots rather than CSV files.
+     */
+    ShardedStorage(String csvFilePath, AbstractCsvDataManager<K, V> manager, AbstractBinaryDataManager<K, V> snapshotManager,
+                   ToIntFunction<V> projectOf, boolean binary, boolean compressed) {
+        this.csvFilePath = csvFilePath;
+        this.manager = manager;
+        this.snapshotManager = snapshotManager;
+        this.projectOf = projectOf;
+        this.binary = binary;
+        this.compressed = compressed;
+    }
+
+    @Override public String getPath() { return FilePathConstants.shardDirectoryFor(csvFilePath); }
+    @Override public String describe() { return "the per-project shards in " + getPath(); }
+    @Override public boolean needsRewrite() { return !staleShards.isEmpty(); }
+    @Override public boolean hasOutdatedSchema() { return schemaOutdated; }
+
+    @Override
+    public boolean exists() {
+        return !listShardFiles().isEmpty();
+    }
+
+    /**
+     * Loads every shard file; where a shard exists in both formats the file in the configured format is loaded
+     * and the other one is removed when the shard is rewritten.
+     */
+    @Override
+    public Map<K, V> load() throws IOException {
+        Map<K, V> loaded = new ConcurrentHashMap<>();
+        Set<Integer> outdated = new HashSet<>();
+        schemaOutdated = false;
+        for (Map.Entry<Integer, List<File>> shard : listShardFiles().entrySet()) {
+            File source = shard.getValue().get(0);
+            for (File file : shard.getValue()) {
+                if (file.getName().endsWith(FilePathConstants.SNAPSHOT_EXTENSION) == binary) source = file;
+            }
+            boolean snapshot = source.getName().endsWith(FilePathConstants.SNAPSHOT_EXTENSION);
+            loaded.putAll((snapshot ? snapshotManager : manager).load(source.getPath()));
+            boolean oldSchema = !snapshot && manager.isOutdated(source.getPath());
+            schemaOutdated |= oldSchema;
+            if (snapshot != binary || shard.getValue().size() > 1 || compressionChanged(source) || oldSchema) {
+                outdated.add(shard.getKey()); // rewrite in the configured format and version, removing the other file
+            }
+        }
+        resetShards(loaded);
+        staleShards.addAll(outdated);
+        return loaded;
+    }
+
+    /**
+     * With current files, the stale shards are those without a file in the configured format, and files of
+     * shards that no longer have rows; otherwise (a move from another layout) every shard is rewritten.
+     */
+    @Override
+    public boolean attach(Map<K, V> rows, boolean filesCurrent) {
+        resetShards(rows);
+        Map<Integer, List<File>> onDisk = listShardFiles();
+        Set<Integer> shards = new HashSet<>(shardRows.keySet());
+        shards.addAll(onDisk.keySet());
+        String extension = binary ? FilePathConstants.SNAPSHOT_EXTENSION : ".csv";
+        for (Integer shard : shards) {
+            List<File> files = onDisk.get(shard);
+            if (!filesCurrent || !shardRows.containsKey(shard) || files == null || files.size() > 1
+                    || !files.get(0).getName().endsWith(extension) || compressionChanged(files.get(0))) {
+                staleShards.add(shard);
+            }
+        }
+        return !staleShards.isEmpty();
+    }
+
+    private void resetShards(Map<K, V> rows) {
+        rowShards.clear();
+        shardRows.clear();
+        staleShards.clear();
+        departedRows.clear();
+        rows.forEach((key, object) -> {
+            int shard = projectOf.applyAsInt(object);
+            rowShards.put(key, shard);
+            shardRows.computeIfAbsent(shard, id -> new HashSet<>()).add(key);
+        });
+    }
+
+    /** Moves the row to the shard of its project; the shards it left and joined become stale. */
+    @Override
+    public void track(K key, V object) {
+        Integer previous = (object == null) ? rowShards.remove(key) : rowShards.put(key, projectOf.applyAsInt(object));
+        if (previous != null) {
+            shardRows.get(previous).remove(key);
+            staleShards.add(previous);
+            if (!previous.equals(rowShards.get(key))) departedRows.computeIfAbsent(previous, id -> new HashSet<>()).add(key);
+        }
+        if (object != null) {
+            int shard = rowShards.get(key);
+            shardRows.computeIfAbsent(shard, id -> new HashSet<>()).add(key);
+            staleShards.add(shard);
+        }
+    }
+
+    /** Rewrites the stale shards, each in place; the target path is not used. */
+    @Override
+    public void write(String targetPath, Map<K, String> changes, boolean complete) throws IOException {
+        Map<Integer, Map<K, String>> shardChanges = new HashMap<>();
+        changes.forEach((key, row) -> {
+            Integer shard = rowShards.get(key);
+            if (row != null && shard != null) shardChanges.computeIfAbsent(shard, id -> new LinkedHashMap<>()).put(key, row);
+        });
+        for (Integer shard : new ArrayList<>(staleShards)) {
+            Set<K> keys = shardRows.get(shard);
+            String shardPath = FilePathConstants.shardPathFor(csvFilePath, shard, binary);
+            String otherPath = FilePathConstants.shardPathFor(csvFilePath, shard, !binary);
+            if (keys == null || keys.isEmpty()) {
+                Files.deleteIfExists(new File(shardPath).toPath()); // e.g. the project was deleted
+                shardRows.remove(shard);
+            } else {
+                Map<K, String> rows = shardChanges.getOrDefault(shard, new LinkedHashMap<>());
+                for (K departed : departedRows.getOrDefault(shard, Collections.emptySet())) rows.putIfAbsent(departed, null);
+                new File(shardPath).getParentFile().mkdirs();
+                writeShard(shardPath, otherPath, rows, complete);
+            }
+            Files.deleteIfExists(new File(otherPath).toPath());
+            departedRows.remove(shard);
+            staleShards.remove(shard); // only once written, so a failed shard is retried by the next save
+        }
+    }
+
+    /** Merges the changes into the shard's current file, in whichever format it is, and writes it in the configured format. */
+    private void writeShard(String shardPath, String otherPath, Map<K, String> changes, boolean complete) throws IOException {
+        String sourcePath = complete ? null : new File(shardPath).isFile() ? shardPath : new File(otherPath).isFile() ? otherPath : null;
+        boolean snapshotSource = sourcePath != null && sourcePath.endsWith(FilePathConstants.SNAPSHOT_EXTENSION);
+        if (!binary && !snapshotSource) {
+            manager.saveChanges(sourcePath, shardPath, changes);
+            return;
+        }
+        Map<K, V> rows = (sourcePath == null) ? new LinkedHashMap<>()
+                : snapshotSource ? snapshotManager.read(sourcePath) : manager.read(sourcePath);
+        TableStorage.applyChanges(rows, changes, manager);
+        if (binary) {
+            snapshotManager.save(shardPath, rows); // encoded from decoded rows, never from the live objects
+        } else {
+            Map<K, String> formatted = new LinkedHashMap<>();
+            rows.forEach((key, object) -> formatted.put(key, manager.formatRecord(object)));
+            manager.saveChanges(null, shardPath, formatted);
+        }
+    }
+
+    @Override
+    public void delete() throws IOException {
+        for (List<File> files : listShardFiles().values()) {
+            for (File file : files) Files.deleteIfExists(file.toPath());
+        }
+        new File(getPath()).delete(); // only succeeds once empty
+    }
+
+    @Override
+    public long lastModified() {
+        long latest = new File(getPath()).lastModified();
+        for (List<File> files : listShardFiles().values()) {
+            for (File file : files) latest = Math.max(latest, file.lastModified());
+        }
+        return latest;
+    }
+
+    @Override
+    public long sizeOnDisk() {
+        return listShardFiles().values().stream().flatMap(List::stream).mapToLong(File::length).sum();
+    }
+
+    /** Whether an existing file was saved with the other compression setting, so it should be rewritten. */
+    private boolean compressionChanged(File file) {
+        try {
+            return file.isFile() && CompressedFiles.isCompressed(file) != compressed;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /** Shard files on disk by project ID (one per format present). */
+    private Map<Integer, List<File>> listShardFiles() {
+        Map<Integer, List<File>> shards = new TreeMap<>();
+        File[] files = new File(getPath()).listFiles();
+        if (files == null) return shards;
+        for (File file : files) {
+            String fileName = file.getName();
+            int dot = fileName.lastIndexOf('.');
+            if (!fileName.startsWith(FilePathConstants.SHARD_PREFIX) || dot < 0) continue;
+            String extension = fileName.substring(dot);
+            if (!extension.equals(".csv") && !extension.equals(FilePathConstants.SNAPSHOT_EXTENSION)) continue;
+            try {
+                int projectId = Integer.parseInt(fileName.substring(FilePathConstants.SHARD_PREFIX.length(), dot));
+                shards.computeIfAbsent(projectId, id -> new ArrayList<>()).add(file);
+            } catch (NumberFormatException e) {
+                // not a shard file
+            }
+        }
+        return shards;
+    }
+}
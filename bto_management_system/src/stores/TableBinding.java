@@ -0,0 +1,449 @@
+package stores;
+
+import data.AbstractBinaryDataManager;
+import data.AbstractCsvDataManager;
+import data.AbstractJdbcDataManager;
+import data.LogStructuredDataManager;
+import data.PersistenceExecutor;
+import utils.FilePathConstants;
+import utils.PersistenceConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ties one DataStore table (its live map) to the storage that persists it, and tracks which of its
+ * entities changed since they were last persisted.
+ * <p>
+ * Saves never read the live objects: {@link #capture(List)} formats the rows that changed as CSV rows
+ * (while DataStore holds writers back), and the storage is then written from those rows while writers
+ * carry on, merging them into the rows it already holds. Only the changes since the last committed save
+ * are kept, not a copy of the table.
+ * <p>
+ * The table is kept in one {@link TableStorage}, chosen by its format and layout settings
+ * ({@link PersistenceConfig#isBinaryFormat(String)}, {@link PersistenceConfig#isLogFormat(String)},
+ * {@link PersistenceConfig#isDatabaseFormat(String)}, {@link PersistenceConfig#isShardedByProject(String)});
+ * journal records always use the CSV row format. The table's storages in the other formats and layouts are
+ * read only while the configured one does not hold the table yet, and are deleted once it does.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+class TableBinding<K, V> {
+
+    private final String name;
+    private final Class<V> modelType;
+    private final AbstractCsvDataManager<K, V> manager; // CSV row codec for journal records and captured changes
+    private final TableStorage<K, V> storage; // the configured format and layout
+    private final List<TableStorage<K, V>> otherStorages = new ArrayList<>(); // the table's other formats and layouts
+    private final FileStorage<K, V> watchedFile; // the CSV file whose external edits are reloaded, or null
+    private final Supplier<Map<K, V>> mapGetter;
+    private final Consumer<Map<K, V>> mapSetter;
+    private final Function<String, K> keyParser;
+
+    // Whether the live map holds the table; with lazy loading a table is loaded on first access
+    private volatile boolean loaded = false;
+    private final Object loadLock = new Object();
+    // Keys added, changed or removed since the last capture
+    private final Set<K> dirtyKeys = ConcurrentHashMap.newKeySet();
+    // CSV row of every entity captured since the last committed save (null if removed); only touched by
+    // load/restore and under the DataStore lock
+    private final Map<K, String> changes = new HashMap<>();
+    // Whether the changes are every row of the table, so the storage is written without reading what it holds
+    private boolean completeRewrite = false;
+    // Whether the storage is behind the captured changes (changes only in the journal so far)
+    private volatile boolean fileStale = false;
+    // Whether the last load read a CSV file in an older schema version, so the table should be rewritten soon
+    private volatile boolean schemaOutdated = false;
+    // Whether the table's other storages still have files; removed once the configured storage is current
+    private volatile boolean otherStoragesPending = false;
+
+    // Secondary indexes over the live map (see addIndex)
+    private final List<SecondaryIndex<K, V, ?>> indexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param csvFilePath The table's CSV file; its files in the other formats live next to it (see {@link FilePathConstants}).
+     * @param manager CSV DataManager, also used to encode journal records.
+     * @param snapshotManager Binary snapshot DataManager.
+     * @param databaseManager Embedded SQL database DataManager.
+     */
+    TableBinding(String name, String csvFilePath, Class<V> modelType, AbstractCsvDataManager<K, V> manager, AbstractBinaryDataManager<K, V> snapshotManager,
+                 AbstractJdbcDataManager<K, V> databaseManager, Supplier<Map<K, V>> mapGetter, Consumer<Map<K, V>> mapSetter, Function<String, K> keyParser) {
+        this(name, csvFilePath, modelType, manager, snapshotManager, databaseManager, mapGetter, mapSetter, keyParser, null);
+    }
+
+    /**
+     * Binding for a table whose rows belong to a project and can be stored as per-project shards
+     * (see {@link FilePathConstants#shardPathFor(String, int, boolean)}).
+     * @param projectOf Returns the project ID of a row.
+     */
+    TableBinding(String name, String csvFilePath, Class<V> modelType, AbstractCsvDataManager<K, V> manager, AbstractBinaryDataManager<K, V> snapshotManager,
+                 AbstractJdbcDataManager<K, V> databaseManager, Supplier<Map<K, V>> mapGetter, Consumer<Map<K, V>> mapSetter, Function<String, K> keyParser,
+                 ToIntFunction<V> projectOf) {
+        boolean binary = PersistenceConfig.isBinaryFormat(name);
+        boolean compressed = PersistenceConfig.isCompressed(name);
+        boolean sharded = projectOf != null && PersistenceConfig.isShardedByProject(name);
+        manager.setCompressed(compressed);
+        snapshotManager.setCompressed(compressed);
+        this.name = name;
+        this.modelType = modelType;
+        this.manager = manager;
+
+        FileStorage<K, V> csv = new FileStorage<>(csvFilePath, manager, null, compressed, PersistenceConfig.WATCH_ENABLED);
+        FileStorage<K, V> snapshot = new FileStorage<>(FilePathConstants.snapshotPathFor(csvFilePath), manager, snapshotManager, compressed, false);
+        LogStorage<K, V> log = new LogStorage<>(FilePathConstants.logPathFor(csvFilePath), new LogStructuredDataManager<>(manager));
+        ShardedStorage<K, V> shards = (projectOf == null) ? null : new ShardedStorage<>(csvFilePath, manager, snapshotManager, projectOf, binary, compressed);
+        // Shards stay CSV or binary files
+        this.storage = sharded ? shards
+                : PersistenceConfig.isDatabaseFormat(name) ? new DatabaseStorage<>(databaseManager)
+                : PersistenceConfig.isLogFormat(name) ? log
+                : binary ? snapshot : csv;
+        for (TableStorage<K, V> other : Arrays.asList(csv, snapshot, log, shards)) {
+            if (other != null && other != storage) otherStorages.add(other);
+        }
+        this.watchedFile = (storage == csv && PersistenceConfig.WATCH_ENABLED) ? csv : null;
+        this.mapGetter = mapGetter;
+        this.mapSetter = map -> {
+            mapSetter.accept(map);
+            indexes.forEach(index -> index.rebuild(map()));
+        };
+        this.keyParser = keyParser;
+    }
+
+    String getName() { return name; }
+    String getFilePath() { return storage.getPath(); }
+    String getPhysicalPath() { return storage.getPhysicalPath(); }
+    Map<K, V> map() { return mapGetter.get(); }
+
+    /** Points the table's storages at the files named by the generation manifest. */
+    void resolvePaths(Function<String, String> resolver) {
+        storage.resolvePath(resolver);
+        otherStorages.forEach(other -> other.resolvePath(resolver));
+    }
+
+    /** Whether saves update the table's files in place (shards, logs) rather than writing a whole new file. */
+    boolean writesInPlace() { return storage.writesInPlace(); }
+    /** Whether the table is stored in the embedded SQL database. */
+    boolean usesDatabase() { return storage.usesDatabase(); }
+
+    /** Whether the given model object belongs to this table. */
+    boolean handles(Object model) {
+        return modelType.isInstance(model);
+    }
+
+    /** Whether objects of the given model class are stored in this table. */
+    boolean handlesType(Class<?> type) {
+        return modelType.isAssignableFrom(type);
+    }
+
+    boolean isLoaded() { return loaded; }
+    void markLoaded() { loaded = true; }
+    /** Held while the table is being loaded on first access. */
+    Object loadLock() { return loadLock; }
+
+    /** Records that the entity stored under this key was added, changed or removed, and re-indexes it. */
+    void markDirty(K key) {
+        if (key == null) return;
+        dirtyKeys.add(key);
+        reindex(key);
+    }
+
+    /** Removes the rows with the given keys, marking each removed one dirty. */
+    void removeKeys(Collection<K> keys) {
+        for (K key : keys) {
+            if (map().remove(key) != null) markDirty(key);
+        }
+    }
+
+    /** Declares a secondary index of the table; from then on it follows every change to the live map. */
+    <I> SecondaryIndex<K, V, I> addIndex(Function<V, I> extractor) {
+        SecondaryIndex<K, V, I> index = new SecondaryIndex<>(extractor);
+        index.rebuild(map());
+        indexes.add(index);
+        return index;
+    }
+
+    /** The rows indexed under the value, in key order; the table must be loaded. */
+    <I> List<V> lookup(SecondaryIndex<K, V, I> index, I value) {
+        List<V> rows = new ArrayList<>();
+        for (K key : index.keysFor(value)) {
+            V row = map().get(key);
+            if (row != null) rows.add(row);
+        }
+        return rows;
+    }
+
+    private void reindex(K key) {
+        for (SecondaryIndex<K, V, ?> index : indexes) index.update(key, map());
+    }
+
+    /** Records that the given model object (of this table's type) changed. */
+    void markDirtyEntity(Object model) {
+        markDirty(manager.keyOf(modelType.cast(model)));
+    }
+
+    boolean hasPendingChanges() { return !dirtyKeys.isEmpty(); }
+    /** Whether the storage is behind the captured changes; changes not yet captured are not counted. */
+    boolean isFileStale() { return fileStale; }
+    boolean hasOutdatedSchema() { return schemaOutdated; }
+    void markFileStale() { fileStale = true; }
+
+    /** Rows and on-disk bytes that a rewrite of this table would touch; reported when the rewrite is skipped. */
+    int rowCount() { return map().size(); }
+    long fileBytes() { return storage.sizeOnDisk(); }
+
+    /** Whether the table's CSV file was changed by another program since the table last read or wrote it. */
+    boolean changedOnDisk() {
+        return watchedFile != null && watchedFile.changedOnDisk();
+    }
+
+    /** Reads an external edit of the table's CSV file; see {@link FileStorage#readExternalEdit()}. */
+    ExternalEdit<K, V> readExternalEdit() throws IOException {
+        return watchedFile.readExternalEdit();
+    }
+
+    /** Applies an external edit to the live map; the changed keys are marked dirty, so they are journaled and saved as usual. */
+    void applyExternalEdit(ExternalEdit<K, V> edit) {
+        edit.upserts.forEach((key, object) -> {
+            map().put(key, object);
+            markDirty(key);
+        });
+        for (K key : edit.deletes) {
+            if (map().remove(key) != null) markDirty(key);
+        }
+        for (K key : edit.unread) {
+            if (map().containsKey(key)) markDirty(key);
+        }
+        watchedFile.recordExternalEdit(edit);
+    }
+
+    /** Rows inserted or updated and keys deleted by an external edit of the table's file. */
+    static final class ExternalEdit<K, V> {
+        final Map<K, V> upserts = new LinkedHashMap<>();
+        final Set<K> deletes = new HashSet<>();
+        final Set<K> unread = new HashSet<>(); // rows missing from a partial read, so not deleted
+        final Map<K, Long> rows = new HashMap<>(); // hash of every row the file now holds
+        final long modified;
+        final long length;
+        final boolean partial; // rows were rejected, so nothing was deleted
+
+        ExternalEdit(long modified, long length, boolean partial) {
+            this.modified = modified;
+            this.length = length;
+            this.partial = partial;
+        }
+
+        boolean isEmpty() { return upserts.isEmpty() && deletes.isEmpty(); }
+    }
+
+    /**
+     * Loads the table from its configured storage into the live map.
+     * Only if that storage does not hold the table yet is one of the table's other storages loaded instead
+     * (a format or layout switch); the table is then marked stale, so the next save writes it to the configured one.
+     */
+    void load() throws IOException {
+        TableStorage<K, V> source = loadSource();
+        mapSetter.accept(source.load());
+        resetChanges();
+        if (source == storage) {
+            schemaOutdated = storage.hasOutdatedSchema();
+            fileStale = storage.needsRewrite();
+        } else {
+            System.out.println("Table " + name + ": loading " + source.describe() + "; the next save moves it to "
+                    + storage.describe() + " and removes the old files.");
+            storage.attach(map(), false);
+            schemaOutdated = false;
+            captureAll();
+        }
+        otherStoragesPending = source != storage || otherStorages.stream().anyMatch(this::existsQuietly);
+    }
+
+    /**
+     * The storage to load: the configured one, or the only other one holding the table while the configured one
+     * does not. A table moving into per-project shards keeps loading from its single file until the move is done.
+     * Never chosen by modification time; several candidates mean files left behind by earlier switches.
+     */
+    private TableStorage<K, V> loadSource() throws IOException {
+        boolean movingToShards = storage instanceof ShardedStorage;
+        if (!movingToShards && storage.exists()) return storage;
+        List<TableStorage<K, V>> present = new ArrayList<>();
+        for (TableStorage<K, V> other : otherStorages) {
+            if (other.exists()) present.add(other);
+        }
+        if (present.isEmpty()) return storage;
+        if (present.size() > 1) {
+            throw new IOException("Table " + name + " is not in " + storage.describe() + " yet, but in several other formats ("
+                    + present.get(0).describe() + ", " + present.get(1).describe() + "); convert the current one with DataMigrationTool or remove the others.");
+        }
+        return present.get(0);
+    }
+
+    private boolean existsQuietly(TableStorage<K, V> other) {
+        try {
+            return other.exists();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called by DataStore once a save has been committed (manifest flipped, database transaction committed).
+     * If the table's storage is now current, the captured changes it holds are dropped, and the table's files
+     * in the other formats and layouts are deleted, so a leftover file (e.g. an old CSV next to the binary
+     * snapshot) can never be loaded in its place.
+     */
+    void saveCommitted() throws IOException {
+        if (fileStale) return;
+        changes.clear();
+        completeRewrite = false;
+        if (!otherStoragesPending) return;
+        for (TableStorage<K, V> other : otherStorages) {
+            if (!other.exists()) continue;
+            other.delete();
+            System.out.println("Table " + name + ": removed " + other.describe() + " (superseded by " + storage.describe() + ").");
+        }
+        otherStoragesPending = false;
+    }
+
+    /**
+     * Installs a map restored from a warm-start image instead of loading the table file.
+     * The table is marked stale if its configured storage does not hold it yet.
+     */
+    void restore(Map<K, V> map) throws IOException {
+        mapSetter.accept(map);
+        resetChanges();
+        if (storage.attach(map, true)) captureAll();
+        otherStoragesPending = otherStorages.stream().anyMatch(this::existsQuietly);
+    }
+
+    private void resetChanges() {
+        dirtyKeys.clear();
+        changes.clear();
+        completeRewrite = false;
+    }
+
+    /** Captures every row of a freshly installed map, for a storage that must be written from scratch. */
+    private void captureAll() {
+        map().forEach((key, object) -> changes.put(key, manager.formatRecord(object)));
+        completeRewrite = true;
+        fileStale = true;
+    }
+
+    /** Latest modification time of the table's files in any format (0 if there are none). */
+    long lastModified() {
+        long latest = storage.lastModified();
+        for (TableStorage<K, V> other : otherStorages) latest = Math.max(latest, other.lastModified());
+        return latest;
+    }
+
+    /**
+     * Writes the captured changes to the given file, which becomes the table's current file.
+     * Changes made after the last {@link #capture(List)} are not included; they stay pending.
+     * The captured changes are kept until the save is committed (see {@link #saveCommitted()}).
+     * Storages that are updated in place ignore the target path.
+     */
+    void save(String targetPath) throws IOException {
+        try {
+            storage.write(targetPath, changes, completeRewrite);
+        } catch (IOException e) {
+            fileStale = true;
+            throw e;
+        }
+        fileStale = false;
+    }
+
+    /**
+     * Runs {@link #save(String)} on an I/O thread (see {@link PersistenceExecutor}), blocking first while the
+     * maximum number of writes is in flight; saves of different tables may run at the same time. Database
+     * tables are saved on the calling thread, inside its transaction.
+     */
+    CompletableFuture<Void> saveAsync(String targetPath) {
+        if (usesDatabase()) {
+            try {
+                save(targetPath);
+                return CompletableFuture.completedFuture(null);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return PersistenceExecutor.write(() -> {
+            save(targetPath);
+            return null;
+        });
+    }
+
+    /** Applies one replayed journal record to the live map. */
+    void apply(DataJournal.Record record) {
+        fileStale = true;
+        if (record.getOp() == DataJournal.OP_DELETE) {
+            K key = keyParser.apply(record.getKey());
+            map().remove(key);
+            reindex(key);
+            changes.put(key, null);
+            storage.track(key, null);
+            return;
+        }
+        V object = manager.parseRecord(record.getRow());
+        if (object != null) {
+            K key = manager.keyOf(object);
+            map().put(key, object);
+            reindex(key);
+            changes.put(key, manager.formatRecord(object));
+            storage.track(key, object);
+        } else {
+            System.err.println("Skipping unparseable journal record " + record.getSequence() + " for table " + name + ".");
+        }
+    }
+
+    /**
+     * Formats the CSV row of every entity added, changed or removed since the last capture. DataStore
+     * calls this with writers held back, so the changes captured in all tables together form
+     * one consistent point in time; the cost is proportional to the number of changes, not the table size.
+     * @param captured Receives one entry per captured change, for journaling.
+     * @return Number of changes captured.
+     */
+    int capture(List<CapturedChange> captured) {
+        int count = 0;
+        Iterator<K> keys = dirtyKeys.iterator();
+        while (keys.hasNext()) {
+            K key = keys.next();
+            keys.remove(); // removed before formatting so a later change re-marks the key
+            V object = map().get(key);
+            String row = (object != null) ? manager.formatRecord(object) : null;
+            changes.put(key, row);
+            storage.track(key, object);
+            captured.add(new CapturedChange(name, String.valueOf(key), row));
+            count++;
+        }
+        if (count > 0) fileStale = true;
+        return count;
+    }
+
+    /** One captured change: the new CSV row of an entity, or a null row if it was removed. */
+    static final class CapturedChange {
+        final String table;
+        final String key;
+        final String row;
+
+        CapturedChange(String table, String key, String row) {
+            this.table = table;
+            this.key = key;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package stores;
+
+import data.AbstractCsvDataManager;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * How one DataStore table is kept on disk in one format and layout: a CSV file or binary snapshot
+ * ({@link FileStorage}), per-project shards ({@link ShardedStorage}), a log-structured directory
+ * ({@link LogStorage}) or the embedded SQL database ({@link DatabaseStorage}).
+ * <p>
+ * {@link TableBinding} tracks the table's changes and hands its configured storage the changed rows to write;
+ * the table's storages in the other formats are only read during a format switch and deleted once it is done.
+ * @param <K> Key type of the table
+ * @param <V> Model type of the table
+ */
+interface TableStorage<K, V> {
+
+    /** The storage's logical location: a file, a directory or the database URL. */
+    String getPath();
+
+    /** Where the table currently is; differs from {@link #getPath()} for a file named by the generation manifest. */
+    default String getPhysicalPath() { return getPath(); }
+
+    /** Points the storage at the file named by the generation manifest; only whole-file storages have one. */
+    default void resolvePath(Function<String, String> resolver) {}
+
+    /** How the storage is named in messages. */
+    default String describe() { return getPhysicalPath(); }
+
+    /** Whether saves update the storage in place (shards, logs, the database) rather than writing a whole new file. */
+    default boolean writesInPlace() { return true; }
+
+    default boolean usesDatabase() { return false; }
+
+    /** Whether the storage holds the table, i.e. the table was saved to it. */
+    boolean exists() throws IOException;
+
+    /** Reads the table. */
+    Map<K, V> load() throws IOException;
+
+    /** Whether what the last {@link #load()} read should be rewritten even without changes (e.g. another compression setting). */
+    boolean needsRewrite();
+
+    /** Whether the last {@link #load()} read rows in an older schema version. */
+    default boolean hasOutdatedSchema() { return false; }
+
+    /**
+     * Starts tracking a table that was not loaded from this storage.
+     * @param rows The table's rows.
+     * @param filesCurrent Whether this storage's files already hold these rows (a warm-start image) rather than
+     *                     needing every row written (a format or layout switch).
+     * @return Whether the storage must be written before it holds the table as it is; it is then written with every row.
+     */
+    boolean attach(Map<K, V> rows, boolean filesCurrent) throws IOException;
+
+    /** Follows one change to the table (a null object for a removal); only needed where a change decides which file to write. */
+    default void track(K key, V object) {}
+
+    /**
+     * Writes the table's changes; a storage that is rewritten as a whole merges them into the rows it holds.
+     * @param targetPath Where to write it; a new generation file for whole-file storages, {@link #getPath()} otherwise.
+     * @param changes Rows changed since the storage was last written, formatted as CSV rows; a null row for a removed key.
+     * @param complete Whether the changes are every row of the table, so what the storage held before is not read
+     *                 (e.g. after a format switch).
+     */
+    void write(String targetPath, Map<K, String> changes, boolean complete) throws IOException;
+
+    /** Removes the storage's files, once the table has moved to another format or layout. */
+    void delete() throws IOException;
+
+    /** Latest modification time of the storage's files, or 0 if there are none. */
+    long lastModified();
+
+    /** Bytes the storage takes on disk. */
+    long sizeOnDisk();
+
+    /** Applies changed CSV rows to rows read from a file, e.g. before it is written in another format. */
+    static <K, V> Map<K, V> applyChanges(Map<K, V> rows, Map<K, String> changes, AbstractCsvDataManager<K, V> codec) {
+        changes.forEach((key, row) -> {
+            V object = (row == null) ? null : codec.parseRecord(row);
+            if (object != null) rows.put(key, object);
+            else rows.remove(key);
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,83 @@
+package stores;
+
+import data.AtomicFiles;
+import models.*;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Serialized image of the fully initialised DataStore (all tables, with derived state such as
+ * officer handling assignments, plus the ID counters), written at clean shutdown so the next
+ * start can skip parsing the data files and rebuilding derived state.
+ * <p>
+ * The image is only read with a filter that accepts the model classes and the JDK collections holding
+ * them, so a planted file cannot instantiate anything else.
+ */
+class WarmStartImage implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    // Classes an image may contain; anything else (and unusually deep graphs) is rejected before it is instantiated
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter("maxdepth=32;"
+            + "stores.WarmStartImage;models.*;enums.*;java.util.*;java.lang.Object;java.lang.Enum;java.lang.Number;java.lang.Integer;"
+            + "java.util.concurrent.ConcurrentHashMap;java.util.concurrent.ConcurrentHashMap$Segment;java.util.concurrent.locks.ReentrantLock*;"
+            + "java.util.concurrent.locks.AbstractQueuedSynchronizer;java.util.concurrent.locks.AbstractOwnableSynchronizer;!*");
+
+    // Journal sequence of the checkpoint the data files were at when the image was written
+    long checkpointSequence;
+
+    Map<String, User> users;
+    Map<Integer, Project> projects;
+    Map<Integer, BTOApplication> applications;
+    Map<Integer, Enquiry> enquiries;
+    Map<Integer, HDBOfficerRegistration> officerRegistrations;
+    Map<Integer, FlatBooking> flatBookings;
+
+    int projectIdCounter;
+    int applicationIdCounter;
+    int enquiryIdCounter;
+    int registrationIdCounter;
+    int bookingIdCounter;
+
+    /** Captures the ID counters; the maps are filled in by the caller. */
+    void captureIdCounters() {
+        projectIdCounter = Project.getIdCounter();
+        applicationIdCounter = BTOApplication.getIdCounter();
+        enquiryIdCounter = Enquiry.getIdCounter();
+        registrationIdCounter = HDBOfficerRegistration.getIdCounter();
+        bookingIdCounter = FlatBooking.getIdCounter();
+    }
+
+    void restoreIdCounters() {
+        Project.restoreIdCounter(projectIdCounter);
+        BTOApplication.restoreIdCounter(applicationIdCounter);
+        Enquiry.restoreIdCounter(enquiryIdCounter);
+        HDBOfficerRegistration.restoreIdCounter(registrationIdCounter);
+        FlatBooking.restoreIdCounter(bookingIdCounter);
+    }
+
+    void write(String filePath) throws IOException {
+        AtomicFiles.writeStream(Paths.get(filePath), stream -> {
+            ObjectOutputStream out = new ObjectOutputStream(stream);
+            out.writeObject(this);
+            out.flush();
+        });
+    }
+
+    static WarmStartImage read(String filePath) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(new File(filePath))))) {
+            in.setObjectInputFilter(FILTER);
+            return (WarmStartImage) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unrecognised warm-start image: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package stores;
+
+import utils.TextFormatUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background flusher for write-behind persistence.
+ * Save requests made within one commit window (or until a maximum number of requests
+ * has accumulated) are coalesced into a single flush, and every request's future
+ * completes once that flush has made the data durable.
+ */
+public class WriteBehindFlusher {
+
+    private final Runnable flushAction;
+    private final long windowMillis;
+    private final int maxPendingRequests;
+    private final Thread worker;
+
+    private final Object lock = new Object();
+    private List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private long firstRequestTime = 0;
+    private boolean stopping = false;
+
+    /**
+     * @param flushAction Performs one synchronous flush; throws to fail the whole group.
+     * @param windowMillis How long to wait after the first request before flushing.
+     * @param maxPendingRequests Flush early once this many requests are waiting.
+     */
+    public WriteBehindFlusher(Runnable flushAction, long windowMillis, int maxPendingRequests) {
+        this.flushAction = flushAction;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxPendingRequests = Math.max(1, maxPendingRequests);
+        this.worker = new Thread(this::run, "datastore-flusher");
+        this.worker.setDaemon(true); // drainAndStop() is responsible for the final flush
+        this.worker.start();
+    }
+
+    /**
+     * Queues a save request.
+     * @return A future completed when a flush covering this request has finished.
+     */
+    public CompletableFuture<Void> requestFlush() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (lock) {
+            if (stopping) {
+                future.completeExceptionally(new IllegalStateException("Flusher has been stopped."));
+                return future;
+            }
+            if (pending.isEmpty()) {
+                firstRequestTime = System.nanoTime();
+            }
+            pending.add(future);
+            lock.notifyAll();
+        }
+        return future;
+    }
+
+    /** Flushes everything still queued, then stops the background thread. */
+    public void drainAndStop() {
+        synchronized (lock) {
+            stopping = true;
+            lock.notifyAll();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<CompletableFuture<Void>> group;
+            synchronized (lock) {
+                try {
+                    while (!stopping && !groupReady()) {
+                        if (pending.isEmpty()) {
+                            lock.wait();
+                        } else {
+                            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) - (System.nanoTime() - firstRequestTime);
+                            if (remainingNanos > 0) {
+                                TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    stopping = true;
+                }
+                if (pending.isEmpty() && stopping) {
+                    return;
+                }
+                group = pending;
+                pending = new ArrayList<>();
+            }
+
+            try {
+                flushAction.run();
+                group.forEach(future -> future.complete(null));
+            } catch (RuntimeException e) {
+                System.err.println(TextFormatUtil.error("Background save failed: " + e.getMessage()));
+                group.forEach(future -> future.completeExceptionally(e));
+            }
+        }
+    }
+
+    /** Whether the pending group should be flushed now. Caller holds the lock. */
+    private boolean groupReady() {
+        if (pending.isEmpty()) return false;
+        return pending.size() >= maxPendingRequests
+                || System.nanoTime() - firstRequestTime >= TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+}
@@ -6,8 +6,8 @@ import java.util.Date;
 
 public class DateUtils {
 
-    // Define a consistent date format for storage and display
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    // Define a consistent date format for storage and display (one per thread: SimpleDateFormat is not thread-safe and tables load concurrently)
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd"));
 
     private DateUtils() {}
 
@@ -19,7 +19,7 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        return DATE_FORMAT.format(date);
+        return DATE_FORMAT.get().format(date);
     }
 
     /**
@@ -31,7 +31,7 @@ public class DateUtils {
             return null;
         }
         try {
-            return DATE_FORMAT.parse(dateString.trim());
+            return DATE_FORMAT.get().parse(dateString.trim());
         } catch (ParseException e) {
             System.err.println("Error parsing date string: " + dateString + ". Expected format: yyyy-MM-dd");
             return null; // Or re-throw a custom exception
@@ -1,7 +1,7 @@
 package utils;
 
 public class FilePathConstants {
-    private static final String DATA_DIR = "data/"; // for data files
+    public static final String DATA_DIR = "data/"; // for data files
 
     public static final String USERS_FILE = DATA_DIR + "users.csv";
     public static final String PROJECTS_FILE = DATA_DIR + "projects.csv";
@@ -9,6 +9,17 @@ public class FilePathConstants {
     public static final String ENQUIRIES_FILE = DATA_DIR + "enquiries.csv";
     public static final String OFFICER_REGISTRATIONS_FILE = DATA_DIR + "officer_registrations.csv";
     public static final String FLAT_BOOKINGS_FILE = DATA_DIR + "flat_bookings.csv";
+    public static final String JOURNAL_FILE = DATA_DIR + "journal.log"; // write-ahead journal of changes since the last checkpoint
+    public static final String CHECKPOINT_FILE = DATA_DIR + "checkpoint.properties"; // journal sequence covered by the data files
+    public static final String WARM_START_FILE = DATA_DIR + "warmstart.ser"; // DataStore image from the last clean shutdown
+    public static final String MANIFEST_FILE = DATA_DIR + "manifest.properties"; // current data file generation (optional)
+    public static final String LOCK_FILE = DATA_DIR + "data.lock"; // held by the process writing to the data directory
+    public static final String SNAPSHOT_EXTENSION = ".bin"; // binary snapshot files sit next to the CSVs, e.g. data/users.bin
+    public static final String LOG_EXTENSION = ".kv"; // log-structured segment directories, e.g. data/users.kv/
+    public static final String DATABASE_FILE = DATA_DIR + "bto"; // embedded SQL database (format "jdbc"); the driver adds its own extension, e.g. data/bto.mv.db
+    public static final String DICTIONARY_DIR = DATA_DIR + "dictionaries/"; // preset dictionaries of compressed data files
+    public static final String SHARD_PREFIX = "project-"; // per-project shard files, e.g. data/applications/project-3.csv
+    public static final String ARCHIVE_DIR = DATA_DIR + "archive/"; // cold tier: rows of archived projects, e.g. data/archive/applications/project-3.csv
 
     // Prevent instantiation
     private FilePathConstants() {}
@@ -20,4 +31,39 @@ public class FilePathConstants {
     public static String getEnquiriesFilePath() { return ENQUIRIES_FILE; }
     public static String getOfficerRegistrationsFilePath() { return OFFICER_REGISTRATIONS_FILE; }
     public static String getFlatBookingsFilePath() { return FLAT_BOOKINGS_FILE; }
-}
\ No newline at end of file
+    public static String getJournalFilePath() { return JOURNAL_FILE; }
+    public static String getManifestFilePath() { return MANIFEST_FILE; }
+    public static String getCheckpointFilePath() { return CHECKPOINT_FILE; }
+    public static String getWarmStartFilePath() { return WARM_START_FILE; }
+
+    /** Binary snapshot path for a table's CSV path, e.g. data/users.csv -> data/users.bin */
+    public static String snapshotPathFor(String csvPath) {
+        return csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) + SNAPSHOT_EXTENSION : csvPath + SNAPSHOT_EXTENSION;
+    }
+
+    /** Log directory for a table's CSV path, e.g. data/users.csv -> data/users.kv */
+    public static String logPathFor(String csvPath) {
+        return csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) + LOG_EXTENSION : csvPath + LOG_EXTENSION;
+    }
+
+    /** Directory holding the per-project shards of a table, e.g. data/applications.csv -> data/applications */
+    public static String shardDirectoryFor(String csvPath) {
+        return csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath + ".shards";
+    }
+
+    /** Shard file of one project, e.g. (data/applications.csv, 3) -> data/applications/project-3.csv */
+    public static String shardPathFor(String csvPath, int projectId, boolean binary) {
+        return shardDirectoryFor(csvPath) + "/" + SHARD_PREFIX + projectId + (binary ? SNAPSHOT_EXTENSION : ".csv");
+    }
+
+    /** Archive directory of a table, e.g. data/applications.csv -> data/archive/applications */
+    public static String archiveDirectoryFor(String csvPath) {
+        String name = new java.io.File(shardDirectoryFor(csvPath)).getName();
+        return ARCHIVE_DIR + name;
+    }
+
+    /** Archive file of one project, e.g. (data/applications.csv, 3) -> data/archive/applications/project-3.csv */
+    public static String archivePathFor(String csvPath, int projectId) {
+        return archiveDirectoryFor(csvPath) + "/" + SHARD_PREFIX + projectId + ".csv";
+    }
+}
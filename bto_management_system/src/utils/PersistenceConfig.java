@@ -0,0 +1,113 @@
+package utils;
+
+/**
+ * Tunable persistence settings.
+ * Defaults can be overridden at launch with system properties, e.g. -Dbto.journal.enabled=true
+ */
+public class PersistenceConfig {
+
+    // Write-ahead journal (opt-in): saves append the changes to the journal and the data files are only rewritten by a
+    // checkpoint, so other programs reading the CSV files see the latest data only after one (e.g. DataMigrationTool checkpoint).
+    // A journal left by a run with it on is still replayed and folded into the data files by the next start
+    public static final boolean JOURNAL_ENABLED = Boolean.parseBoolean(System.getProperty("bto.journal.enabled", "false"));
+    public static final long JOURNAL_CHECKPOINT_BYTES = Long.getLong("bto.journal.checkpointBytes", 1024L * 1024L); // Checkpoint once the journal passes this size
+    public static final long JOURNAL_CHECKPOINT_INTERVAL_MS = Long.getLong("bto.journal.checkpointIntervalMs", 10L * 60L * 1000L); // ... or once the last checkpoint is this old (0 = size only)
+
+    // Startup: number of threads used to load the tables concurrently (1 = one after another)
+    public static final int LOAD_THREADS = Integer.getInteger("bto.load.threads", Runtime.getRuntime().availableProcessors());
+
+    // Startup (opt-in): load each table on first access instead of all of them before the login prompt
+    // (a warm start still restores every table at once)
+    public static final boolean LAZY_LOAD = Boolean.parseBoolean(System.getProperty("bto.lazyLoad", "false"));
+    public static final boolean LAZY_LOAD_PREFETCH = Boolean.parseBoolean(System.getProperty("bto.lazyLoad.prefetch", "true")); // After login, load the remaining tables in the background
+
+    // Startup: read CSV files through a memory-mapped, allocation-light parser instead of a line reader, and map binary
+    // snapshots instead of reading them onto the heap. Off by default:
+    // on Windows a mapping keeps its file open until it is garbage collected, so replacing the file on save fails
+    public static final boolean MAPPED_READ = Boolean.parseBoolean(System.getProperty("bto.csv.mappedRead", "false"));
+    public static final long PARALLEL_PARSE_MIN_BYTES = Long.getLong("bto.csv.parallelParseMinBytes", 8L * 1024L * 1024L); // Mapped files this large are parsed in parallel chunks (0 = never)
+
+    // CSV files: save a checksum column per row and a footer (row count, file hash), verified on load; files without them stay readable
+    public static final boolean CSV_CHECKSUMS = Boolean.parseBoolean(System.getProperty("bto.csv.checksums", "false"));
+
+    // Storage format of each table: "csv", "binary" (snapshot), "log" (log-structured segments) or "jdbc" (embedded SQL database). bto.format sets the default,
+    // bto.format.<table> overrides it per table, e.g. -Dbto.format.applications=binary
+    public static final String DEFAULT_FORMAT = System.getProperty("bto.format", "csv");
+
+    // Log-structured format: the active segment is sealed at this size, which bounds the tail scanned on recovery
+    public static final long LOG_SEGMENT_BYTES = Long.getLong("bto.log.segmentBytes", 4L * 1024L * 1024L);
+    public static final double LOG_COMPACT_GARBAGE_RATIO = Double.parseDouble(System.getProperty("bto.log.compactGarbageRatio", "0.5")); // Compact once this share of the log is dead records
+    public static final long LOG_COMPACT_MIN_BYTES = Long.getLong("bto.log.compactMinBytes", 1024L * 1024L); // ... and the log is at least this large
+
+    // Embedded SQL database (format "jdbc"); the JDBC driver for the URL must be on the class path, checked at startup.
+    // The default URL needs the H2 jar (com.h2database:h2), which is not shipped with the project
+    public static final String JDBC_URL = System.getProperty("bto.jdbc.url", "jdbc:h2:file:./" + FilePathConstants.DATABASE_FILE);
+    public static final String JDBC_USER = System.getProperty("bto.jdbc.user", "");
+    public static final String JDBC_PASSWORD = System.getProperty("bto.jdbc.password", "");
+    public static final int JDBC_BATCH_SIZE = Integer.getInteger("bto.jdbc.batchSize", 500); // Statements sent per JDBC batch
+
+    // Saves: table files are encoded and written concurrently on this many I/O threads, with at most this many
+    // writes in flight; starting another waits for one to finish, so a slow disk applies backpressure
+    public static final int ASYNC_IO_THREADS = Integer.getInteger("bto.async.ioThreads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+    public static final int ASYNC_MAX_IN_FLIGHT_WRITES = Integer.getInteger("bto.async.maxInFlightWrites", 4);
+
+    // Compressed data files (Deflater with a preset dictionary per table). bto.compress sets the default,
+    // bto.compress.<table> overrides it per table; files in either variant are always readable
+    public static final boolean DEFAULT_COMPRESS = Boolean.parseBoolean(System.getProperty("bto.compress", "false"));
+
+    // Tables with a project ID (applications, enquiries, flat_bookings) can be stored as one file per project.
+    // bto.shardByProject sets the default, bto.shardByProject.<table> overrides it per table
+    public static final boolean DEFAULT_SHARD_BY_PROJECT = Boolean.parseBoolean(System.getProperty("bto.shardByProject", "false"));
+
+    // Warm start (opt-in): serialize the initialised DataStore at clean shutdown and restore it on the next start
+    public static final boolean WARM_START_ENABLED = Boolean.parseBoolean(System.getProperty("bto.warmStart.enabled", "false"));
+
+    // Write-behind: coalesce saves made within a short window into one background flush
+    public static final boolean WRITE_BEHIND_ENABLED = Boolean.parseBoolean(System.getProperty("bto.writeBehind.enabled", "false"));
+    public static final long WRITE_BEHIND_WINDOW_MS = Long.getLong("bto.writeBehind.windowMs", 50L);
+    public static final int WRITE_BEHIND_MAX_PENDING = Integer.getInteger("bto.writeBehind.maxPending", 32); // Flush early after this many save requests
+
+    // Read-only mode: open the data directory next to a running writer process (e.g. for reporting), never write
+    // to it, and reload the tables whenever the writer has saved since the last load
+    public static final boolean READ_ONLY = Boolean.parseBoolean(System.getProperty("bto.readOnly", "false"));
+    public static final long READ_ONLY_REFRESH_MS = Long.getLong("bto.readOnly.refreshMs", 5000L); // How often to check for new data (0 = never)
+
+    // Hot reload: watch the data directory and merge edits made to table files by other programs into the live
+    // tables (tables stored as one CSV file only)
+    public static final boolean WATCH_ENABLED = Boolean.parseBoolean(System.getProperty("bto.watch.enabled", "false"));
+    public static final long WATCH_DEBOUNCE_MS = Long.getLong("bto.watch.debounceMs", 500L); // A changed file is read once it has been quiet this long
+
+    // Applications table: keep the rows in fixed-width slots off the heap instead of as heap objects
+    public static final boolean OFF_HEAP_APPLICATIONS = Boolean.parseBoolean(System.getProperty("bto.applications.offHeap", "false"));
+
+    // Generation manifest: save tables to new generation files and switch them over together
+    public static final boolean MANIFEST_ENABLED = Boolean.parseBoolean(System.getProperty("bto.manifest.enabled", "false"));
+
+    /** Whether the named table (e.g. "applications") is stored as a binary snapshot instead of CSV. */
+    public static boolean isBinaryFormat(String table) {
+        return "binary".equalsIgnoreCase(System.getProperty("bto.format." + table, DEFAULT_FORMAT).trim());
+    }
+
+    /** Whether the named table is stored as a log-structured segment directory (only honoured for tables that are not sharded). */
+    public static boolean isLogFormat(String table) {
+        return "log".equalsIgnoreCase(System.getProperty("bto.format." + table, DEFAULT_FORMAT).trim());
+    }
+
+    /** Whether the named table is stored in the embedded SQL database (only honoured for tables that are not sharded). */
+    public static boolean isDatabaseFormat(String table) {
+        return "jdbc".equalsIgnoreCase(System.getProperty("bto.format." + table, DEFAULT_FORMAT).trim());
+    }
+
+    /** Whether the named table's files are saved compressed. */
+    public static boolean isCompressed(String table) {
+        return Boolean.parseBoolean(System.getProperty("bto.compress." + table, String.valueOf(DEFAULT_COMPRESS)).trim());
+    }
+
+    /** Whether the named table is stored as per-project shard files (only honoured for tables that have a project ID). */
+    public static boolean isShardedByProject(String table) {
+        return Boolean.parseBoolean(System.getProperty("bto.shardByProject." + table, String.valueOf(DEFAULT_SHARD_BY_PROJECT)).trim());
+    }
+
+    // Prevent instantiation
+    private PersistenceConfig() {}
+}
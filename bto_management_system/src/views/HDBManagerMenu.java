@@ -38,8 +38,10 @@ public class HDBManagerMenu implements controllers.UserController.PasswordChange
         System.out.println("12. Generate Booking Report");
         System.out.println("--- Account ---");
         System.out.println("13. Change Password");
+        System.out.println("--- Data Maintenance ---");
+        System.out.println("14. Archive Closed, Fully Booked Projects");
         System.out.println(" 0. Logout");
-        return InputUtil.readIntInRange("Enter your choice: ", 0, 13);
+        return InputUtil.readIntInRange("Enter your choice: ", 0, 14);
     }
 
     // Project CRUD
@@ -123,7 +125,8 @@ public class HDBManagerMenu implements controllers.UserController.PasswordChange
            String name = InputUtil.readStringAllowEmpty("Project Name [" + existingProject.getProjectName() + "]: ");
            String neighborhood = InputUtil.readStringAllowEmpty("Neighborhood [" + existingProject.getNeighborhood() + "]: ");
 
-           boolean appsExist = DataStore.getApplications().values().stream().anyMatch(a -> a.getProjectId() == existingProject.getProjectId());
+           boolean appsExist = !DataStore.getApplicationsByProject(existingProject.getProjectId()).isEmpty()
+                   || DataStore.isProjectArchived(existingProject.getProjectId());
            Map<FlatType, Integer> units = new HashMap<>(existingProject.getTotalUnits());
             if (!appsExist) {
                  CommonView.displayMessage("Note: Applications have not been received; total unit counts can be changed.");
@@ -182,6 +185,25 @@ public class HDBManagerMenu implements controllers.UserController.PasswordChange
            else CommonView.displayError("Failed to delete project.");
       }
 
+       // Archival
+       public boolean confirmArchiveClosedProjects() {
+           CommonView.displayNavigationBar("Archive Closed Projects");
+           System.out.println("Applications, enquiries and bookings of projects that have closed and are fully booked");
+           System.out.println("will be moved to the archive. They stay readable in reports but can no longer be changed.");
+           return InputUtil.readBooleanYN("Proceed? (y/n): ");
+       }
+
+       public void displayArchiveResult(Map<Integer, Integer> archived) {
+           if (archived == null) {
+               CommonView.displayError("Archival failed.");
+           } else if (archived.isEmpty()) {
+               CommonView.displayMessage("No closed, fully booked projects with records to archive.");
+           } else {
+               archived.forEach((projectId, records) -> System.out.println("  Project " + projectId + ": " + records + " record(s) archived"));
+               CommonView.displaySuccess("Archived " + archived.size() + " project(s).");
+           }
+       }
+
        public boolean getVisibilityToggleChoice(boolean currentVisibility) {
             System.out.println("Current project visibility is: " + TextFormatUtil.bold(currentVisibility ? "ON" : "OFF"));
             return InputUtil.readBooleanYN("Do you want to set visibility to " + TextFormatUtil.bold(currentVisibility ? "OFF" : "ON") + "? (y/n): ");
@@ -345,6 +367,7 @@ public class HDBManagerMenu implements controllers.UserController.PasswordChange
              try { Integer.parseInt(maxAgeStr.trim()); filters.put("maxAge", maxAgeStr.trim()); }
              catch (NumberFormatException e) { CommonView.displayWarning("Invalid maximum age '" + maxAgeStr + "' entered, ignoring.");}
          }
+         if (InputUtil.readBooleanYN("Include archived projects? (y/n): ")) filters.put("includeArchived", "true");
 
          return filters;
      }
@@ -0,0 +1,81 @@
+package data;
+
+import models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Rows of a file saved with checksums are verified on load, and the ones that fail are quarantined as written. */
+class CsvChecksumQuarantineTest {
+
+    private static final String HEADER = "NRIC,Password,Name,Age,MaritalStatus,Role,RowChecksum";
+
+    @TempDir
+    Path dir;
+
+    /** The row with its checksum column, computed over the row's text as it is in the file. */
+    private static String withChecksum(String row) {
+        CRC32 crc = new CRC32();
+        crc.update(row.getBytes(StandardCharsets.UTF_8));
+        return row + "," + Long.toHexString(crc.getValue());
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path file = dir.resolve("users.csv");
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void acceptsVerifiedRowsWhateverTheirQuoting() throws IOException {
+        Path file = write(HEADER,
+                withChecksum("S1234567A,password,Alice Tan,36,SINGLE,APPLICANT"),
+                withChecksum("S2345678B,password,\"Bob Lim\",25,MARRIED,APPLICANT")); // quoted by hand, not as the writer would
+
+        UserDataManager manager = new UserDataManager();
+        Map<String, User> users = manager.load(file.toString());
+        assertEquals(2, users.size());
+        assertEquals("Bob Lim", users.get("S2345678B").getName());
+        assertFalse(manager.hadRejectedRows(file.toString()));
+        assertFalse(Files.exists(dir.resolve("users.csv.quarantine")));
+    }
+
+    @Test
+    void quarantinesRowsThatFailToVerifyAndKeepsTheRest() throws IOException {
+        String tampered = withChecksum("S2345678B,password,Bob Lim,25,MARRIED,APPLICANT").replace("25", "52");
+        Path file = write(HEADER,
+                withChecksum("S1234567A,password,Alice Tan,36,SINGLE,APPLICANT"),
+                tampered,
+                withChecksum("S3456789C,password,Charlie Ng,41,MARRIED,APPLICANT"));
+
+        UserDataManager manager = new UserDataManager();
+        Map<String, User> users = manager.load(file.toString());
+        assertEquals(2, users.size());
+        assertFalse(users.containsKey("S2345678B"));
+        assertTrue(manager.hadRejectedRows(file.toString()));
+
+        List<String> quarantine = Files.readAllLines(dir.resolve("users.csv.quarantine"), StandardCharsets.UTF_8);
+        assertTrue(quarantine.contains("# line 3: checksum mismatch"));
+        assertTrue(quarantine.contains(tampered)); // the row exactly as it was in the file
+    }
+
+    @Test
+    void quarantinesRowsThatFailToParse() throws IOException {
+        String unparseable = withChecksum("S2345678B,password,Bob Lim,not a number,MARRIED,APPLICANT");
+        Path file = write(HEADER, unparseable, withChecksum("S1234567A,password,Alice Tan,36,SINGLE,APPLICANT"));
+
+        UserDataManager manager = new UserDataManager();
+        assertEquals(1, manager.load(file.toString()).size());
+        List<String> quarantine = Files.readAllLines(dir.resolve("users.csv.quarantine"), StandardCharsets.UTF_8);
+        assertTrue(quarantine.contains(unparseable));
+    }
+}
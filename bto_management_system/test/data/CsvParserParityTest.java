@@ -0,0 +1,92 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The streaming tokenizer and the mapped-file field scanner must split and checksum every input alike. */
+class CsvParserParityTest {
+
+    private static final String[] INPUTS = {
+            "a,b\nc,d\n",
+            "a,b\r\nc,d\r\n",
+            "a,b\rc,d\r",                                // lone CR line endings
+            "a,b\nc,d",                                  // no final line break
+            "a,\"x\ry\",b\rc,d",                         // a CR inside quotes is data
+            "a,\"x\r\ny\nz\",b\r\n\rc,\"q\"\"\"  ,d\r",  // mixed breaks, escaped quote, text after a closing quote
+            "x\n\r\n\ry",                                // blank records of every kind
+            "id,\"needless quotes\",  spaced ,1f2e3d4c\n",
+            "\"unterminated,field\nstill,inside",
+            "na\u00efve,\u65e5\u672c,\"\u00e9,\u00e8\"\n",  // multi-byte UTF-8
+    };
+
+    /** Fields, starting line, raw text and checksum span of every record, as each parser sees them. */
+    private static List<String> tokenize(String input) throws IOException {
+        List<String> records = new ArrayList<>();
+        CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(input));
+        while (tokenizer.nextRecord()) {
+            records.add(tokenizer.getLineNumber() + " " + Arrays.toString(tokenizer.toArray()) + " |" + tokenizer.getRawRecord()
+                    + "| " + crc(tokenizer.getRawBeforeLastField()));
+        }
+        return records;
+    }
+
+    private static List<String> scan(String input) {
+        List<String> records = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        CsvFields fields = new CsvFields(buffer);
+        int position = 0, line = 1;
+        while (position < buffer.limit()) {
+            int recordLine = line;
+            position = fields.scan(position, buffer.limit());
+            line += fields.lineCount();
+            records.add(recordLine + " " + Arrays.toString(fields.toStringArray()) + " |" + fields.line()
+                    + "| " + fields.checksumBeforeLastField());
+        }
+        return records;
+    }
+
+    private static long crc(String text) {
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    @Test
+    void bothParsersAgreeOnRecordsLinesAndChecksums() throws IOException {
+        for (String input : INPUTS) {
+            assertEquals(tokenize(input), scan(input), () -> "input: " + input.replace("\r", "\\r").replace("\n", "\\n"));
+        }
+    }
+
+    @Test
+    void everyLineBreakEndsARecord() throws IOException {
+        for (String breakText : new String[] {"\n", "\r\n", "\r"}) {
+            String input = "a,b" + breakText + "c,d" + breakText;
+            assertEquals(2, tokenize(input).size());
+            assertEquals(2, scan(input).size());
+            assertTrue(scan(input).get(1).startsWith("2 [c, d]"));
+        }
+    }
+
+    @Test
+    void checksumCoversTheRawTextBeforeTheLastDelimiter() throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("1,\"a, b\",c,\"ff\"\r\n"));
+        assertTrue(tokenizer.nextRecord());
+        assertEquals("1,\"a, b\",c", tokenizer.getRawBeforeLastField());
+        assertEquals("1,\"a, b\",c,\"ff\"", tokenizer.getRawRecord());
+
+        CsvTokenizer single = new CsvTokenizer(new StringReader("only\n"));
+        assertTrue(single.nextRecord());
+        assertEquals("", single.getRawBeforeLastField());
+    }
+}
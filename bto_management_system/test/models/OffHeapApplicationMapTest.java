@@ -0,0 +1,143 @@
+package models;
+
+import enums.BTOApplicationStatus;
+import enums.FlatType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Slots, the linear-probing index and the flyweight records of the off-heap applications table. */
+class OffHeapApplicationMapTest {
+
+    private static BTOApplication application(int id) {
+        return new BTOApplication(id, "S" + (1000000 + id) + "A", id % 7, BTOApplicationStatus.PENDING,
+                FlatType.TWO_ROOM, null, null, false, new Date(1_700_000_000_000L + id));
+    }
+
+    @Test
+    void putAndGetKeepEveryField() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap();
+        BTOApplication booked = new BTOApplication(5, "T7654321Z", 3, BTOApplicationStatus.BOOKED,
+                FlatType.THREE_ROOM, FlatType.THREE_ROOM, 42, true, new Date(1_700_000_000_000L));
+        assertNull(map.put(5, booked));
+
+        BTOApplication stored = map.get(5);
+        assertEquals(5, stored.getApplicationId());
+        assertEquals("T7654321Z", stored.getApplicantNric());
+        assertEquals(3, stored.getProjectId());
+        assertEquals(BTOApplicationStatus.BOOKED, stored.getStatus());
+        assertEquals(FlatType.THREE_ROOM, stored.getAppliedFlatType());
+        assertEquals(FlatType.THREE_ROOM, stored.getBookedFlatType());
+        assertEquals(42, stored.getFlatBookingId());
+        assertTrue(stored.isWithdrawalRequested());
+        assertEquals(new Date(1_700_000_000_000L), stored.getSubmissionDate());
+
+        BTOApplication empty = new BTOApplication(6, null, 0, null, null, null, null, false, null);
+        map.put(6, empty);
+        assertNull(map.get(6).getApplicantNric());
+        assertNull(map.get(6).getStatus());
+        assertNull(map.get(6).getFlatBookingId());
+        assertNull(map.get(6).getSubmissionDate());
+    }
+
+    @Test
+    void putReplacesAndReturnsAHeapCopyOfThePreviousApplication() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap();
+        map.put(1, application(1));
+        BTOApplication replaced = new BTOApplication(1, "S0000001A", 9, BTOApplicationStatus.SUCCESSFUL,
+                FlatType.THREE_ROOM, null, null, false, null);
+
+        BTOApplication previous = map.put(1, replaced);
+        assertEquals(BTOApplicationStatus.PENDING, previous.getStatus());
+        assertEquals(1, map.size());
+        assertEquals(BTOApplicationStatus.SUCCESSFUL, map.get(1).getStatus());
+        assertEquals(9, map.get(1).getProjectId());
+    }
+
+    @Test
+    void rejectsAKeyOtherThanTheApplicationId() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(2, application(1)));
+    }
+
+    @Test
+    void recordsWriteThroughAndFailOnceRemoved() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap();
+        map.put(1, application(1));
+        BTOApplication record = map.get(1);
+
+        record.setStatus(BTOApplicationStatus.SUCCESSFUL);
+        assertEquals(BTOApplicationStatus.SUCCESSFUL, map.get(1).getStatus());
+
+        BTOApplication removed = map.remove(1);
+        assertEquals(BTOApplicationStatus.SUCCESSFUL, removed.getStatus()); // a heap copy, still readable
+        assertEquals(1, record.getApplicationId());
+        assertThrows(IllegalStateException.class, record::getStatus);
+
+        map.put(2, application(2)); // reuses the freed slot
+        assertThrows(IllegalStateException.class, record::getStatus);
+        assertEquals(2, map.get(2).getApplicationId());
+    }
+
+    @Test
+    void writeBackCopiesAChangedHeapApplication() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap();
+        BTOApplication heap = application(1);
+        map.put(1, heap);
+
+        heap.setStatus(BTOApplicationStatus.UNSUCCESSFUL);
+        assertEquals(BTOApplicationStatus.PENDING, map.get(1).getStatus());
+        map.writeBack(heap);
+        assertEquals(BTOApplicationStatus.UNSUCCESSFUL, map.get(1).getStatus());
+    }
+
+    @Test
+    void probingFindsEveryKeyThroughGrowthAndRemovals() {
+        OffHeapApplicationMap map = new OffHeapApplicationMap(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        // Strided and clustered keys as well as random ones, so runs in the index wrap and overlap
+        for (int i = 0; i < 3000; i++) {
+            int id = (i % 3 == 0) ? i * 1024 : (i % 3 == 1) ? 500_000 + i : random.nextInt(1_000_000) + 1;
+            BTOApplication application = application(id);
+            map.put(id, application);
+            expected.put(id, application.getProjectId());
+        }
+        for (Integer id : new HashSet<>(expected.keySet())) {
+            if (random.nextBoolean()) {
+                assertNotNull(map.remove(id));
+                expected.remove(id);
+            }
+        }
+        assertNull(map.remove(-1));
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            BTOApplication stored = map.get(entry.getKey());
+            assertNotNull(stored, "application " + entry.getKey());
+            assertEquals((int) entry.getValue(), stored.getProjectId());
+        }
+        Set<Integer> iterated = new HashSet<>();
+        map.values().forEach(application -> iterated.add(application.getApplicationId()));
+        assertEquals(expected.keySet(), iterated);
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    void clearEmptiesTheTable() {
+        OffHeapApplicationMap map = OffHeapApplicationMap.copyOf(Map.of(1, application(1), 2, application(2)));
+        assertEquals(2, map.size());
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        map.put(3, application(3));
+        assertEquals(1, map.size());
+    }
+}
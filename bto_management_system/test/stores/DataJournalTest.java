@@ -0,0 +1,121 @@
+package stores;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Replay of journaled records after a restart, and recovery from a torn or corrupt tail. */
+class DataJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Path journalFile() {
+        return dir.resolve("journal.log");
+    }
+
+    /** Writes two puts and a delete, then closes the journal like a clean shutdown would. */
+    private void writeThreeRecords() throws IOException {
+        DataJournal journal = new DataJournal(journalFile().toString());
+        assertTrue(journal.open(0).isEmpty());
+        journal.appendPut("users", "S1234567A", "S1234567A,password,Alice Tan,36,SINGLE,APPLICANT");
+        journal.appendPut("enquiries", "7", "7,S1234567A,1,OPEN,2025-03-18,2025-03-18,\"Hello, \"\"quoted\"\"\",");
+        journal.appendDelete("users", "S1234567A");
+        journal.sync();
+        journal.close();
+    }
+
+    @Test
+    void replaysRecordsInAppendOrderAfterReopen() throws IOException {
+        writeThreeRecords();
+
+        DataJournal journal = new DataJournal(journalFile().toString());
+        List<DataJournal.Record> records = journal.open(0);
+        assertEquals(3, records.size());
+        assertEquals(List.of(1L, 2L, 3L), records.stream().map(DataJournal.Record::getSequence).toList());
+
+        DataJournal.Record put = records.get(1);
+        assertEquals("enquiries", put.getTable());
+        assertEquals(DataJournal.OP_PUT, put.getOp());
+        assertEquals("7", put.getKey());
+        assertEquals("7,S1234567A,1,OPEN,2025-03-18,2025-03-18,\"Hello, \"\"quoted\"\"\",", put.getRow());
+
+        DataJournal.Record delete = records.get(2);
+        assertEquals(DataJournal.OP_DELETE, delete.getOp());
+        assertNull(delete.getRow());
+
+        journal.appendPut("users", "S2345678B", "row");
+        assertEquals(4, journal.getLastSequence()); // numbering continues after the replayed records
+        journal.close();
+    }
+
+    @Test
+    void unsyncedRecordsAreNotReplayed() throws IOException {
+        DataJournal journal = new DataJournal(journalFile().toString());
+        journal.open(0);
+        journal.appendPut("users", "S1234567A", "row");
+        // no sync(): the process dies here
+
+        assertTrue(new DataJournal(journalFile().toString()).read().isEmpty());
+    }
+
+    @Test
+    void truncatesATornTailAndKeepsAppending() throws IOException {
+        writeThreeRecords();
+        long validLength = Files.size(journalFile());
+        Files.write(journalFile(), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND); // a record cut off mid-write
+
+        DataJournal journal = new DataJournal(journalFile().toString());
+        assertEquals(3, journal.open(0).size());
+        assertEquals(validLength, Files.size(journalFile()));
+
+        journal.appendPut("users", "S2345678B", "row");
+        journal.sync();
+        journal.close();
+        List<DataJournal.Record> records = new DataJournal(journalFile().toString()).read();
+        assertEquals(4, records.size());
+        assertEquals("S2345678B", records.get(3).getKey());
+    }
+
+    @Test
+    void dropsRecordsFromTheFirstCorruptOneOn() throws IOException {
+        writeThreeRecords();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile().toFile(), "rw")) {
+            file.seek(file.length() - 1); // last byte of the last record's CRC
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        DataJournal journal = new DataJournal(journalFile().toString());
+        List<DataJournal.Record> records = journal.open(0);
+        assertEquals(2, records.size());
+        assertEquals(2, journal.getLastSequence());
+        journal.close();
+    }
+
+    @Test
+    void resetEmptiesTheJournalAndNumbersPastTheCheckpoint() throws IOException {
+        writeThreeRecords();
+
+        DataJournal journal = new DataJournal(journalFile().toString());
+        journal.open(0);
+        journal.reset();
+        assertEquals(0, Files.size(journalFile()));
+        journal.close();
+
+        DataJournal reopened = new DataJournal(journalFile().toString());
+        assertTrue(reopened.open(3).isEmpty());
+        reopened.appendPut("users", "S1234567A", "row");
+        assertEquals(4, reopened.getLastSequence()); // never mistaken for a checkpointed record
+        reopened.close();
+    }
+}